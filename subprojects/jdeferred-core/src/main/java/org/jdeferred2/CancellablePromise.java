@@ -0,0 +1,44 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2;
+
+/**
+ * A {@link Promise} that can be cancelled. Every promise created by this library implements this interface;
+ * test for it with {@code instanceof} before cancelling a promise obtained through the {@code Promise} type.
+ *
+ * @param <D> Type used for {@link #done(DoneCallback)}
+ * @param <F> Type used for {@link #fail(FailCallback)}
+ * @param <P> Type used for {@link #progress(ProgressCallback)}
+ *
+ * @since 2.1
+ */
+public interface CancellablePromise<D, F, P> extends Promise<D, F, P> {
+	/**
+	 * Attempts to cancel this promise. A pending promise is rejected with a
+	 * {@link java.util.concurrent.CancellationException} and its registered {@link CancellationHandler}s run.
+	 * <p>
+	 * Cancellation propagates upstream: a promise created by {@code filter}, {@code pipe} or by a
+	 * {@code DeferredManager} aggregate releases the promises it depends on, and each of those is cancelled in
+	 * turn once every stage depending on it has been cancelled and no callback was registered on it directly.
+	 * A promise backed by a {@link DeferredFutureTask} cancels the task, interrupting it if it is running.
+	 * <p>
+	 * The {@code CancellationException} is delivered to fail callbacks as is, so cancellation is meant for promises
+	 * whose failure type is {@link Throwable} or a supertype of it; aggregates wrap it in their own failure type.
+	 *
+	 * @return {@code true} if this call cancelled the promise, {@code false} if it had already settled
+	 */
+	boolean cancel();
+}
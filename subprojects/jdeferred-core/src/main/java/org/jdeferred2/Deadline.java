@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time, measured with {@link System#nanoTime()}, by which work must be done.
+ * <p>
+ * A deadline travels along with the work it bounds: promises created by
+ * {@link DeferredManager#withDeadline(Promise, Deadline)} carry it, every {@code pipe(...)} and {@code filter(...)}
+ * stage derived from them inherits it, and while a stage runs the deadline is available through
+ * {@link #current()}. Tasks created meanwhile, e.g. by {@link DeferredManager#when(java.util.concurrent.Callable)},
+ * capture it in turn. Once it has expired, stages and tasks reject with a {@link DeferredTimeoutException} instead
+ * of starting their work.
+ *
+ * @since 2.1
+ */
+public final class Deadline implements Comparable<Deadline> {
+	private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<Deadline>();
+
+	private final long deadlineNanos;
+
+	private Deadline(long deadlineNanos) {
+		this.deadlineNanos = deadlineNanos;
+	}
+
+	/**
+	 * @param duration the time until the deadline. Must not be negative
+	 * @param unit     the unit of {@code duration}. Must not be null
+	 *
+	 * @return a deadline {@code duration} from now
+	 */
+	public static Deadline after(long duration, TimeUnit unit) {
+		if (unit == null) {
+			throw new IllegalArgumentException("Argument 'unit' must not be null");
+		}
+		if (duration < 0) {
+			throw new IllegalArgumentException("Argument 'duration' must not be negative but was " + duration);
+		}
+
+		long now = System.nanoTime();
+		long deadline = now + unit.toNanos(duration);
+		if (deadline - now < 0) {
+			// guard against overflow
+			deadline = now + Long.MAX_VALUE;
+		}
+		return new Deadline(deadline);
+	}
+
+	/**
+	 * @return the deadline of the work currently running on this thread, or {@code null} if it has none
+	 */
+	public static Deadline current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Makes {@code deadline} the {@link #current()} one of this thread. Callers must restore the previous deadline
+	 * once their work is done, typically in a {@code finally} block.
+	 *
+	 * @param deadline the new current deadline. May be null
+	 *
+	 * @return the previous current deadline, possibly null
+	 */
+	public static Deadline setCurrent(Deadline deadline) {
+		Deadline previous = CURRENT.get();
+		if (deadline == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(deadline);
+		}
+		return previous;
+	}
+
+	/**
+	 * @return the time left until this deadline, or zero if it has expired
+	 */
+	public long timeRemaining(TimeUnit unit) {
+		long remaining = deadlineNanos - System.nanoTime();
+		return remaining <= 0 ? 0 : unit.convert(remaining, TimeUnit.NANOSECONDS);
+	}
+
+	public boolean isExpired() {
+		return deadlineNanos - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * @return the earlier of this deadline and {@code other}; this one if {@code other} is null
+	 */
+	public Deadline minimum(Deadline other) {
+		return other == null || compareTo(other) <= 0 ? this : other;
+	}
+
+	@Override
+	public int compareTo(Deadline other) {
+		long difference = deadlineNanos - other.deadlineNanos;
+		return difference < 0 ? -1 : difference > 0 ? 1 : 0;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return this == o || (o instanceof Deadline && ((Deadline) o).deadlineNanos == deadlineNanos);
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (deadlineNanos ^ (deadlineNanos >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return "Deadline [remaining=" + timeRemaining(TimeUnit.MILLISECONDS) + "ms]";
+	}
+}
@@ -15,6 +15,7 @@
  */
 package org.jdeferred2;
 
+import org.jdeferred2.DeferredManager.CancellationPolicy;
 import org.jdeferred2.DeferredManager.StartPolicy;
 import org.jdeferred2.impl.DeferredObject;
 
@@ -33,12 +34,14 @@ import java.util.concurrent.Callable;
 public abstract class DeferredCallable<D, P> implements Callable<D> {
 	private final Deferred<D, Throwable, P> deferred = new DeferredObject<D, Throwable, P>();
 	private final StartPolicy startPolicy;
+	private final CancellationPolicy cancellationPolicy;
+	private volatile boolean cancellationRequested;
 
 	/**
 	 * Creates a new {@code DeferredCallable} with DEFAULT {@code startPolicy}.
 	 */
 	public DeferredCallable() {
-		this.startPolicy = StartPolicy.DEFAULT;
+		this(StartPolicy.DEFAULT);
 	}
 
 	/**
@@ -47,7 +50,20 @@ public abstract class DeferredCallable<D, P> implements Callable<D> {
 	 * @param startPolicy the startPolicy to use. will be set to DEFAULT if {@code null}.
 	 */
 	public DeferredCallable(StartPolicy startPolicy) {
+		this(startPolicy, CancellationPolicy.INTERRUPT);
+	}
+
+	/**
+	 * Creates a new {@code DeferredCallable} with the given {@code startPolicy} and {@code cancellationPolicy}.
+	 *
+	 * @param startPolicy        the startPolicy to use. will be set to DEFAULT if {@code null}.
+	 * @param cancellationPolicy the cancellationPolicy to use. will be set to INTERRUPT if {@code null}.
+	 *
+	 * @since 2.1
+	 */
+	public DeferredCallable(StartPolicy startPolicy, CancellationPolicy cancellationPolicy) {
 		this.startPolicy = startPolicy != null ? startPolicy : StartPolicy.DEFAULT;
+		this.cancellationPolicy = cancellationPolicy != null ? cancellationPolicy : CancellationPolicy.INTERRUPT;
 	}
 
 	/**
@@ -68,4 +84,64 @@ public abstract class DeferredCallable<D, P> implements Callable<D> {
 	public StartPolicy getStartPolicy() {
 		return startPolicy;
 	}
+
+	/**
+	 * @since 2.1
+	 */
+	public CancellationPolicy getCancellationPolicy() {
+		return cancellationPolicy;
+	}
+
+	/**
+	 * Returns whether the task running this callable has been cancelled. Long-running work should check this at
+	 * safe points and return early, in particular under {@link CancellationPolicy#COOPERATIVE}.
+	 *
+	 * @return {@code true} once cancellation has been requested
+	 *
+	 * @since 2.1
+	 */
+	protected boolean isCancellationRequested() {
+		return cancellationRequested;
+	}
+
+	void requestCancellation() {
+		cancellationRequested = true;
+	}
+
+	/**
+	 * Returns the deadline of this task while it runs, so that long-running work can check the remaining budget
+	 * or pass it on.
+	 *
+	 * @return the deadline, or {@code null} if this task has none or is called outside of {@link #call()}
+	 *
+	 * @since 2.1
+	 */
+	protected Deadline getDeadline() {
+		return Deadline.current();
+	}
+
+	/**
+	 * Returns the name of the bulkhead this task should run in, for managers that isolate the tasks of each
+	 * dependency such as {@link org.jdeferred2.limit.BulkheadDeferredManager}. Override it to tag the task.
+	 *
+	 * @return the name of the bulkhead, or {@code null} to run on the manager's default executor
+	 *
+	 * @since 2.1
+	 */
+	public String getBulkhead() {
+		return null;
+	}
+
+	/**
+	 * Returns the priority of this task, for managers that order pending tasks such as
+	 * {@link org.jdeferred2.limit.PriorityDeferredManager}. Higher values run first. Override it to prioritize the
+	 * task.
+	 *
+	 * @return the priority, {@code 0} by default
+	 *
+	 * @since 2.1
+	 */
+	public int getPriority() {
+		return 0;
+	}
 }
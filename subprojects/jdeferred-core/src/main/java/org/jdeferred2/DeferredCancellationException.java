@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Signals that a {@link Promise} was cancelled.
+ * <p>
+ * Cancellations come in bulk, for example when a race settles and cancels every loser, and their cause is always
+ * the same, so no stack trace is captured and a single {@link #INSTANCE} is shared. Do not modify it.
+ *
+ * @see CancellablePromise#cancel()
+ * @see DeferredFutureTask#cancel()
+ * @since 2.1
+ */
+public class DeferredCancellationException extends CancellationException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The shared instance used to reject cancelled promises.
+	 */
+	public static final DeferredCancellationException INSTANCE = new DeferredCancellationException("Cancelled");
+
+	public DeferredCancellationException(String message) {
+		super(message);
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return this;
+	}
+}
@@ -15,6 +15,7 @@
  */
 package org.jdeferred2;
 
+import org.jdeferred2.DeferredManager.CancellationPolicy;
 import org.jdeferred2.DeferredManager.StartPolicy;
 import org.jdeferred2.impl.DeferredObject;
 import org.slf4j.Logger;
@@ -47,8 +48,13 @@ public class DeferredFutureTask<D, P> extends FutureTask<D> {
 
 	protected final Deferred<D, Throwable, P> deferred;
 	protected final StartPolicy startPolicy;
+	protected final CancellationPolicy cancellationPolicy;
+	private final Deadline deadline = Deadline.current();
 	private Object taskDelegate;
 	private CancellationHandler cancellationHandler;
+	private volatile long enqueuedAt;
+	private volatile boolean started;
+	private volatile Integer priority;
 
 	/**
 	 * Creates a new {@code DeferredFutureTask} with the given task.
@@ -105,6 +111,8 @@ public class DeferredFutureTask<D, P> extends FutureTask<D> {
 		this.cancellationHandler = cancellationHandler;
 		this.deferred = new DeferredObject<D, Throwable, P>();
 		this.startPolicy = StartPolicy.DEFAULT;
+		this.cancellationPolicy = CancellationPolicy.INTERRUPT;
+		cancelWithPromise();
 	}
 
 	/**
@@ -122,6 +130,8 @@ public class DeferredFutureTask<D, P> extends FutureTask<D> {
 		this.cancellationHandler = cancellationHandler;
 		this.deferred = new DeferredObject<D, Throwable, P>();
 		this.startPolicy = StartPolicy.DEFAULT;
+		this.cancellationPolicy = CancellationPolicy.INTERRUPT;
+		cancelWithPromise();
 	}
 
 	/**
@@ -139,6 +149,8 @@ public class DeferredFutureTask<D, P> extends FutureTask<D> {
 		this.cancellationHandler = cancellationHandler;
 		this.deferred = task.getDeferred();
 		this.startPolicy = task.getStartPolicy();
+		this.cancellationPolicy = task.getCancellationPolicy();
+		cancelWithPromise();
 	}
 
 	/**
@@ -157,31 +169,143 @@ public class DeferredFutureTask<D, P> extends FutureTask<D> {
 		this.cancellationHandler = cancellationHandler;
 		this.deferred = (Deferred<D, Throwable, P>) task.getDeferred();
 		this.startPolicy = task.getStartPolicy();
+		this.cancellationPolicy = task.getCancellationPolicy();
+		cancelWithPromise();
 	}
 
 	public Promise<D, Throwable, P> promise() {
 		return deferred.promise();
 	}
 
+	/**
+	 * Cancels this task, interrupting it if it is running, when its promise is {@link CancellablePromise#cancel() cancelled}.
+	 */
+	private void cancelWithPromise() {
+		if (deferred instanceof DeferredObject) {
+			((DeferredObject<D, Throwable, P>) deferred).addCancellationHandler(new CancellationHandler() {
+				@Override
+				public void onCancel() {
+					cancel();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Cancels this task according to its {@link #getCancellationPolicy() cancellation policy}: the running thread
+	 * is interrupted only under {@link CancellationPolicy#INTERRUPT}.
+	 *
+	 * @return {@code false} if the task could not be cancelled, typically because it has already completed
+	 *
+	 * @since 2.1
+	 */
+	public boolean cancel() {
+		return cancel(cancellationPolicy == CancellationPolicy.INTERRUPT);
+	}
+
+	/**
+	 * Signals the cancellation request to the underlying {@link DeferredCallable} or {@link DeferredRunnable} before
+	 * cancelling, so that it can bail out at its next safe point.
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		if (taskDelegate instanceof DeferredCallable) {
+			((DeferredCallable<?, ?>) taskDelegate).requestCancellation();
+		} else if (taskDelegate instanceof DeferredRunnable) {
+			((DeferredRunnable<?>) taskDelegate).requestCancellation();
+		}
+		return super.cancel(mayInterruptIfRunning);
+	}
+
+	/**
+	 * Runs the task with its {@link #getDeadline() deadline} as the {@link Deadline#current() current} one, or
+	 * rejects with a {@link DeferredTimeoutException} without running it if the deadline has already expired.
+	 */
+	@Override
+	public void run() {
+		started = true;
+		if (deadline == null) {
+			super.run();
+			return;
+		}
+
+		if (deadline.isExpired()) {
+			setException(new DeferredTimeoutException("Deadline expired before the task could run"));
+			return;
+		}
+
+		Deadline previous = Deadline.setCurrent(deadline);
+		try {
+			super.run();
+		} finally {
+			Deadline.setCurrent(previous);
+		}
+	}
+
+	/**
+	 * Records that this task is being handed to an executor, which starts the clock of {@link #getQueueTimeNanos()}.
+	 *
+	 * @since 2.1
+	 */
+	public void markEnqueued() {
+		enqueuedAt = System.nanoTime();
+	}
+
+	/**
+	 * Returns how long this task has been waiting since it was {@link #markEnqueued() enqueued}.
+	 *
+	 * @return the time in the queue, in nanoseconds, or {@code -1} if the task was never enqueued
+	 *
+	 * @since 2.1
+	 */
+	public long getQueueTimeNanos() {
+		long at = enqueuedAt;
+		return at == 0L ? -1L : System.nanoTime() - at;
+	}
+
+	/**
+	 * Returns whether an executor has started running this task. A task cancelled before it started is still
+	 * sitting in its executor's queue until it is dequeued or purged.
+	 *
+	 * @return {@code true} once {@link #run()} has been entered
+	 *
+	 * @since 2.1
+	 */
+	public boolean isStarted() {
+		return started;
+	}
+
+	/**
+	 * Rejects this task's promise with {@code failure} without running the task, for example because its executor
+	 * refused it. Has no effect if the task has already completed.
+	 *
+	 * @param failure the reason the task will not run
+	 *
+	 * @since 2.1
+	 */
+	public void reject(Throwable failure) {
+		setException(failure);
+	}
+
 	@Override
 	protected void done() {
 		if (isCancelled()) {
-			deferred.reject(new CancellationException());
+			rejectIfPending(DeferredCancellationException.INSTANCE);
 			cleanup();
 			return;
 		}
 
 		try {
-			deferred.resolve(get());
+			resolveIfPending(get());
 		} catch (InterruptedException e) {
 			try {
-				deferred.reject(causeOf(e));
+				rejectIfPending(causeOf(e));
 			} finally {
 				cleanup();
 			}
 		} catch (ExecutionException e) {
 			try {
-				deferred.reject(causeOf(e));
+				rejectIfPending(causeOf(e));
 			} finally {
 				cleanup();
 			}
@@ -191,6 +315,23 @@ public class DeferredFutureTask<D, P> extends FutureTask<D> {
 		}
 	}
 
+	// the promise may already have been cancelled by one of its consumers
+	private void resolveIfPending(D result) {
+		synchronized (deferred) {
+			if (deferred.promise().isPending()) {
+				deferred.resolve(result);
+			}
+		}
+	}
+
+	private void rejectIfPending(Throwable failure) {
+		synchronized (deferred) {
+			if (deferred.promise().isPending()) {
+				deferred.reject(failure);
+			}
+		}
+	}
+
 	protected Throwable causeOf(Exception e) {
 		return e.getCause() != null ? e.getCause() : e;
 	}
@@ -218,4 +359,70 @@ public class DeferredFutureTask<D, P> extends FutureTask<D> {
 	public StartPolicy getStartPolicy() {
 		return startPolicy;
 	}
+
+	/**
+	 * @since 2.1
+	 */
+	public CancellationPolicy getCancellationPolicy() {
+		return cancellationPolicy;
+	}
+
+	/**
+	 * Returns the bulkhead the underlying {@link DeferredCallable} or {@link DeferredRunnable} asks to run in.
+	 *
+	 * @return the name of the bulkhead, or {@code null} if there is none
+	 *
+	 * @since 2.1
+	 */
+	public String getBulkhead() {
+		if (taskDelegate instanceof DeferredCallable) {
+			return ((DeferredCallable<?, ?>) taskDelegate).getBulkhead();
+		} else if (taskDelegate instanceof DeferredRunnable) {
+			return ((DeferredRunnable<?>) taskDelegate).getBulkhead();
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the priority set with {@link #setPriority(int)}, or else the one of the underlying
+	 * {@link DeferredCallable} or {@link DeferredRunnable}. Higher values run first.
+	 *
+	 * @return the priority, {@code 0} by default
+	 *
+	 * @since 2.1
+	 */
+	public int getPriority() {
+		Integer explicit = priority;
+		if (explicit != null) {
+			return explicit;
+		} else if (taskDelegate instanceof DeferredCallable) {
+			return ((DeferredCallable<?, ?>) taskDelegate).getPriority();
+		} else if (taskDelegate instanceof DeferredRunnable) {
+			return ((DeferredRunnable<?>) taskDelegate).getPriority();
+		}
+		return 0;
+	}
+
+	/**
+	 * Sets the priority of this task, overriding the one of the underlying task. Takes effect when the task is
+	 * submitted.
+	 *
+	 * @param priority the priority. Higher values run first
+	 *
+	 * @since 2.1
+	 */
+	public void setPriority(int priority) {
+		this.priority = priority;
+	}
+
+	/**
+	 * Returns the deadline that was {@link Deadline#current() current} when this task was created.
+	 *
+	 * @return the deadline, or {@code null} if this task has none
+	 *
+	 * @since 2.1
+	 */
+	public Deadline getDeadline() {
+		return deadline;
+	}
 }
@@ -26,9 +26,11 @@ import org.jdeferred2.multiple.MultipleResults5;
 import org.jdeferred2.multiple.MultipleResultsN;
 import org.jdeferred2.multiple.OneReject;
 import org.jdeferred2.multiple.OneResult;
+import org.jdeferred2.multiple.OneValue;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@link DeferredManager} is especially useful when dealing with asynchronous
@@ -83,6 +85,27 @@ public interface DeferredManager {
 		MANUAL
 	}
 
+	/**
+	 * How a task is stopped when it is cancelled. Either way the task's promise is rejected right away and the task
+	 * can observe the request through {@link DeferredCallable#isCancellationRequested()} or
+	 * {@link DeferredRunnable#isCancellationRequested()}.
+	 *
+	 * @since 2.1
+	 */
+	enum CancellationPolicy {
+		/**
+		 * Interrupts the thread running the task.
+		 */
+		INTERRUPT,
+
+		/**
+		 * Leaves the running task alone; it is expected to check for the request at safe points and bail out.
+		 * Use this for CPU-bound code that ignores interrupts, or for code using interruptible channels, which an
+		 * interrupt would close.
+		 */
+		COOPERATIVE
+	}
+
 	/**
 	 * Simply returns the promise.
 	 *
@@ -114,6 +137,24 @@ public interface DeferredManager {
 	 */
 	<D> Promise<D, Throwable, Void> when(Callable<D> callable);
 
+	/**
+	 * Like {@link #when(Callable)}, but coalesces concurrent calls for the same {@code key}: while a task for
+	 * {@code key} is in flight, further calls share its outcome and their {@code callable} is not executed. The key
+	 * is released as soon as the task settles, so the next call after that starts a new task. The task is always
+	 * submitted, even when auto-submit is off, since no caller holds it to start it by hand.
+	 * <p>
+	 * Every caller gets its own {@link Promise}. {@link CancellablePromise#cancel() Cancelling} it only cancels the shared task
+	 * once every caller waiting on it has cancelled.
+	 *
+	 * @param key      identifies the work, compared with {@code equals}. Must not be null
+	 * @param callable the task to execute if none is in flight for {@code key}. Must not be null
+	 *
+	 * @return a {@link Promise} that settles with the shared task
+	 *
+	 * @since 2.1
+	 */
+	<D> Promise<D, Throwable, Void> whenKeyed(Object key, Callable<D> callable);
+
 	/**
 	 * Wraps {@link Future} and waits for {@link Future#get()} to return a result
 	 * in the background.
@@ -1001,6 +1042,26 @@ public interface DeferredManager {
 		DeferredFutureTask<?, ?> taskV2,
 		DeferredFutureTask<?, ?>... tasks);
 
+	/**
+	 * Creates a {@link Promise} that signals {@code done} or {@code reject} when the first promise does so.
+	 * Unlike the task based variants the promises need not originate from this {@code DeferredManager}.
+	 * <p>
+	 * Every promise that loses the race is cancelled if it is a {@link CancellablePromise}; otherwise, if it
+	 * implements {@link CancellationHandler}, it is notified via {@link CancellationHandler#onCancel()}.
+	 *
+	 * @param promiseV1 a promise. Must not be null
+	 * @param promiseV2 a promise. Must not be null
+	 * @param promises  additional promises. May be null
+	 *
+	 * @return a composite {@link Promise} that resolves/rejects as soon as the first of the given promises is resolved/rejected.
+	 *
+	 * @since 2.1
+	 */
+	Promise<OneResult<?>, OneReject<?>, Void> race(
+		Promise<?, ?, ?> promiseV1,
+		Promise<?, ?, ?> promiseV2,
+		Promise<?, ?, ?>... promises);
+
 	/**
 	 * Creates a {@link Promise} that signals {@code done} or {@code reject} when each runnable does so.
 	 * Wraps each {@code runnable} with {@link DeferredFutureTask}.
@@ -1139,7 +1200,8 @@ public interface DeferredManager {
 	 * If an item is a {@link Callable}, it'll call {@link #when(Callable)} to convert that into a Promise.
 	 * <p>
 	 * If the item is of an unknown type, it'll throw an {@link IllegalArgumentException}.
-	 * <strong>WARNING: </strong>does not accept items of type {@code Promise}.
+	 * <strong>WARNING: </strong>does not accept items of type {@code Promise}, use
+	 * {@link #race(Promise, Promise, Promise[])} instead.
 	 *
 	 * @param iterable the source of tasks. Must be non-null and not empty. Every item must be convertible to {@link Promise}
 	 *
@@ -1165,6 +1227,381 @@ public interface DeferredManager {
 	 */
 	Promise<AllValues, Throwable, MasterProgress> settle(Iterable<?> iterable);
 
+	/**
+	 * Bounded-concurrency variant of {@link #when(Iterable)}. Items are pulled from the iterable lazily, and at most
+	 * {@code maxConcurrency} of them are in flight at any time: the next item is converted into a {@link Promise}
+	 * (and thus submitted) only when a previous one settles. This keeps the executor queue and the number of
+	 * pending tasks bounded regardless of the size of the iterable.
+	 * <p>
+	 * As items are converted lazily, an item that cannot be converted to a {@link Promise} rejects the composite
+	 * {@link Promise} instead of throwing an {@link IllegalArgumentException}. {@link MasterProgress#getTotal()}
+	 * reports the number of items pulled so far.
+	 *
+	 * @param iterable       the source of tasks. Must be non-null and not empty
+	 * @param maxConcurrency the maximum number of items in flight. Must be positive
+	 *
+	 * @return a composite {@link Promise} that rejects as soon as the first of the submitted tasks is rejected or contains
+	 * the resolution of all given tasks, in iteration order.
+	 *
+	 * @since 2.1
+	 */
+	Promise<MultipleResults, OneReject<?>, MasterProgress> when(Iterable<?> iterable, int maxConcurrency);
+
+	/**
+	 * Bounded-concurrency variant of {@link #settle(Iterable)}. Items are pulled from the iterable lazily, and at
+	 * most {@code maxConcurrency} of them are in flight at any time: the next item is converted into a
+	 * {@link Promise} (and thus submitted) only when a previous one settles.
+	 * <p>
+	 * As items are converted lazily, an item that cannot be converted to a {@link Promise} is recorded as a
+	 * {@link OneReject} holding an {@link IllegalArgumentException}. {@link MasterProgress#getTotal()} reports the
+	 * number of items pulled so far.
+	 *
+	 * @param iterable       the source of tasks. Must be non-null and not empty
+	 * @param maxConcurrency the maximum number of items in flight. Must be positive
+	 *
+	 * @return a composite {@link Promise} that collects resolve/reject values from all tasks, in iteration order.
+	 *
+	 * @since 2.1
+	 */
+	Promise<AllValues, Throwable, MasterProgress> settle(Iterable<?> iterable, int maxConcurrency);
+
+	/**
+	 * Streaming variant of {@link #when(Iterable)}. Instead of collecting every result, each result is handed over
+	 * to {@code consumer} as soon as it is available, in completion order, much like
+	 * {@link java.util.concurrent.ExecutorCompletionService}. Results are not retained.
+	 * <p>
+	 * The consumer is invoked by the thread that settled a promise, but never concurrently; it need not be thread
+	 * safe. Delivery stops on the first rejection.
+	 *
+	 * @param iterable the source of tasks. Must be non-null and not empty. Every item must be convertible to {@link Promise}
+	 * @param consumer receives each result in completion order. Must not be null
+	 *
+	 * @return a {@link Promise} that rejects as soon as the first of the submitted tasks is rejected or resolves with
+	 * the final counts once every result was delivered.
+	 *
+	 * @throws IllegalArgumentException if any item in iterable cannot be converted to a {@link Promise}
+	 * @since 2.1
+	 */
+	Promise<MasterProgress, OneReject<?>, Void> whenEach(Iterable<?> iterable, DoneCallback<? super OneResult<?>> consumer);
+
+	/**
+	 * Streaming variant of {@link #settle(Iterable)}. Instead of collecting every value, each result or rejection is
+	 * handed over to {@code consumer} as soon as it is available, in completion order. Values are not retained.
+	 * <p>
+	 * The consumer is invoked by the thread that settled a promise, but never concurrently; it need not be thread
+	 * safe.
+	 *
+	 * @param iterable the source of tasks. Must be non-null and not empty. Every item must be convertible to {@link Promise}
+	 * @param consumer receives each {@link OneResult} or {@link OneReject} in completion order. Must not be null
+	 *
+	 * @return a {@link Promise} that resolves with the final counts once every value was delivered.
+	 *
+	 * @throws IllegalArgumentException if any item in iterable cannot be converted to a {@link Promise}
+	 * @since 2.1
+	 */
+	Promise<MasterProgress, Throwable, Void> settleEach(Iterable<?> iterable, DoneCallback<? super OneValue<?>> consumer);
+
+	/**
+	 * Folds the result of every promise into {@code identity} as soon as it is available, in completion order.
+	 * Only the accumulated value is retained, no matter how many promises are folded. The reducer is never invoked
+	 * concurrently.
+	 *
+	 * @param promises the promises to fold. Must be non-null and not empty
+	 * @param identity the initial accumulated value
+	 * @param reducer  folds a result into the accumulated value. Must not be null
+	 * @param <D>      the type of the results
+	 * @param <R>      the type of the accumulated value
+	 *
+	 * @return a {@link Promise} that rejects as soon as the first of the promises is rejected or the reducer throws,
+	 * or resolves with the accumulated value once every result was folded in.
+	 *
+	 * @since 2.1
+	 */
+	<D, R> Promise<R, OneReject<?>, Void> reduce(Iterable<? extends Promise<? extends D, ?, ?>> promises, R identity, Reducer<R, ? super D> reducer);
+
+	/**
+	 * Creates a {@link Promise} that signals {@code done} as soon as {@code count} of the given promises resolve,
+	 * and signals {@code fail} as soon as so many of them have been rejected that {@code count} resolutions are no
+	 * longer possible.
+	 * <p>
+	 * The resolved {@link MultipleResults} holds exactly {@code count} results in the order they arrived. The
+	 * rejected {@link AllValues} holds the rejections in the order they arrived. Each entry retains the index of the
+	 * promise it belongs to.
+	 *
+	 * @param count    the number of promises that have to resolve. Must be between 1 and the number of promises
+	 * @param promises the promises to observe. Must not be null
+	 *
+	 * @return a composite {@link Promise} that resolves with the first {@code count} results.
+	 *
+	 * @throws IllegalArgumentException if {@code count} is out of range
+	 * @since 2.1
+	 */
+	Promise<MultipleResults, AllValues, MasterProgress> some(int count, Promise<?, ?, ?>... promises);
+
+	/**
+	 * Creates a {@link Promise} that signals {@code done} as soon as {@code count} of the given tasks resolve,
+	 * and signals {@code fail} as soon as {@code count} resolutions are no longer possible.
+	 * Every task is submitted for execution. Tasks that are still pending once the outcome is known are cancelled.
+	 *
+	 * @param count the number of tasks that have to resolve. Must be between 1 and the number of tasks
+	 * @param tasks the tasks to be executed. Must not be null
+	 *
+	 * @return a composite {@link Promise} that resolves with the first {@code count} results.
+	 *
+	 * @throws IllegalArgumentException if {@code count} is out of range
+	 * @see #some(int, Promise[])
+	 * @since 2.1
+	 */
+	Promise<MultipleResults, AllValues, MasterProgress> some(int count, DeferredFutureTask<?, ?>... tasks);
+
+	/**
+	 * Creates a {@link Promise} that signals {@code done} as soon as {@code count} of the given callables resolve,
+	 * and signals {@code fail} as soon as {@code count} resolutions are no longer possible.
+	 * Wraps each {@code callable} with {@link DeferredFutureTask}. Tasks that are still pending once the outcome
+	 * is known are cancelled.
+	 *
+	 * @param count     the number of callables that have to resolve. Must be between 1 and the number of callables
+	 * @param callables the tasks to be executed. Must not be null
+	 *
+	 * @return a composite {@link Promise} that resolves with the first {@code count} results.
+	 *
+	 * @throws IllegalArgumentException if {@code count} is out of range
+	 * @see #some(int, Promise[])
+	 * @since 2.1
+	 */
+	Promise<MultipleResults, AllValues, MasterProgress> some(int count, Callable<?>... callables);
+
+	/**
+	 * Accept an iterable of a variety of different object types and signals {@code done} as soon as {@code count}
+	 * of them resolve. Items that are not a {@link Promise} are converted into a {@link DeferredFutureTask},
+	 * submitted for execution and cancelled when still pending once the outcome is known.
+	 *
+	 * @param count    the number of items that have to resolve. Must be between 1 and the number of items
+	 * @param iterable the source of tasks. Must be non-null and not empty. Every item must be convertible to {@link Promise}
+	 *
+	 * @return a composite {@link Promise} that resolves with the first {@code count} results.
+	 *
+	 * @throws IllegalArgumentException if any item in iterable cannot be converted to a {@link Promise}
+	 *                                  or if {@code count} is out of range
+	 * @see #some(int, Promise[])
+	 * @since 2.1
+	 */
+	Promise<MultipleResults, AllValues, MasterProgress> some(int count, Iterable<?> iterable);
+
+	/**
+	 * Creates a {@link Promise} that signals {@code done} when the first of the given promises resolves, ignoring
+	 * rejections unless all of them are rejected. Equivalent to {@code some(1, promises)} unwrapped to its only result.
+	 *
+	 * @param promises the promises to observe. Must not be null nor empty
+	 *
+	 * @return a composite {@link Promise} that resolves with the first result, or rejects with all rejections.
+	 *
+	 * @see #some(int, Promise[])
+	 * @since 2.1
+	 */
+	Promise<OneResult<?>, AllValues, MasterProgress> any(Promise<?, ?, ?>... promises);
+
+	/**
+	 * Creates a {@link Promise} that signals {@code done} when the first of the given tasks resolves, ignoring
+	 * rejections unless all of them are rejected. The remaining tasks are cancelled.
+	 *
+	 * @param tasks the tasks to be executed. Must not be null nor empty
+	 *
+	 * @return a composite {@link Promise} that resolves with the first result, or rejects with all rejections.
+	 *
+	 * @see #some(int, DeferredFutureTask[])
+	 * @since 2.1
+	 */
+	Promise<OneResult<?>, AllValues, MasterProgress> any(DeferredFutureTask<?, ?>... tasks);
+
+	/**
+	 * Creates a {@link Promise} that signals {@code done} when the first of the given callables resolves, ignoring
+	 * rejections unless all of them are rejected. The remaining tasks are cancelled.
+	 *
+	 * @param callables the tasks to be executed. Must not be null nor empty
+	 *
+	 * @return a composite {@link Promise} that resolves with the first result, or rejects with all rejections.
+	 *
+	 * @see #some(int, Callable[])
+	 * @since 2.1
+	 */
+	Promise<OneResult<?>, AllValues, MasterProgress> any(Callable<?>... callables);
+
+	/**
+	 * Accept an iterable of a variety of different object types and signals {@code done} when the first of them
+	 * resolves, ignoring rejections unless all of them are rejected.
+	 *
+	 * @param iterable the source of tasks. Must be non-null and not empty. Every item must be convertible to {@link Promise}
+	 *
+	 * @return a composite {@link Promise} that resolves with the first result, or rejects with all rejections.
+	 *
+	 * @throws IllegalArgumentException if any item in iterable cannot be converted to a {@link Promise}
+	 * @see #some(int, Iterable)
+	 * @since 2.1
+	 */
+	Promise<OneResult<?>, AllValues, MasterProgress> any(Iterable<?> iterable);
+
+	/**
+	 * Creates a {@link Promise} that mirrors the given promise, unless it does not settle within {@code timeout},
+	 * in which case it rejects with a {@link DeferredTimeoutException}. If the given promise implements
+	 * {@link CancellationHandler}, it is notified when the timeout expires.
+	 * <p>
+	 * Timeouts are tracked by a shared {@link org.jdeferred2.impl.HashedWheelTimer}, hence no thread is blocked
+	 * while waiting and the timeout expires with a granularity of one timer tick.
+	 *
+	 * @param promise the promise to watch. Must not be null
+	 * @param timeout the maximum time to wait. Must not be negative
+	 * @param unit    the unit of {@code timeout}. Must not be null
+	 *
+	 * @return a {@link Promise} that settles like the given promise or rejects with a {@link DeferredTimeoutException}
+	 *
+	 * @since 2.1
+	 */
+	<D, P> Promise<D, Throwable, P> withTimeout(Promise<D, ? extends Throwable, P> promise, long timeout, TimeUnit unit);
+
+	/**
+	 * Submits the given task and creates a {@link Promise} that rejects with a {@link DeferredTimeoutException} if the
+	 * task does not complete within {@code timeout}. The task is cancelled when the timeout expires.
+	 *
+	 * @param task    the task to execute. Must not be null
+	 * @param timeout the maximum time to wait. Must not be negative
+	 * @param unit    the unit of {@code timeout}. Must not be null
+	 *
+	 * @return a {@link Promise} that settles like the task or rejects with a {@link DeferredTimeoutException}
+	 *
+	 * @see #withTimeout(Promise, long, TimeUnit)
+	 * @since 2.1
+	 */
+	<D, P> Promise<D, Throwable, P> withTimeout(DeferredFutureTask<D, P> task, long timeout, TimeUnit unit);
+
+	/**
+	 * Attaches {@code deadline} to the given promise: the returned {@link Promise} rejects with a
+	 * {@link DeferredTimeoutException} once the deadline expires, like {@link #withTimeout(Promise, long, TimeUnit)},
+	 * and every {@code pipe(...)} or {@code filter(...)} stage derived from it inherits the deadline.
+	 * <p>
+	 * While a stage runs, its deadline is the {@link Deadline#current() current} one, and tasks created by this
+	 * manager capture it; a stage or task whose deadline has expired rejects with a
+	 * {@link DeferredTimeoutException} instead of starting its work. If a deadline is current already, the earlier of
+	 * both applies.
+	 *
+	 * @param promise  the promise to attach the deadline to. Must not be null
+	 * @param deadline the deadline. Must not be null
+	 *
+	 * @return a {@link Promise} that settles like the given promise or rejects with a {@link DeferredTimeoutException}
+	 *
+	 * @since 2.1
+	 */
+	<D, P> Promise<D, Throwable, P> withDeadline(Promise<D, ? extends Throwable, P> promise, Deadline deadline);
+
+	/**
+	 * Calls {@code callable} until it succeeds or {@code retryPolicy} gives up. Every attempt runs as a separate task,
+	 * and the backoff between attempts is awaited on a timer, so no thread is blocked while waiting. The number of
+	 * each retry, starting at 2 for the second attempt, is notified as progress when it starts.
+	 * <p>
+	 * The returned {@link Promise} implements {@link CancellationHandler}: cancelling it stops any further attempt.
+	 *
+	 * @param callable    the task to attempt. Must not be null, and must be safe to call repeatedly
+	 * @param retryPolicy how often and how fast to retry. Must not be null
+	 *
+	 * @return a {@link Promise} that resolves with the first successful result, or rejects with the last failure
+	 *
+	 * @see RetryPolicy#DEFAULT
+	 * @since 2.1
+	 */
+	<D> Promise<D, Throwable, Integer> retry(Callable<D> callable, RetryPolicy retryPolicy);
+
+	/**
+	 * Calls {@code callable} and, whenever no attempt has succeeded after {@code delay}, speculatively launches
+	 * another attempt, up to {@code maxHedges} additional ones. The first attempt to succeed wins and the others are
+	 * cancelled. A failed attempt does not end the race while hedges remain; if every launched attempt has failed,
+	 * the next one is launched without waiting. The number of each hedge is notified as progress.
+	 * <p>
+	 * The returned {@link Promise} implements {@link CancellationHandler}: cancelling it cancels every attempt.
+	 *
+	 * @param callable  the task to attempt. Must not be null, and must be safe to call repeatedly and concurrently
+	 * @param delay     the time to wait for an attempt before launching the next one. Must not be negative
+	 * @param unit      the unit of {@code delay}. Must not be null
+	 * @param maxHedges the maximum number of additional attempts. Must not be negative
+	 *
+	 * @return a {@link Promise} that resolves with the first successful result, or rejects with the last failure
+	 *
+	 * @since 2.1
+	 */
+	<D> Promise<D, Throwable, Integer> hedge(Callable<D> callable, long delay, TimeUnit unit, int maxHedges);
+
+	/**
+	 * Adaptive variant of {@link #hedge(Callable, long, TimeUnit, int)}: the delay before each hedge is read from
+	 * {@code latency}, and the latency of every completed attempt is recorded to it. A first attempt cut short by a
+	 * faster hedge still counts with the time it ran, while cancelled hedges do not count. Sharing one
+	 * {@link LatencyPercentile} across calls to the same service hedges only the calls slower than, e.g., its p95.
+	 *
+	 * @param callable  the task to attempt. Must not be null, and must be safe to call repeatedly and concurrently
+	 * @param latency   the source of the hedge delay. Must not be null
+	 * @param maxHedges the maximum number of additional attempts. Must not be negative
+	 *
+	 * @return a {@link Promise} that resolves with the first successful result, or rejects with the last failure
+	 *
+	 * @since 2.1
+	 */
+	<D> Promise<D, Throwable, Integer> hedge(Callable<D> callable, LatencyPercentile latency, int maxHedges);
+
+	/**
+	 * Submits {@code callable} once {@code delay} has elapsed. The delay is awaited on a shared timer, so no thread
+	 * is blocked while waiting.
+	 * <p>
+	 * The returned {@link Promise} implements {@link CancellationHandler}: cancelling it before the delay elapsed
+	 * prevents the submission.
+	 *
+	 * @param callable the task to execute. Must not be null
+	 * @param delay    the time to wait before submitting the task. Must not be negative
+	 * @param unit     the unit of {@code delay}. Must not be null
+	 *
+	 * @return a {@link Promise} that settles with the outcome of the task
+	 *
+	 * @since 2.1
+	 */
+	<D> Promise<D, Throwable, Void> schedule(Callable<D> callable, long delay, TimeUnit unit);
+
+	/**
+	 * Submits {@code callable} after {@code initialDelay}, then every {@code period}, and notifies every result as
+	 * progress. Runs never overlap: a run that takes longer than the period delays the next one. Delays are awaited
+	 * on a shared timer, so no thread is blocked while waiting.
+	 * <p>
+	 * The schedule ends when a run fails, which rejects the returned {@link Promise}. The returned {@link Promise}
+	 * implements {@link CancellationHandler}: cancelling it ends the schedule and rejects it with a
+	 * {@link java.util.concurrent.CancellationException}. It never resolves.
+	 *
+	 * @param callable     the task to execute. Must not be null, and must be safe to call repeatedly
+	 * @param initialDelay the time to wait before the first run. Must not be negative
+	 * @param period       the time between the start of two runs. Must be positive
+	 * @param unit         the unit of {@code initialDelay} and {@code period}. Must not be null
+	 *
+	 * @return a {@link Promise} that notifies the result of every run
+	 *
+	 * @since 2.1
+	 */
+	<D> Promise<Void, Throwable, D> scheduleAtFixedRate(Callable<D> callable, long initialDelay, long period, TimeUnit unit);
+
+	/**
+	 * Submits {@code check} repeatedly until its result satisfies {@code predicate}, waiting {@code interval} between
+	 * the end of one check and the start of the next. The wait is awaited on a shared timer, so no thread is blocked
+	 * between checks. The number of every unsatisfying check is notified as progress.
+	 * <p>
+	 * The returned {@link Promise} implements {@link CancellationHandler}: cancelling it ends the polling.
+	 *
+	 * @param check     the task that fetches the current state. Must not be null, and must be safe to call repeatedly
+	 * @param predicate decides whether a result is final. Must not be null
+	 * @param interval  the time to wait between checks. Must not be negative
+	 * @param timeout   the maximum time to poll for. Must not be negative
+	 * @param unit      the unit of {@code interval} and {@code timeout}. Must not be null
+	 *
+	 * @return a {@link Promise} that resolves with the first result satisfying the predicate, or rejects with the
+	 * failure of a check, or with a {@link DeferredTimeoutException} once the timeout expires
+	 *
+	 * @since 2.1
+	 */
+	<D> Promise<D, Throwable, Integer> pollUntil(Callable<D> check, DoneFilter<? super D, Boolean> predicate, long interval, long timeout, TimeUnit unit);
+
 	/**
 	 * A convenience method create a {@link Promise} that immediately resolves to a value.
 	 *
@@ -15,6 +15,7 @@
  */
 package org.jdeferred2;
 
+import org.jdeferred2.DeferredManager.CancellationPolicy;
 import org.jdeferred2.DeferredManager.StartPolicy;
 import org.jdeferred2.impl.DeferredObject;
 
@@ -30,13 +31,26 @@ import org.jdeferred2.impl.DeferredObject;
 public abstract class DeferredRunnable<P> implements Runnable {
 	private final Deferred<Void, Throwable, P> deferred = new DeferredObject<Void, Throwable, P>();
 	private final StartPolicy startPolicy;
+	private final CancellationPolicy cancellationPolicy;
+	private volatile boolean cancellationRequested;
 
 	public DeferredRunnable() {
-		this.startPolicy = StartPolicy.DEFAULT;
+		this(StartPolicy.DEFAULT);
 	}
 
 	public DeferredRunnable(StartPolicy startPolicy) {
+		this(startPolicy, CancellationPolicy.INTERRUPT);
+	}
+
+	/**
+	 * @param startPolicy        the startPolicy to use
+	 * @param cancellationPolicy the cancellationPolicy to use. will be set to INTERRUPT if {@code null}.
+	 *
+	 * @since 2.1
+	 */
+	public DeferredRunnable(StartPolicy startPolicy, CancellationPolicy cancellationPolicy) {
 		this.startPolicy = startPolicy;
+		this.cancellationPolicy = cancellationPolicy != null ? cancellationPolicy : CancellationPolicy.INTERRUPT;
 	}
 
 	/**
@@ -55,4 +69,64 @@ public abstract class DeferredRunnable<P> implements Runnable {
 	public StartPolicy getStartPolicy() {
 		return startPolicy;
 	}
+
+	/**
+	 * @since 2.1
+	 */
+	public CancellationPolicy getCancellationPolicy() {
+		return cancellationPolicy;
+	}
+
+	/**
+	 * Returns whether the task running this runnable has been cancelled. Long-running work should check this at
+	 * safe points and return early, in particular under {@link CancellationPolicy#COOPERATIVE}.
+	 *
+	 * @return {@code true} once cancellation has been requested
+	 *
+	 * @since 2.1
+	 */
+	protected boolean isCancellationRequested() {
+		return cancellationRequested;
+	}
+
+	void requestCancellation() {
+		cancellationRequested = true;
+	}
+
+	/**
+	 * Returns the deadline of this task while it runs, so that long-running work can check the remaining budget
+	 * or pass it on.
+	 *
+	 * @return the deadline, or {@code null} if this task has none or is called outside of {@link #run()}
+	 *
+	 * @since 2.1
+	 */
+	protected Deadline getDeadline() {
+		return Deadline.current();
+	}
+
+	/**
+	 * Returns the name of the bulkhead this task should run in, for managers that isolate the tasks of each
+	 * dependency such as {@link org.jdeferred2.limit.BulkheadDeferredManager}. Override it to tag the task.
+	 *
+	 * @return the name of the bulkhead, or {@code null} to run on the manager's default executor
+	 *
+	 * @since 2.1
+	 */
+	public String getBulkhead() {
+		return null;
+	}
+
+	/**
+	 * Returns the priority of this task, for managers that order pending tasks such as
+	 * {@link org.jdeferred2.limit.PriorityDeferredManager}. Higher values run first. Override it to prioritize the
+	 * task.
+	 *
+	 * @return the priority, {@code 0} by default
+	 *
+	 * @since 2.1
+	 */
+	public int getPriority() {
+		return 0;
+	}
 }
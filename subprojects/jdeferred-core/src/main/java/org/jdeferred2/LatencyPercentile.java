@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks a percentile of recently observed latencies over a sliding window of samples, e.g. to derive the delay
+ * of hedged requests from their own p95 latency.
+ * <p>
+ * Samples are kept in a fixed-size ring buffer. The percentile is recomputed lazily, at most once per
+ * {@code windowSize / 8} new samples, so reading it is usually a field access. Until the window holds enough
+ * samples, the initial value is reported.
+ *
+ * @see DeferredManager#hedge(java.util.concurrent.Callable, LatencyPercentile, int)
+ * @since 2.1
+ */
+public class LatencyPercentile {
+	private final double percentile;
+	private final long[] samples;
+	private final int minSamples;
+	private final int recomputeInterval;
+	private final long initialNanos;
+
+	// guarded by this
+	private int next;
+	private int count;
+	private int sinceRecompute;
+	private boolean computed;
+	private long cachedNanos;
+
+	/**
+	 * @param percentile the percentile to track, between 0 (exclusive) and 100 (inclusive), e.g. 95
+	 * @param windowSize the number of most recent samples taken into account. Must be positive
+	 * @param initial    the value to report until enough samples have been recorded. Must not be negative
+	 * @param unit       the unit of {@code initial}. Must not be null
+	 */
+	public LatencyPercentile(double percentile, int windowSize, long initial, TimeUnit unit) {
+		if (!(percentile > 0.0d && percentile <= 100.0d)) {
+			throw new IllegalArgumentException("Argument 'percentile' must be between 0 and 100 but was " + percentile);
+		}
+		if (windowSize < 1) {
+			throw new IllegalArgumentException("Argument 'windowSize' must be positive but was " + windowSize);
+		}
+		if (unit == null) {
+			throw new IllegalArgumentException("Argument 'unit' must not be null");
+		}
+		if (initial < 0) {
+			throw new IllegalArgumentException("Argument 'initial' must not be negative but was " + initial);
+		}
+
+		this.percentile = percentile;
+		this.samples = new long[windowSize];
+		this.minSamples = Math.max(1, Math.min(windowSize, (int) Math.ceil(100.0d / (100.0d - Math.min(percentile, 99.0d)))));
+		this.recomputeInterval = Math.max(1, windowSize / 8);
+		this.initialNanos = unit.toNanos(initial);
+	}
+
+	/**
+	 * Records an observed latency.
+	 */
+	public synchronized void record(long latency, TimeUnit unit) {
+		samples[next] = unit.toNanos(latency);
+		next = (next + 1) % samples.length;
+		if (count < samples.length) {
+			count++;
+		}
+		sinceRecompute++;
+	}
+
+	/**
+	 * @return the tracked percentile of the recorded latencies, in nanoseconds
+	 */
+	public synchronized long getNanos() {
+		if (count < minSamples) {
+			return initialNanos;
+		}
+
+		if (!computed || sinceRecompute >= recomputeInterval) {
+			long[] sorted = Arrays.copyOf(samples, count);
+			Arrays.sort(sorted);
+			int rank = (int) Math.ceil(percentile / 100.0d * count) - 1;
+			cachedNanos = sorted[Math.max(0, Math.min(count - 1, rank))];
+			sinceRecompute = 0;
+			computed = true;
+		}
+		return cachedNanos;
+	}
+
+	public double getPercentile() {
+		return percentile;
+	}
+}
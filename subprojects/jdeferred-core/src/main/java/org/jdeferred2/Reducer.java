@@ -0,0 +1,30 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2;
+
+/**
+ * Folds a resolved value into an accumulated value. Reducers are invoked one value at a time, never concurrently,
+ * so they may safely mutate and return the accumulated value.
+ *
+ * @param <R> Type of the accumulated value
+ * @param <D> Type of the folded values
+ *
+ * @see DeferredManager#reduce(Iterable, Object, Reducer)
+ * @since 2.1
+ */
+public interface Reducer<R, D> {
+	R reduce(final R accumulated, final D value);
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes how often and how fast a failed task is retried by {@link DeferredManager#retry(java.util.concurrent.Callable, RetryPolicy)}.
+ * <p>
+ * The delay before attempt {@code n + 1} is {@code backoff * multiplier^(n - 1)}, capped at {@code maxBackoff}, of
+ * which a random fraction of up to {@code jitter} is subtracted to spread out retries of concurrent callers.
+ * <p>
+ * Instances are immutable; every {@code with} method returns a modified copy.
+ *
+ * @since 2.1
+ */
+public final class RetryPolicy {
+	private static final Random RANDOM = new Random();
+
+	private static final FailFilter<Throwable, Boolean> RETRY_ALWAYS = new FailFilter<Throwable, Boolean>() {
+		@Override
+		public Boolean filterFail(Throwable result) {
+			return Boolean.TRUE;
+		}
+	};
+
+	/**
+	 * 3 attempts, 100 ms initial backoff doubling up to 10 s, 50% jitter, retrying every failure.
+	 */
+	public static final RetryPolicy DEFAULT = new RetryPolicy(3, TimeUnit.MILLISECONDS.toNanos(100), 2.0d,
+		TimeUnit.SECONDS.toNanos(10), 0.5d, RETRY_ALWAYS);
+
+	private final int maxAttempts;
+	private final long backoffNanos;
+	private final double multiplier;
+	private final long maxBackoffNanos;
+	private final double jitter;
+	private final FailFilter<Throwable, Boolean> retryCondition;
+
+	private RetryPolicy(int maxAttempts, long backoffNanos, double multiplier, long maxBackoffNanos, double jitter,
+	                    FailFilter<Throwable, Boolean> retryCondition) {
+		this.maxAttempts = maxAttempts;
+		this.backoffNanos = backoffNanos;
+		this.multiplier = multiplier;
+		this.maxBackoffNanos = maxBackoffNanos;
+		this.jitter = jitter;
+		this.retryCondition = retryCondition;
+	}
+
+	/**
+	 * @param maxAttempts the total number of attempts, including the first one. Must be positive
+	 */
+	public RetryPolicy withMaxAttempts(int maxAttempts) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("Argument 'maxAttempts' must be positive but was " + maxAttempts);
+		}
+		return new RetryPolicy(maxAttempts, backoffNanos, multiplier, maxBackoffNanos, jitter, retryCondition);
+	}
+
+	/**
+	 * @param backoff the delay before the second attempt. Must not be negative
+	 * @param unit    the unit of {@code backoff}. Must not be null
+	 */
+	public RetryPolicy withBackoff(long backoff, TimeUnit unit) {
+		return new RetryPolicy(maxAttempts, toNanos(backoff, unit, "backoff"), multiplier, maxBackoffNanos, jitter, retryCondition);
+	}
+
+	/**
+	 * @param multiplier the factor applied to the delay after every attempt. Must be at least 1
+	 */
+	public RetryPolicy withMultiplier(double multiplier) {
+		if (!(multiplier >= 1.0d)) {
+			throw new IllegalArgumentException("Argument 'multiplier' must be at least 1 but was " + multiplier);
+		}
+		return new RetryPolicy(maxAttempts, backoffNanos, multiplier, maxBackoffNanos, jitter, retryCondition);
+	}
+
+	/**
+	 * @param maxBackoff the upper bound of the delay between attempts. Must not be negative
+	 * @param unit       the unit of {@code maxBackoff}. Must not be null
+	 */
+	public RetryPolicy withMaxBackoff(long maxBackoff, TimeUnit unit) {
+		return new RetryPolicy(maxAttempts, backoffNanos, multiplier, toNanos(maxBackoff, unit, "maxBackoff"), jitter, retryCondition);
+	}
+
+	/**
+	 * @param jitter the maximum fraction of the delay that is randomly subtracted. Must be between 0 and 1
+	 */
+	public RetryPolicy withJitter(double jitter) {
+		if (!(jitter >= 0.0d && jitter <= 1.0d)) {
+			throw new IllegalArgumentException("Argument 'jitter' must be between 0 and 1 but was " + jitter);
+		}
+		return new RetryPolicy(maxAttempts, backoffNanos, multiplier, maxBackoffNanos, jitter, retryCondition);
+	}
+
+	/**
+	 * @param retryCondition decides whether a failure is worth another attempt. Must not be null
+	 */
+	public RetryPolicy withRetryCondition(FailFilter<Throwable, Boolean> retryCondition) {
+		if (retryCondition == null) {
+			throw new IllegalArgumentException("Argument 'retryCondition' must not be null");
+		}
+		return new RetryPolicy(maxAttempts, backoffNanos, multiplier, maxBackoffNanos, jitter, retryCondition);
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * @return {@code true} if another attempt should be made after the given attempt failed with {@code failure}
+	 */
+	public boolean shouldRetry(int attempt, Throwable failure) {
+		return attempt < maxAttempts && Boolean.TRUE.equals(retryCondition.filterFail(failure));
+	}
+
+	/**
+	 * @param attempt the number of the attempt that just failed, starting at 1
+	 *
+	 * @return the delay in nanoseconds before the next attempt, including jitter
+	 */
+	public long getDelayNanos(int attempt) {
+		double delay = backoffNanos;
+		for (int i = 1; i < attempt && delay < maxBackoffNanos; i++) {
+			delay *= multiplier;
+		}
+		delay = Math.min(delay, maxBackoffNanos);
+
+		if (jitter > 0.0d) {
+			delay -= delay * jitter * RANDOM.nextDouble();
+		}
+		return (long) delay;
+	}
+
+	private static long toNanos(long duration, TimeUnit unit, String name) {
+		if (unit == null) {
+			throw new IllegalArgumentException("Argument 'unit' must not be null");
+		}
+		if (duration < 0) {
+			throw new IllegalArgumentException("Argument '" + name + "' must not be negative but was " + duration);
+		}
+		return unit.toNanos(duration);
+	}
+
+	@Override
+	public String toString() {
+		return "RetryPolicy [maxAttempts=" + maxAttempts
+			+ ", backoffNanos=" + backoffNanos
+			+ ", multiplier=" + multiplier
+			+ ", maxBackoffNanos=" + maxBackoffNanos
+			+ ", jitter=" + jitter + "]";
+	}
+}
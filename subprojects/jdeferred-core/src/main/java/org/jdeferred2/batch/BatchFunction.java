@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.batch;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the values of many keys in a single call, on behalf of a {@link BatchLoader}.
+ *
+ * @param <K> Type of the keys
+ * @param <V> Type of the values
+ *
+ * @since 2.1
+ */
+public interface BatchFunction<K, V> {
+	/**
+	 * @param keys the distinct keys to load, in the order they were first requested. Never empty
+	 *
+	 * @return the value of every key. A key without a mapping is rejected; a key mapped to {@code null} resolves
+	 * with {@code null}
+	 *
+	 * @throws Exception if the batch cannot be loaded, which rejects every key in it
+	 */
+	Map<K, V> load(List<K> keys) throws Exception;
+}
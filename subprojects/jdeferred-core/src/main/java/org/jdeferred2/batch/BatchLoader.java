@@ -0,0 +1,230 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.batch;
+
+import org.jdeferred2.DeferredCallable;
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.DeferredManager;
+import org.jdeferred2.DeferredManager.StartPolicy;
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.impl.DeferredObject;
+import org.jdeferred2.impl.FilteredPromise;
+import org.jdeferred2.impl.GlobalConfiguration;
+import org.jdeferred2.impl.HashedWheelTimer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects single-key lookups and loads them in batches through a {@link BatchFunction}.
+ * <p>
+ * {@link #load(Object)} returns a {@link Promise} right away and queues the key. The queued keys are dispatched as
+ * one batch, submitted through the {@link DeferredManager}, as soon as one of the following happens:
+ * <ul>
+ * <li>{@code maxBatchSize} distinct keys are queued;</li>
+ * <li>the window, if any, has elapsed since the first key was queued;</li>
+ * <li>{@link #dispatch()} is called, for example at the end of a request or event-loop tick.</li>
+ * </ul>
+ * A key requested several times before its batch is dispatched is loaded once. Every caller gets its own promise,
+ * so cancelling it does not affect the other callers of that key.
+ *
+ * @param <K> Type of the keys
+ * @param <V> Type of the values
+ *
+ * @since 2.1
+ */
+public class BatchLoader<K, V> {
+	private final DeferredManager deferredManager;
+	private final BatchFunction<K, V> batchFunction;
+	private final int maxBatchSize;
+	private final long windowNanos;
+
+	// guarded by this
+	private Map<K, DeferredObject<V, Throwable, Void>> queued = new LinkedHashMap<K, DeferredObject<V, Throwable, Void>>();
+	private HashedWheelTimer.Timeout window;
+
+	/**
+	 * Creates a loader that dispatches by size or on {@link #dispatch()} only.
+	 *
+	 * @param deferredManager the manager that runs the batches. Must not be null
+	 * @param batchFunction   the function that loads a batch. Must not be null
+	 * @param maxBatchSize    the number of distinct keys that triggers a dispatch. Must be positive
+	 */
+	public BatchLoader(DeferredManager deferredManager, BatchFunction<K, V> batchFunction, int maxBatchSize) {
+		this(deferredManager, batchFunction, maxBatchSize, 0L, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param deferredManager the manager that runs the batches. Must not be null
+	 * @param batchFunction   the function that loads a batch. Must not be null
+	 * @param maxBatchSize    the number of distinct keys that triggers a dispatch. Must be positive
+	 * @param window          the time after which queued keys are dispatched, or {@code 0} for no window. Must not
+	 *                        be negative
+	 * @param unit            the unit of {@code window}. Must not be null
+	 */
+	public BatchLoader(DeferredManager deferredManager, BatchFunction<K, V> batchFunction, int maxBatchSize,
+	                   long window, TimeUnit unit) {
+		assertNotNull(deferredManager, "deferredManager");
+		assertNotNull(batchFunction, "batchFunction");
+		assertNotNull(unit, "unit");
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("Argument 'maxBatchSize' must be positive but was " + maxBatchSize);
+		}
+		if (window < 0) {
+			throw new IllegalArgumentException("Argument 'window' must not be negative but was " + window);
+		}
+
+		this.deferredManager = deferredManager;
+		this.batchFunction = batchFunction;
+		this.maxBatchSize = maxBatchSize;
+		this.windowNanos = unit.toNanos(window);
+	}
+
+	/**
+	 * Queues {@code key} for the next batch.
+	 *
+	 * @param key the key to load. Must not be null
+	 *
+	 * @return a {@link Promise} that settles once the batch containing {@code key} has been loaded
+	 */
+	public Promise<V, Throwable, Void> load(K key) {
+		assertNotNull(key, "key");
+
+		DeferredObject<V, Throwable, Void> deferred;
+		Map<K, DeferredObject<V, Throwable, Void>> full = null;
+		synchronized (this) {
+			deferred = queued.get(key);
+			if (deferred == null) {
+				deferred = new DeferredObject<V, Throwable, Void>();
+				queued.put(key, deferred);
+				if (queued.size() >= maxBatchSize) {
+					full = takeQueued();
+				} else if (queued.size() == 1 && windowNanos > 0) {
+					window = getTimer().newTimeout(new Runnable() {
+						@Override
+						public void run() {
+							dispatch();
+						}
+					}, windowNanos, TimeUnit.NANOSECONDS);
+				}
+			}
+		}
+
+		Promise<V, Throwable, Void> promise = new FilteredPromise<V, Throwable, Void, V, Throwable, Void>(deferred, null, null, null);
+		if (full != null) {
+			submit(full);
+		}
+		return promise;
+	}
+
+	/**
+	 * Dispatches the queued keys as a batch right away, if there are any.
+	 */
+	public void dispatch() {
+		Map<K, DeferredObject<V, Throwable, Void>> batch;
+		synchronized (this) {
+			if (queued.isEmpty()) {
+				return;
+			}
+			batch = takeQueued();
+		}
+		submit(batch);
+	}
+
+	/**
+	 * @return the number of distinct keys waiting for the next batch
+	 */
+	public synchronized int getQueuedCount() {
+		return queued.size();
+	}
+
+	/**
+	 * Returns the timer that tracks the batch window. Defaults to {@link GlobalConfiguration#getGlobalTimer()}.
+	 */
+	protected HashedWheelTimer getTimer() {
+		return GlobalConfiguration.getGlobalTimer();
+	}
+
+	// guarded by this
+	private Map<K, DeferredObject<V, Throwable, Void>> takeQueued() {
+		if (window != null) {
+			window.cancel();
+			window = null;
+		}
+		Map<K, DeferredObject<V, Throwable, Void>> batch = queued;
+		queued = new LinkedHashMap<K, DeferredObject<V, Throwable, Void>>();
+		return batch;
+	}
+
+	private void submit(final Map<K, DeferredObject<V, Throwable, Void>> batch) {
+		final List<K> keys = new ArrayList<K>(batch.keySet());
+		DeferredFutureTask<Map<K, V>, Void> task = new DeferredFutureTask<Map<K, V>, Void>(new DeferredCallable<Map<K, V>, Void>(StartPolicy.AUTO) {
+			@Override
+			public Map<K, V> call() throws Exception {
+				return batchFunction.load(keys);
+			}
+		});
+
+		deferredManager.when(task).done(new DoneCallback<Map<K, V>>() {
+			@Override
+			public void onDone(Map<K, V> results) {
+				for (Map.Entry<K, DeferredObject<V, Throwable, Void>> entry : batch.entrySet()) {
+					if (results != null && results.containsKey(entry.getKey())) {
+						resolveIfPending(entry.getValue(), results.get(entry.getKey()));
+					} else {
+						rejectIfPending(entry.getValue(), new NoSuchElementException("Batch result has no value for key " + entry.getKey()));
+					}
+				}
+			}
+		}).fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable failure) {
+				for (DeferredObject<V, Throwable, Void> deferred : batch.values()) {
+					rejectIfPending(deferred, failure);
+				}
+			}
+		});
+	}
+
+	// a key's deferred is cancelled once every caller waiting on it has cancelled
+	private static <V> void resolveIfPending(DeferredObject<V, Throwable, Void> deferred, V value) {
+		synchronized (deferred) {
+			if (deferred.isPending()) {
+				deferred.resolve(value);
+			}
+		}
+	}
+
+	private static <V> void rejectIfPending(DeferredObject<V, Throwable, Void> deferred, Throwable failure) {
+		synchronized (deferred) {
+			if (deferred.isPending()) {
+				deferred.reject(failure);
+			}
+		}
+	}
+
+	private static void assertNotNull(Object object, String name) {
+		if (object == null) {
+			throw new IllegalArgumentException("Argument '" + name + "' must not be null");
+		}
+	}
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.cache;
+
+import org.jdeferred2.AlwaysCallback;
+import org.jdeferred2.DeferredCallable;
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.DeferredManager;
+import org.jdeferred2.DeferredManager.StartPolicy;
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.impl.FilteredPromise;
+import org.jdeferred2.impl.ObservingPromise;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of {@link Promise}s in front of a {@link CacheLoader}. Concurrent reads of a key that is not cached share
+ * a single load, submitted through a {@link DeferredManager}.
+ * <p>
+ * <ul>
+ * <li>A read of a loaded value returns its settled promise as is, without allocating.</li>
+ * <li>A read of a key being loaded returns a new promise that follows the load. Cancelling it only cancels the load
+ * once every reader waiting on it has cancelled.</li>
+ * <li>Failed loads are dropped, so the next read loads again.</li>
+ * <li>Values expire {@link CachePolicy#withExpireAfterWrite(long, java.util.concurrent.TimeUnit) after write}, and
+ * may be {@link CachePolicy#withRefreshAfterWrite(long, java.util.concurrent.TimeUnit) refreshed ahead}: the stale
+ * value keeps being served while it is reloaded in the background, and is kept if the reload fails.</li>
+ * <li>When the cache grows beyond its {@link CachePolicy#withMaximumSize(int) maximum size}, a CLOCK hand picks a
+ * victim among the loaded values, giving a second chance to every value read since the hand last passed it. The
+ * newly loaded value only replaces the victim if a {@link FrequencySketch} estimates it has been read at least as
+ * often recently; otherwise it is not cached. One-off reads therefore cannot flush out popular values.</li>
+ * </ul>
+ *
+ * @param <K> Type of the keys
+ * @param <V> Type of the values
+ *
+ * @since 2.1
+ */
+public class AsyncLoadingCache<K, V> {
+	private final DeferredManager deferredManager;
+	private final CacheLoader<K, V> loader;
+	private final CachePolicy policy;
+	private final ConcurrentMap<K, Entry<V>> entries = new ConcurrentHashMap<K, Entry<V>>();
+	private final FrequencySketch sketch;
+
+	private final Object evictionLock = new Object();
+	// guarded by evictionLock
+	private Iterator<Map.Entry<K, Entry<V>>> clockHand;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong loadSuccessCount = new AtomicLong();
+	private final AtomicLong loadFailureCount = new AtomicLong();
+	private final AtomicLong totalLoadTimeNanos = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	public AsyncLoadingCache(DeferredManager deferredManager, CacheLoader<K, V> loader) {
+		this(deferredManager, loader, CachePolicy.DEFAULT);
+	}
+
+	public AsyncLoadingCache(DeferredManager deferredManager, CacheLoader<K, V> loader, CachePolicy policy) {
+		assertNotNull(deferredManager, "deferredManager");
+		assertNotNull(loader, "loader");
+		assertNotNull(policy, "policy");
+		this.deferredManager = deferredManager;
+		this.loader = loader;
+		this.policy = policy;
+		this.sketch = policy.isBounded() ? new FrequencySketch(policy.getMaximumSize()) : null;
+	}
+
+	/**
+	 * Returns the value of {@code key}, loading it if it is not cached.
+	 *
+	 * @param key the key to read. Must not be null
+	 *
+	 * @return a {@link Promise} that resolves with the value, or rejects with the failure of the load
+	 */
+	public Promise<V, Throwable, Void> get(K key) {
+		assertNotNull(key, "key");
+		if (sketch != null) {
+			sketch.increment(key);
+		}
+
+		while (true) {
+			Entry<V> entry = entries.get(key);
+			if (entry != null) {
+				Promise<V, Throwable, Void> promise = read(key, entry);
+				if (promise != null) {
+					return promise;
+				}
+			}
+
+			Entry<V> loading = new Entry<V>(newLoadTask(key));
+			if (entries.putIfAbsent(key, loading) == null) {
+				missCount.incrementAndGet();
+				load(key, loading);
+				return readerViewOf(loading.task.promise());
+			}
+		}
+	}
+
+	/**
+	 * Returns the value of {@code key} if it is cached or being loaded, without starting a load.
+	 *
+	 * @param key the key to read. Must not be null
+	 *
+	 * @return a {@link Promise} for the value, or {@code null} if {@code key} is not cached
+	 */
+	public Promise<V, Throwable, Void> getIfPresent(K key) {
+		assertNotNull(key, "key");
+		Entry<V> entry = entries.get(key);
+		return entry != null ? read(key, entry) : null;
+	}
+
+	/**
+	 * Discards the value of {@code key}. A load in flight is not cancelled, but its result is not cached.
+	 */
+	public void invalidate(K key) {
+		assertNotNull(key, "key");
+		entries.remove(key);
+	}
+
+	/**
+	 * Discards every value.
+	 */
+	public void invalidateAll() {
+		entries.clear();
+	}
+
+	/**
+	 * @return the approximate number of cached and in-flight entries
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	public CachePolicy getPolicy() {
+		return policy;
+	}
+
+	public CacheStats stats() {
+		return new CacheStats(hitCount.get(), missCount.get(), loadSuccessCount.get(), loadFailureCount.get(),
+			totalLoadTimeNanos.get(), evictionCount.get());
+	}
+
+	/**
+	 * @return the promise to serve for {@code entry}, or {@code null} if it is stale and has been removed
+	 */
+	private Promise<V, Throwable, Void> read(K key, Entry<V> entry) {
+		Promise<V, Throwable, Void> promise = entry.task.promise();
+		if (promise.isPending()) {
+			hitCount.incrementAndGet();
+			return readerViewOf(promise);
+		}
+
+		if (promise.isRejected() || isExpired(entry, System.nanoTime())) {
+			entries.remove(key, entry);
+			return null;
+		}
+
+		hitCount.incrementAndGet();
+		if (!entry.referenced) {
+			entry.referenced = true;
+		}
+		if (isRefreshDue(entry) && entry.refreshing.compareAndSet(false, true)) {
+			refresh(key, entry);
+		}
+		return promise;
+	}
+
+	private DeferredFutureTask<V, Void> newLoadTask(final K key) {
+		return new DeferredFutureTask<V, Void>(new DeferredCallable<V, Void>(StartPolicy.AUTO) {
+			@Override
+			public V call() throws Exception {
+				return loader.load(key);
+			}
+		});
+	}
+
+	private void load(final K key, final Entry<V> entry) {
+		final long start = System.nanoTime();
+		ObservingPromise.of(entry.task.promise()).done(new DoneCallback<V>() {
+			@Override
+			public void onDone(V result) {
+				recordLoad(start, loadSuccessCount);
+				entry.writeNanos = System.nanoTime();
+				if (policy.isBounded() && entries.size() > policy.getMaximumSize()) {
+					evict(key, entry);
+				}
+			}
+		}).fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable result) {
+				recordLoad(start, loadFailureCount);
+				entries.remove(key, entry);
+			}
+		});
+		deferredManager.when(entry.task);
+	}
+
+	private void refresh(final K key, final Entry<V> stale) {
+		final Entry<V> fresh = new Entry<V>(newLoadTask(key));
+		final long start = System.nanoTime();
+		ObservingPromise.of(fresh.task.promise()).done(new DoneCallback<V>() {
+			@Override
+			public void onDone(V result) {
+				recordLoad(start, loadSuccessCount);
+				fresh.writeNanos = System.nanoTime();
+				fresh.referenced = stale.referenced;
+				entries.replace(key, stale, fresh);
+			}
+		}).fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable result) {
+				recordLoad(start, loadFailureCount);
+			}
+		}).always(new AlwaysCallback<V, Throwable>() {
+			@Override
+			public void onAlways(Promise.State state, V resolved, Throwable rejected) {
+				stale.refreshing.set(false);
+			}
+		});
+		deferredManager.when(fresh.task);
+	}
+
+	/**
+	 * Evicts values until the cache is back within its maximum size, or refuses {@code candidate} if it is read less
+	 * often than the value it would replace.
+	 */
+	private void evict(K candidateKey, Entry<V> candidate) {
+		synchronized (evictionLock) {
+			long now = System.nanoTime();
+			while (entries.size() > policy.getMaximumSize()) {
+				Map.Entry<K, Entry<V>> victim = nextVictim(candidate, now);
+				if (victim == null) {
+					return;
+				}
+
+				if (!isExpired(victim.getValue(), now)
+					&& sketch.frequency(candidateKey) < sketch.frequency(victim.getKey())) {
+					if (entries.remove(candidateKey, candidate)) {
+						evictionCount.incrementAndGet();
+					}
+					return;
+				}
+
+				if (entries.remove(victim.getKey(), victim.getValue())) {
+					evictionCount.incrementAndGet();
+				}
+			}
+		}
+	}
+
+	// guarded by evictionLock
+	private Map.Entry<K, Entry<V>> nextVictim(Entry<V> candidate, long now) {
+		// two full turns: the first one may only clear reference bits
+		int budget = 2 * entries.size() + 2;
+		while (budget-- > 0) {
+			if (clockHand == null || !clockHand.hasNext()) {
+				clockHand = entries.entrySet().iterator();
+				if (!clockHand.hasNext()) {
+					return null;
+				}
+			}
+
+			Map.Entry<K, Entry<V>> next = clockHand.next();
+			Entry<V> entry = next.getValue();
+			if (entry == candidate || entry.task.promise().isPending()) {
+				continue;
+			}
+			if (entry.referenced && !isExpired(entry, now)) {
+				entry.referenced = false;
+				continue;
+			}
+			return next;
+		}
+		return null;
+	}
+
+	private boolean isExpired(Entry<V> entry, long now) {
+		long writeNanos = entry.writeNanos;
+		return policy.getExpireAfterWriteNanos() > 0 && writeNanos != 0
+			&& now - writeNanos >= policy.getExpireAfterWriteNanos();
+	}
+
+	private boolean isRefreshDue(Entry<V> entry) {
+		long writeNanos = entry.writeNanos;
+		return policy.getRefreshAfterWriteNanos() > 0 && writeNanos != 0
+			&& System.nanoTime() - writeNanos >= policy.getRefreshAfterWriteNanos();
+	}
+
+	private void recordLoad(long start, AtomicLong outcome) {
+		totalLoadTimeNanos.addAndGet(System.nanoTime() - start);
+		outcome.incrementAndGet();
+	}
+
+	private static <V> Promise<V, Throwable, Void> readerViewOf(Promise<V, Throwable, Void> loading) {
+		return new FilteredPromise<V, Throwable, Void, V, Throwable, Void>(loading, null, null, null);
+	}
+
+	private static void assertNotNull(Object object, String name) {
+		if (object == null) {
+			throw new IllegalArgumentException("Argument '" + name + "' must not be null");
+		}
+	}
+
+	private static final class Entry<V> {
+		final DeferredFutureTask<V, Void> task;
+		final AtomicBoolean refreshing = new AtomicBoolean();
+		// 0 until the value is loaded
+		volatile long writeNanos;
+		volatile boolean referenced;
+
+		Entry(DeferredFutureTask<V, Void> task) {
+			this.task = task;
+		}
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.cache;
+
+/**
+ * Computes the value of a key for an {@link AsyncLoadingCache}. Loads run on the cache's
+ * {@link org.jdeferred2.DeferredManager}, so they may block.
+ *
+ * @param <K> Type of the keys
+ * @param <V> Type of the values
+ *
+ * @since 2.1
+ */
+public interface CacheLoader<K, V> {
+	/**
+	 * @param key the key to load. Never null
+	 *
+	 * @return the value of {@code key}
+	 *
+	 * @throws Exception if the value cannot be loaded; the failed load is not cached
+	 */
+	V load(K key) throws Exception;
+}
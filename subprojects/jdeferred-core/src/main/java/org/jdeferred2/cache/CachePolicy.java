@@ -0,0 +1,110 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes the size bound and the expiration of an {@link AsyncLoadingCache}.
+ * <p>
+ * Instances are immutable; every {@code with} method returns a modified copy.
+ *
+ * @since 2.1
+ */
+public final class CachePolicy {
+	/**
+	 * Unbounded, without expiration or refresh.
+	 */
+	public static final CachePolicy DEFAULT = new CachePolicy(Integer.MAX_VALUE, 0L, 0L);
+
+	private final int maximumSize;
+	private final long expireAfterWriteNanos;
+	private final long refreshAfterWriteNanos;
+
+	private CachePolicy(int maximumSize, long expireAfterWriteNanos, long refreshAfterWriteNanos) {
+		this.maximumSize = maximumSize;
+		this.expireAfterWriteNanos = expireAfterWriteNanos;
+		this.refreshAfterWriteNanos = refreshAfterWriteNanos;
+	}
+
+	/**
+	 * @param maximumSize the number of entries above which entries are evicted. Must be positive
+	 */
+	public CachePolicy withMaximumSize(int maximumSize) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("Argument 'maximumSize' must be positive but was " + maximumSize);
+		}
+		return new CachePolicy(maximumSize, expireAfterWriteNanos, refreshAfterWriteNanos);
+	}
+
+	/**
+	 * @param duration how long a loaded value is served before it is loaded again. Must be positive
+	 * @param unit     the unit of {@code duration}. Must not be null
+	 */
+	public CachePolicy withExpireAfterWrite(long duration, TimeUnit unit) {
+		return new CachePolicy(maximumSize, toNanos(duration, unit, "duration"), refreshAfterWriteNanos);
+	}
+
+	/**
+	 * Enables refresh-ahead: the first read of a value older than {@code duration} still returns it, but starts a
+	 * reload in the background. Should be shorter than the expiration, if any.
+	 *
+	 * @param duration the age after which a value is reloaded in the background. Must be positive
+	 * @param unit     the unit of {@code duration}. Must not be null
+	 */
+	public CachePolicy withRefreshAfterWrite(long duration, TimeUnit unit) {
+		return new CachePolicy(maximumSize, expireAfterWriteNanos, toNanos(duration, unit, "duration"));
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	public boolean isBounded() {
+		return maximumSize != Integer.MAX_VALUE;
+	}
+
+	/**
+	 * @return the expiration in nanoseconds, or {@code 0} if values never expire
+	 */
+	public long getExpireAfterWriteNanos() {
+		return expireAfterWriteNanos;
+	}
+
+	/**
+	 * @return the refresh age in nanoseconds, or {@code 0} if values are never refreshed ahead
+	 */
+	public long getRefreshAfterWriteNanos() {
+		return refreshAfterWriteNanos;
+	}
+
+	private static long toNanos(long duration, TimeUnit unit, String name) {
+		if (unit == null) {
+			throw new IllegalArgumentException("Argument 'unit' must not be null");
+		}
+		if (duration < 1) {
+			throw new IllegalArgumentException("Argument '" + name + "' must be positive but was " + duration);
+		}
+		return unit.toNanos(duration);
+	}
+
+	@Override
+	public String toString() {
+		return "CachePolicy [maximumSize=" + maximumSize
+			+ ", expireAfterWriteNanos=" + expireAfterWriteNanos
+			+ ", refreshAfterWriteNanos=" + refreshAfterWriteNanos + "]";
+	}
+}
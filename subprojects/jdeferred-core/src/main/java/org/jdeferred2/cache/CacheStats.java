@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.cache;
+
+/**
+ * A snapshot of the counters of an {@link AsyncLoadingCache}.
+ *
+ * @since 2.1
+ */
+public final class CacheStats {
+	private final long hitCount;
+	private final long missCount;
+	private final long loadSuccessCount;
+	private final long loadFailureCount;
+	private final long totalLoadTimeNanos;
+	private final long evictionCount;
+
+	public CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+	                  long totalLoadTimeNanos, long evictionCount) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.loadSuccessCount = loadSuccessCount;
+		this.loadFailureCount = loadFailureCount;
+		this.totalLoadTimeNanos = totalLoadTimeNanos;
+		this.evictionCount = evictionCount;
+	}
+
+	/**
+	 * @return the number of reads served by a loaded or in-flight value
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of reads that started a load
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return the number of loads, including refreshes, that resolved
+	 */
+	public long getLoadSuccessCount() {
+		return loadSuccessCount;
+	}
+
+	/**
+	 * @return the number of loads, including refreshes, that rejected
+	 */
+	public long getLoadFailureCount() {
+		return loadFailureCount;
+	}
+
+	/**
+	 * @return the time spent loading, in nanoseconds
+	 */
+	public long getTotalLoadTimeNanos() {
+		return totalLoadTimeNanos;
+	}
+
+	/**
+	 * @return the number of entries evicted or refused to keep the cache within its maximum size
+	 */
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * @return the ratio of hits to reads, or {@code 1.0} if there were no reads
+	 */
+	public double getHitRate() {
+		long requests = hitCount + missCount;
+		return requests == 0 ? 1.0d : (double) hitCount / requests;
+	}
+
+	/**
+	 * @return the average time of a load in nanoseconds, or {@code 0.0} if nothing was loaded
+	 */
+	public double getAverageLoadPenaltyNanos() {
+		long loads = loadSuccessCount + loadFailureCount;
+		return loads == 0 ? 0.0d : (double) totalLoadTimeNanos / loads;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats [hitCount=" + hitCount
+			+ ", missCount=" + missCount
+			+ ", loadSuccessCount=" + loadSuccessCount
+			+ ", loadFailureCount=" + loadFailureCount
+			+ ", totalLoadTimeNanos=" + totalLoadTimeNanos
+			+ ", evictionCount=" + evictionCount + "]";
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Estimates how often keys were read recently, for the admission decisions of an {@link AsyncLoadingCache}.
+ * <p>
+ * A count-min sketch of 4-bit counters, sixteen per {@code long}. Each key maps to one counter in each of four
+ * rows, and its frequency is the smallest of them. The table has at least as many {@code long}s as the cache has
+ * entries. Once the number of increments reaches ten times that size, every counter is halved so that old
+ * popularity fades.
+ * <p>
+ * Counters are updated with compare-and-set, so reads never block. Concurrent halving may lose a few increments,
+ * which only makes the estimate slightly less precise.
+ */
+final class FrequencySketch {
+	private static final long[] SEEDS = {
+		0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+	};
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final int MAXIMUM_TABLE_SIZE = 1 << 24;
+
+	private final AtomicLongArray table;
+	private final int tableMask;
+	private final int sampleSize;
+	private final AtomicInteger additions = new AtomicInteger();
+
+	/**
+	 * @param maximumSize the maximum size of the cache. Must be positive
+	 */
+	FrequencySketch(int maximumSize) {
+		int size = 16;
+		while (size < maximumSize && size < MAXIMUM_TABLE_SIZE) {
+			size <<= 1;
+		}
+		this.table = new AtomicLongArray(size);
+		this.tableMask = size - 1;
+		this.sampleSize = 10 * size;
+	}
+
+	/**
+	 * @return the estimated number of recent reads of {@code key}, between 0 and 15
+	 */
+	int frequency(Object key) {
+		int hash = spread(key.hashCode());
+		int frequency = 15;
+		for (int row = 0; row < SEEDS.length; row++) {
+			long slot = slotOf(hash, row);
+			int offset = offsetOf(slot);
+			int count = (int) ((table.get(indexOf(slot)) >>> offset) & 0xFL);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Records a read of {@code key}.
+	 */
+	void increment(Object key) {
+		int hash = spread(key.hashCode());
+		boolean added = false;
+		for (int row = 0; row < SEEDS.length; row++) {
+			long slot = slotOf(hash, row);
+			added |= incrementAt(indexOf(slot), offsetOf(slot));
+		}
+
+		if (added && additions.incrementAndGet() == sampleSize) {
+			halve();
+			additions.addAndGet(-(sampleSize >>> 1));
+		}
+	}
+
+	private boolean incrementAt(int index, int offset) {
+		long mask = 0xFL << offset;
+		while (true) {
+			long value = table.get(index);
+			if ((value & mask) == mask) {
+				return false;
+			}
+			if (table.compareAndSet(index, value, value + (1L << offset))) {
+				return true;
+			}
+		}
+	}
+
+	private void halve() {
+		for (int index = 0; index < table.length(); index++) {
+			while (true) {
+				long value = table.get(index);
+				if (table.compareAndSet(index, value, (value >>> 1) & RESET_MASK)) {
+					break;
+				}
+			}
+		}
+	}
+
+	private static long slotOf(int hash, int row) {
+		long slot = (hash + SEEDS[row]) * SEEDS[row];
+		return slot + (slot >>> 32);
+	}
+
+	private int indexOf(long slot) {
+		return (int) slot & tableMask;
+	}
+
+	private static int offsetOf(long slot) {
+		return ((int) (slot >>> 40) & 0xF) << 2;
+	}
+
+	private static int spread(int hash) {
+		hash ^= hash >>> 17;
+		hash *= 0xed5ad4bb;
+		hash ^= hash >>> 11;
+		hash *= 0xac4c1b51;
+		return hash ^ (hash >>> 15);
+	}
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.circuit;
+
+import org.jdeferred2.AlwaysCallback;
+import org.jdeferred2.DeferredManager;
+import org.jdeferred2.Promise;
+import org.jdeferred2.impl.DeferredObject;
+import org.jdeferred2.impl.ObservingPromise;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops calling a dependency that keeps failing or responding slowly, and fails fast instead.
+ * <p>
+ * A caller asks for a permit with {@link #tryAcquirePermit()} and, if granted, reports the outcome of its call with
+ * {@link #onSuccess(long, long)}, {@link #onFailure(long, long)} or, if the call was cancelled,
+ * {@link #onIgnored(long)}. A permit belongs to the state the circuit breaker was in when it was granted: outcomes
+ * reported after the state changed are ignored, so a slow call let through while closed never counts as a trial call
+ * once half open.
+ * {@link #when(DeferredManager, Callable)} and {@link CircuitBreakerDeferredManager} do this on the caller's behalf
+ * and reject the promise of a call without permission with a {@link CircuitBreakerOpenException}, without submitting
+ * it. When to open and how to recover is described by the {@link CircuitBreakerPolicy}.
+ *
+ * @since 2.1
+ */
+public class CircuitBreaker {
+	public enum State {
+		/**
+		 * Calls are let through and their outcomes recorded.
+		 */
+		CLOSED,
+		/**
+		 * Calls fail fast until the open duration has elapsed.
+		 */
+		OPEN,
+		/**
+		 * A limited number of trial calls are let through to decide whether to close again.
+		 */
+		HALF_OPEN
+	}
+
+	/**
+	 * Returned by {@link #tryAcquirePermit()} when a call is not permitted.
+	 */
+	public static final long NOT_PERMITTED = -1L;
+
+	private static final byte FAILED = 1;
+	private static final byte SLOW = 2;
+
+	private final String name;
+	private final CircuitBreakerPolicy policy;
+	private final List<CircuitBreakerListener> listeners = new CopyOnWriteArrayList<CircuitBreakerListener>();
+
+	// guarded by this
+	private final byte[] outcomes;
+	private int next;
+	private int recorded;
+	private int failed;
+	private int slow;
+	private State state = State.CLOSED;
+	// incremented on every state change, and handed out as the permit of calls
+	private long generation;
+	private long openedAt;
+	private int trialsAdmitted;
+	private int trialsSucceeded;
+
+	/**
+	 * Equivalent to {@link #CircuitBreaker(String, CircuitBreakerPolicy)} using {@link CircuitBreakerPolicy#DEFAULT}.
+	 */
+	public CircuitBreaker(String name) {
+		this(name, CircuitBreakerPolicy.DEFAULT);
+	}
+
+	/**
+	 * @param name   the name of the protected dependency, used in failures and metrics. Must not be null
+	 * @param policy when to open and how to recover. Must not be null
+	 */
+	public CircuitBreaker(String name, CircuitBreakerPolicy policy) {
+		if (name == null) {
+			throw new IllegalArgumentException("Argument 'name' must not be null");
+		}
+		if (policy == null) {
+			throw new IllegalArgumentException("Argument 'policy' must not be null");
+		}
+
+		this.name = name;
+		this.policy = policy;
+		this.outcomes = new byte[policy.getWindowSize()];
+	}
+
+	/**
+	 * Calls {@code callable} through {@code deferredManager} if this circuit breaker permits it, and records its
+	 * outcome.
+	 *
+	 * @return the promise of the call, or a promise rejected with a {@link CircuitBreakerOpenException} if the call
+	 * was not permitted
+	 */
+	public <D> Promise<D, Throwable, Void> when(DeferredManager deferredManager, Callable<D> callable) {
+		if (deferredManager == null) {
+			throw new IllegalArgumentException("Argument 'deferredManager' must not be null");
+		}
+		if (callable == null) {
+			throw new IllegalArgumentException("Argument 'callable' must not be null");
+		}
+
+		long permit = tryAcquirePermit();
+		if (permit == NOT_PERMITTED) {
+			return new DeferredObject<D, Throwable, Void>().reject(newOpenException()).promise();
+		}
+		Promise<D, Throwable, Void> promise = deferredManager.when(callable);
+		ObservingPromise.of(promise).always(recordingCallback(permit));
+		return promise;
+	}
+
+	/**
+	 * @return the permit of the call, to be passed along with its outcome, or {@link #NOT_PERMITTED} if no call may be
+	 * made
+	 */
+	public long tryAcquirePermit() {
+		State from;
+		long permit;
+		synchronized (this) {
+			if (state == State.CLOSED) {
+				return generation;
+			}
+			if (state == State.OPEN) {
+				if (System.nanoTime() - openedAt < policy.getOpenDuration(TimeUnit.NANOSECONDS)) {
+					return NOT_PERMITTED;
+				}
+				from = transitionTo(State.HALF_OPEN);
+			} else {
+				from = null;
+			}
+
+			if (trialsAdmitted >= policy.getHalfOpenCalls()) {
+				permit = NOT_PERMITTED;
+			} else {
+				trialsAdmitted++;
+				permit = generation;
+			}
+		}
+		fireStateChange(from, State.HALF_OPEN);
+		return permit;
+	}
+
+	/**
+	 * Reports a permitted call that succeeded.
+	 *
+	 * @param permit        the permit the call was made with
+	 * @param durationNanos how long the call took
+	 */
+	public void onSuccess(long permit, long durationNanos) {
+		record(permit, false, durationNanos);
+	}
+
+	/**
+	 * Reports a permitted call that failed.
+	 *
+	 * @param permit        the permit the call was made with
+	 * @param durationNanos how long the call took
+	 */
+	public void onFailure(long permit, long durationNanos) {
+		record(permit, true, durationNanos);
+	}
+
+	/**
+	 * Reports a permitted call whose outcome says nothing about the dependency, such as a cancelled call. A trial call
+	 * gives its slot back to another trial.
+	 *
+	 * @param permit the permit the call was made with
+	 */
+	public synchronized void onIgnored(long permit) {
+		if (permit == generation && state == State.HALF_OPEN && trialsAdmitted > trialsSucceeded) {
+			trialsAdmitted--;
+		}
+	}
+
+	/**
+	 * Returns a callback that reports the outcome of a promise of a call made with {@code permit}, timed from now.
+	 */
+	AlwaysCallback<Object, Throwable> recordingCallback(final long permit) {
+		final long startedAt = System.nanoTime();
+		return new AlwaysCallback<Object, Throwable>() {
+			@Override
+			public void onAlways(Promise.State state, Object resolved, Throwable rejected) {
+				if (state == Promise.State.RESOLVED) {
+					onSuccess(permit, System.nanoTime() - startedAt);
+				} else if (rejected instanceof CancellationException) {
+					onIgnored(permit);
+				} else {
+					onFailure(permit, System.nanoTime() - startedAt);
+				}
+			}
+		};
+	}
+
+	CircuitBreakerOpenException newOpenException() {
+		return new CircuitBreakerOpenException(name, "Circuit breaker '" + name + "' is " + getState()
+			+ ", call not permitted");
+	}
+
+	private void record(long permit, boolean failure, long durationNanos) {
+		boolean slowCall = durationNanos > policy.getSlowCallThreshold(TimeUnit.NANOSECONDS);
+		State from = null;
+		State to = null;
+		synchronized (this) {
+			if (permit != generation) {
+				// granted before the last state change, so it says nothing about the current state
+				return;
+			}
+			if (state == State.CLOSED) {
+				byte outcome = (byte) ((failure ? FAILED : 0) | (slowCall ? SLOW : 0));
+				if (recorded == outcomes.length) {
+					failed -= outcomes[next] & FAILED;
+					slow -= (outcomes[next] & SLOW) >> 1;
+				} else {
+					recorded++;
+				}
+				outcomes[next] = outcome;
+				next = (next + 1) % outcomes.length;
+				failed += failure ? 1 : 0;
+				slow += slowCall ? 1 : 0;
+
+				if (recorded >= policy.getMinimumCalls() && (failed >= policy.getFailureRateThreshold() * recorded
+					|| slow >= policy.getSlowCallRateThreshold() * recorded)) {
+					from = transitionTo(to = State.OPEN);
+				}
+			} else if (state == State.HALF_OPEN) {
+				if (failure || slowCall) {
+					from = transitionTo(to = State.OPEN);
+				} else if (++trialsSucceeded >= policy.getHalfOpenCalls()) {
+					from = transitionTo(to = State.CLOSED);
+				}
+			}
+		}
+		fireStateChange(from, to);
+	}
+
+	// guarded by this
+	private State transitionTo(State to) {
+		State from = state;
+		state = to;
+		generation++;
+		trialsAdmitted = 0;
+		trialsSucceeded = 0;
+		if (to == State.OPEN) {
+			openedAt = System.nanoTime();
+		} else if (to == State.CLOSED) {
+			recorded = next = failed = slow = 0;
+		}
+		return from;
+	}
+
+	private void fireStateChange(State from, State to) {
+		if (from == null) {
+			return;
+		}
+		for (CircuitBreakerListener listener : listeners) {
+			listener.onStateChange(this, from, to);
+		}
+	}
+
+	public void addListener(CircuitBreakerListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Argument 'listener' must not be null");
+		}
+		listeners.add(listener);
+	}
+
+	public void removeListener(CircuitBreakerListener listener) {
+		listeners.remove(listener);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public CircuitBreakerPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Returns the current state. An open circuit whose open duration has elapsed is reported as open until the next
+	 * call asks for permission.
+	 */
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * @return the share of failed calls in the current window, or {@code 0} if no call was recorded
+	 */
+	public synchronized double getFailureRate() {
+		return recorded == 0 ? 0.0d : (double) failed / recorded;
+	}
+
+	/**
+	 * @return the share of slow calls in the current window, or {@code 0} if no call was recorded
+	 */
+	public synchronized double getSlowCallRate() {
+		return recorded == 0 ? 0.0d : (double) slow / recorded;
+	}
+
+	@Override
+	public String toString() {
+		return "CircuitBreaker[" + name + ", " + getState() + "]";
+	}
+}
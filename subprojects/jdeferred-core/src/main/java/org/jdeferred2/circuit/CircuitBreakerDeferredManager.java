@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.circuit;
+
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.impl.DefaultDeferredManager;
+import org.jdeferred2.impl.ObservingPromise;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A {@link DefaultDeferredManager} whose tasks all go through one {@link CircuitBreaker}.
+ * <p>
+ * While the circuit breaker does not permit calls, the promise of a task is rejected with a
+ * {@link CircuitBreakerOpenException} right away and the task is never submitted to the {@link ExecutorService}.
+ * The outcome of every other task, timed from its submission, is reported to the circuit breaker.
+ *
+ * @since 2.1
+ */
+public class CircuitBreakerDeferredManager extends DefaultDeferredManager {
+	private final CircuitBreaker circuitBreaker;
+
+	/**
+	 * Equivalent to {@link #CircuitBreakerDeferredManager(ExecutorService, CircuitBreaker)} using
+	 * {@link Executors#newCachedThreadPool()}.
+	 */
+	public CircuitBreakerDeferredManager(CircuitBreaker circuitBreaker) {
+		this(Executors.newCachedThreadPool(), circuitBreaker);
+	}
+
+	/**
+	 * @param executorService the executor that runs the permitted tasks
+	 * @param circuitBreaker  the circuit breaker that guards every task. Must not be null
+	 */
+	public CircuitBreakerDeferredManager(ExecutorService executorService, CircuitBreaker circuitBreaker) {
+		super(executorService);
+		assertNotNull(circuitBreaker, "circuitBreaker");
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	@Override
+	protected void submit(Runnable runnable) {
+		if (!(runnable instanceof DeferredFutureTask)) {
+			super.submit(runnable);
+			return;
+		}
+
+		DeferredFutureTask<?, ?> task = (DeferredFutureTask<?, ?>) runnable;
+		long permit = circuitBreaker.tryAcquirePermit();
+		if (permit == CircuitBreaker.NOT_PERMITTED) {
+			task.reject(circuitBreaker.newOpenException());
+			return;
+		}
+		ObservingPromise.of(task.promise()).always(circuitBreaker.recordingCallback(permit));
+		super.submit(task);
+	}
+}
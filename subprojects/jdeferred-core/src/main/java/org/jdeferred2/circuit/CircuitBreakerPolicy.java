@@ -0,0 +1,170 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.circuit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes when a {@link CircuitBreaker} opens and how it recovers.
+ * <p>
+ * The outcomes of the last {@code windowSize} calls are kept. Once at least {@code minimumCalls} of them are known,
+ * the circuit opens if the share of failed calls reaches the failure rate threshold, or the share of calls slower
+ * than the slow-call threshold reaches the slow-call rate threshold. It stays open for the open duration, then lets
+ * {@code halfOpenCalls} trial calls through: it closes if they all succeed and opens again otherwise.
+ * <p>
+ * Instances are immutable; every {@code with} method returns a modified copy.
+ *
+ * @since 2.1
+ */
+public final class CircuitBreakerPolicy {
+	/**
+	 * A window of 100 calls, at least 10 of them, opening at a 50% failure rate for 30 s, 3 trial calls, and no
+	 * slow-call detection.
+	 */
+	public static final CircuitBreakerPolicy DEFAULT = new CircuitBreakerPolicy(100, 10, 0.5d, Long.MAX_VALUE, 1.0d,
+		TimeUnit.SECONDS.toNanos(30), 3);
+
+	private final int windowSize;
+	private final int minimumCalls;
+	private final double failureRateThreshold;
+	private final long slowCallNanos;
+	private final double slowCallRateThreshold;
+	private final long openNanos;
+	private final int halfOpenCalls;
+
+	private CircuitBreakerPolicy(int windowSize, int minimumCalls, double failureRateThreshold, long slowCallNanos,
+	                             double slowCallRateThreshold, long openNanos, int halfOpenCalls) {
+		this.windowSize = windowSize;
+		this.minimumCalls = minimumCalls;
+		this.failureRateThreshold = failureRateThreshold;
+		this.slowCallNanos = slowCallNanos;
+		this.slowCallRateThreshold = slowCallRateThreshold;
+		this.openNanos = openNanos;
+		this.halfOpenCalls = halfOpenCalls;
+	}
+
+	/**
+	 * @param windowSize   the number of most recent calls whose outcome is kept. Must be positive
+	 * @param minimumCalls the number of calls needed before the circuit may open. Must be between 1 and
+	 *                     {@code windowSize}
+	 */
+	public CircuitBreakerPolicy withWindow(int windowSize, int minimumCalls) {
+		if (windowSize < 1) {
+			throw new IllegalArgumentException("Argument 'windowSize' must be positive but was " + windowSize);
+		}
+		if (minimumCalls < 1 || minimumCalls > windowSize) {
+			throw new IllegalArgumentException("Argument 'minimumCalls' must be between 1 and " + windowSize + " but was " + minimumCalls);
+		}
+		return new CircuitBreakerPolicy(windowSize, minimumCalls, failureRateThreshold, slowCallNanos,
+			slowCallRateThreshold, openNanos, halfOpenCalls);
+	}
+
+	/**
+	 * @param failureRateThreshold the share of failed calls that opens the circuit. Must be in {@code (0, 1]}
+	 */
+	public CircuitBreakerPolicy withFailureRateThreshold(double failureRateThreshold) {
+		assertRate(failureRateThreshold, "failureRateThreshold");
+		return new CircuitBreakerPolicy(windowSize, minimumCalls, failureRateThreshold, slowCallNanos,
+			slowCallRateThreshold, openNanos, halfOpenCalls);
+	}
+
+	/**
+	 * @param slowCallThreshold     the duration above which a call counts as slow. Must be positive
+	 * @param unit                  the unit of {@code slowCallThreshold}. Must not be null
+	 * @param slowCallRateThreshold the share of slow calls that opens the circuit. Must be in {@code (0, 1]}
+	 */
+	public CircuitBreakerPolicy withSlowCalls(long slowCallThreshold, TimeUnit unit, double slowCallRateThreshold) {
+		assertRate(slowCallRateThreshold, "slowCallRateThreshold");
+		long nanos = toNanos(slowCallThreshold, unit, "slowCallThreshold");
+		if (nanos == 0) {
+			throw new IllegalArgumentException("Argument 'slowCallThreshold' must be positive but was " + slowCallThreshold);
+		}
+		return new CircuitBreakerPolicy(windowSize, minimumCalls, failureRateThreshold, nanos,
+			slowCallRateThreshold, openNanos, halfOpenCalls);
+	}
+
+	/**
+	 * @param openDuration how long the circuit stays open before trial calls are let through. Must not be negative
+	 * @param unit         the unit of {@code openDuration}. Must not be null
+	 */
+	public CircuitBreakerPolicy withOpenDuration(long openDuration, TimeUnit unit) {
+		return new CircuitBreakerPolicy(windowSize, minimumCalls, failureRateThreshold, slowCallNanos,
+			slowCallRateThreshold, toNanos(openDuration, unit, "openDuration"), halfOpenCalls);
+	}
+
+	/**
+	 * @param halfOpenCalls the number of trial calls that decide whether the circuit closes again. Must be positive
+	 */
+	public CircuitBreakerPolicy withHalfOpenCalls(int halfOpenCalls) {
+		if (halfOpenCalls < 1) {
+			throw new IllegalArgumentException("Argument 'halfOpenCalls' must be positive but was " + halfOpenCalls);
+		}
+		return new CircuitBreakerPolicy(windowSize, minimumCalls, failureRateThreshold, slowCallNanos,
+			slowCallRateThreshold, openNanos, halfOpenCalls);
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public int getMinimumCalls() {
+		return minimumCalls;
+	}
+
+	public double getFailureRateThreshold() {
+		return failureRateThreshold;
+	}
+
+	public long getSlowCallThreshold(TimeUnit unit) {
+		return unit.convert(slowCallNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public double getSlowCallRateThreshold() {
+		return slowCallRateThreshold;
+	}
+
+	public long getOpenDuration(TimeUnit unit) {
+		return unit.convert(openNanos, TimeUnit.NANOSECONDS);
+	}
+
+	public int getHalfOpenCalls() {
+		return halfOpenCalls;
+	}
+
+	private static void assertRate(double rate, String name) {
+		if (!(rate > 0.0d && rate <= 1.0d)) {
+			throw new IllegalArgumentException("Argument '" + name + "' must be in (0, 1] but was " + rate);
+		}
+	}
+
+	private static long toNanos(long duration, TimeUnit unit, String name) {
+		if (unit == null) {
+			throw new IllegalArgumentException("Argument 'unit' must not be null");
+		}
+		if (duration < 0) {
+			throw new IllegalArgumentException("Argument '" + name + "' must not be negative but was " + duration);
+		}
+		return unit.toNanos(duration);
+	}
+
+	@Override
+	public String toString() {
+		return "CircuitBreakerPolicy[windowSize=" + windowSize + ", minimumCalls=" + minimumCalls
+			+ ", failureRateThreshold=" + failureRateThreshold + ", slowCallNanos=" + slowCallNanos
+			+ ", slowCallRateThreshold=" + slowCallRateThreshold + ", openNanos=" + openNanos
+			+ ", halfOpenCalls=" + halfOpenCalls + "]";
+	}
+}
@@ -15,11 +15,19 @@
  */
 package org.jdeferred2.impl;
 
+import org.jdeferred2.AlwaysCallback;
+import org.jdeferred2.CancellationHandler;
+import org.jdeferred2.Deadline;
 import org.jdeferred2.DeferredCallable;
 import org.jdeferred2.DeferredFutureTask;
 import org.jdeferred2.DeferredManager;
 import org.jdeferred2.DeferredRunnable;
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.DoneFilter;
+import org.jdeferred2.LatencyPercentile;
 import org.jdeferred2.Promise;
+import org.jdeferred2.Reducer;
+import org.jdeferred2.RetryPolicy;
 import org.jdeferred2.multiple.AllValues;
 import org.jdeferred2.multiple.MasterProgress;
 import org.jdeferred2.multiple.MultipleResults;
@@ -30,6 +38,7 @@ import org.jdeferred2.multiple.MultipleResults5;
 import org.jdeferred2.multiple.MultipleResultsN;
 import org.jdeferred2.multiple.OneReject;
 import org.jdeferred2.multiple.OneResult;
+import org.jdeferred2.multiple.OneValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,8 +47,11 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @SuppressWarnings({"rawtypes", "unchecked"})
 public abstract class AbstractDeferredManager implements DeferredManager {
@@ -75,6 +87,22 @@ public abstract class AbstractDeferredManager implements DeferredManager {
 
 	final protected Logger log = LoggerFactory.getLogger(AbstractDeferredManager.class);
 
+	private final ConcurrentMap<Object, Promise<?, Throwable, Void>> inFlightByKey = new ConcurrentHashMap<Object, Promise<?, Throwable, Void>>();
+
+	private final Runnable purger = new Runnable() {
+		@Override
+		public void run() {
+			purge();
+		}
+	};
+
+	private static final DoneFilter<MultipleResults, OneResult<?>> FIRST_RESULT_FILTER = new DoneFilter<MultipleResults, OneResult<?>>() {
+		@Override
+		public OneResult<?> filterDone(MultipleResults result) {
+			return result.get(0);
+		}
+	};
+
 	protected abstract void submit(Runnable runnable);
 
 	protected abstract void submit(Callable callable);
@@ -87,6 +115,16 @@ public abstract class AbstractDeferredManager implements DeferredManager {
 	 */
 	public abstract boolean isAutoSubmit();
 
+	/**
+	 * Removes cancelled tasks that have not started yet from the underlying executor, if it supports it. Invoked
+	 * once a race or {@code some} settles, and only if it cancelled at least one task that was still queued;
+	 * tasks that were already running leave nothing to remove. Does nothing by default.
+	 *
+	 * @since 2.1
+	 */
+	protected void purge() {
+	}
+
 	@Override
 	public <F, V1, V2> Promise<MultipleResults2<V1, V2>, OneReject<F>, MasterProgress> when(Promise<V1, ?, ?> promiseV1, Promise<V2, ?, ?> promiseV2) {
 		assertNotNull(promiseV1, PROMISE_V1);
@@ -502,15 +540,60 @@ public abstract class AbstractDeferredManager implements DeferredManager {
 		return when(new DeferredFutureTask<D, Void>(callable));
 	}
 
+	@Override
+	public <D> Promise<D, Throwable, Void> whenKeyed(final Object key, Callable<D> callable) {
+		assertNotNull(key, "key");
+		assertNotNull(callable, "callable");
+
+		while (true) {
+			Promise<?, Throwable, Void> inFlight = inFlightByKey.get(key);
+			if (inFlight == null) {
+				final DeferredFutureTask<D, Void> task = autoStartTaskFor(callable);
+				inFlight = inFlightByKey.putIfAbsent(key, task.promise());
+				if (inFlight == null) {
+					ObservingPromise.of(task.promise()).always(new AlwaysCallback<D, Throwable>() {
+						@Override
+						public void onAlways(Promise.State state, D resolved, Throwable rejected) {
+							inFlightByKey.remove(key, task.promise());
+						}
+					});
+					return callerViewOf(when(task));
+				}
+			}
+
+			if (inFlight.isPending()) {
+				return callerViewOf((Promise<D, Throwable, Void>) inFlight);
+			}
+			// settled between lookup and release, try again with a fresh task
+			inFlightByKey.remove(key, inFlight);
+		}
+	}
+
+	/**
+	 * Each caller of {@link #whenKeyed(Object, Callable)} depends on the shared promise through its own stage, so
+	 * that cancellation is reference-counted across callers.
+	 */
+	private <D> Promise<D, Throwable, Void> callerViewOf(Promise<D, Throwable, Void> shared) {
+		return new FilteredPromise<D, Throwable, Void, D, Throwable, Void>(shared, null, null, null);
+	}
+
 	@Override
 	public <D, P> Promise<D, Throwable, P> when(DeferredFutureTask<D, P> task) {
 		assertNotNull(task, "task");
-		if (task.getStartPolicy() == StartPolicy.AUTO
+		Deadline deadline = task.getDeadline();
+		if (deadline != null && deadline.isExpired()) {
+			// rejects right away, without running the task
+			task.run();
+		} else if (task.getStartPolicy() == StartPolicy.AUTO
 			|| (task.getStartPolicy() == StartPolicy.DEFAULT && isAutoSubmit())) {
 			submit(task);
 		}
 
-		return task.promise();
+		Promise<D, Throwable, P> promise = task.promise();
+		if (deadline != null && promise instanceof AbstractPromise) {
+			((AbstractPromise<D, Throwable, P>) promise).deadline = deadline;
+		}
+		return promise;
 	}
 
 	@Override
@@ -621,11 +704,26 @@ public abstract class AbstractDeferredManager implements DeferredManager {
 		return submitForSingle(allTasks);
 	}
 
+	@Override
+	public Promise<OneResult<?>, OneReject<?>, Void> race(Promise<?, ?, ?> promiseV1, Promise<?, ?, ?> promiseV2, Promise<?, ?, ?>... promises) {
+		assertNotNull(promiseV1, PROMISE_V1);
+		assertNotNull(promiseV2, PROMISE_V2);
+
+		Promise<?, ?, ?>[] allPromises = new Promise[2 + (promises != null ? promises.length : 0)];
+		allPromises[0] = promiseV1;
+		allPromises[1] = promiseV2;
+		if (promises != null) {
+			System.arraycopy(promises, 0, allPromises, 2, promises.length);
+		}
+
+		return (Promise) new SingleDeferredObject(allPromises);
+	}
+
 	protected Promise<OneResult<?>, OneReject<Throwable>, Void> submitForSingle(DeferredFutureTask<?, ?>[] tasks) {
 		for (DeferredFutureTask<?, ?> task : tasks) {
 			submit(task);
 		}
-		return new SingleDeferredObject(tasks);
+		return new SingleDeferredObject(tasks, purger);
 	}
 
 	protected <D> DeferredCallable<D, Void> deferredCallableFor(final Future<D> future) {
@@ -649,6 +747,21 @@ public abstract class AbstractDeferredManager implements DeferredManager {
 		};
 	}
 
+	/**
+	 * Wraps {@code callable} into a task that is submitted by {@link #when(DeferredFutureTask)} regardless of
+	 * {@link #isAutoSubmit()}, for tasks created on behalf of the caller such as retries or scheduled runs.
+	 */
+	protected <D> DeferredFutureTask<D, Void> autoStartTaskFor(final Callable<D> callable) {
+		assertNotNull(callable, "callable");
+
+		return new DeferredFutureTask<D, Void>(new DeferredCallable<D, Void>(StartPolicy.AUTO) {
+			@Override
+			public D call() throws Exception {
+				return callable.call();
+			}
+		});
+	}
+
 	@Override
 	public Promise<AllValues, Throwable, MasterProgress> settle(Runnable runnableV1, Runnable runnableV2, Runnable... runnables) {
 		assertNotNull(runnableV1, RUNNABLE_V1);
@@ -882,6 +995,288 @@ public abstract class AbstractDeferredManager implements DeferredManager {
 		return new AllValuesDeferredObject(promises.toArray(new Promise[promises.size()]));
 	}
 
+	@Override
+	public Promise<MultipleResults, OneReject<?>, MasterProgress> when(Iterable<?> iterable, int maxConcurrency) {
+		assertMaxConcurrency(maxConcurrency);
+		WindowedMasterDeferredObject deferred = new WindowedMasterDeferredObject(this, toIterator(iterable), maxConcurrency);
+		deferred.start();
+		return deferred;
+	}
+
+	@Override
+	public Promise<AllValues, Throwable, MasterProgress> settle(Iterable<?> iterable, int maxConcurrency) {
+		assertMaxConcurrency(maxConcurrency);
+		WindowedAllValuesDeferredObject deferred = new WindowedAllValuesDeferredObject(this, toIterator(iterable), maxConcurrency);
+		deferred.start();
+		return deferred;
+	}
+
+	@Override
+	public Promise<MasterProgress, OneReject<?>, Void> whenEach(Iterable<?> iterable, DoneCallback<? super OneResult<?>> consumer) {
+		assertNotNull(consumer, "consumer");
+		return new CompletionOrderDeferredObject<OneReject<?>>(toPromises(iterable), consumer, true);
+	}
+
+	@Override
+	public Promise<MasterProgress, Throwable, Void> settleEach(Iterable<?> iterable, DoneCallback<? super OneValue<?>> consumer) {
+		assertNotNull(consumer, "consumer");
+		return new CompletionOrderDeferredObject<Throwable>(toPromises(iterable), consumer, false);
+	}
+
+	@Override
+	public <D, R> Promise<R, OneReject<?>, Void> reduce(Iterable<? extends Promise<? extends D, ?, ?>> promises, R identity, Reducer<R, ? super D> reducer) {
+		assertNotNull(reducer, "reducer");
+		return new ReducingDeferredObject<D, R>(toPromises(promises), identity, reducer);
+	}
+
+	@Override
+	public Promise<MultipleResults, AllValues, MasterProgress> some(int count, Promise<?, ?, ?>... promises) {
+		assertNotNull(promises, "promises");
+		for (int i = 0; i < promises.length; i++) {
+			assertNotNull(promises[i], "promises[" + i + "]");
+		}
+		assertCount(count, promises.length);
+
+		return new SomeDeferredObject(count, promises, null, null);
+	}
+
+	@Override
+	public Promise<MultipleResults, AllValues, MasterProgress> some(int count, DeferredFutureTask<?, ?>... tasks) {
+		assertNotNull(tasks, "tasks");
+		for (int i = 0; i < tasks.length; i++) {
+			assertNotNull(tasks[i], "tasks[" + i + "]");
+		}
+		assertCount(count, tasks.length);
+
+		return submitForSome(count, tasks.clone());
+	}
+
+	@Override
+	public Promise<MultipleResults, AllValues, MasterProgress> some(int count, Callable<?>... callables) {
+		assertNotNull(callables, "callables");
+		for (int i = 0; i < callables.length; i++) {
+			assertNotNull(callables[i], "callables[" + i + "]");
+		}
+		assertCount(count, callables.length);
+
+		DeferredFutureTask<?, ?>[] tasks = new DeferredFutureTask[callables.length];
+		for (int i = 0; i < callables.length; i++) {
+			tasks[i] = toDeferredFutureTask(callables[i]);
+		}
+
+		return submitForSome(count, tasks);
+	}
+
+	@Override
+	public Promise<MultipleResults, AllValues, MasterProgress> some(int count, Iterable<?> iterable) {
+		if (iterable == null) {
+			throw new IllegalArgumentException("Iterable is null");
+		}
+
+		Iterator<?> iterator = iterable.iterator();
+		if (!iterator.hasNext()) {
+			throw new IllegalArgumentException("Iterable is empty");
+		}
+
+		List<Object> items = new ArrayList<Object>();
+
+		// First pass, check each element to make sure it can be converted to a promise
+		// This is done in 2 passes because we don't want to submit tasks but also throw an Exception because some
+		// object was not able to convert. The method should succeed all or nothing.
+		while (iterator.hasNext()) {
+			Object object = iterator.next();
+			if (!canPromise(object)) {
+				throw new IllegalArgumentException("An item of type " + object.getClass().getName() + " cannot be converted to a Promise");
+			}
+			items.add(object);
+		}
+		assertCount(count, items.size());
+
+		// Second pass, promises are observed as they are, everything else becomes a cancellable task
+		Promise<?, ?, ?>[] promises = new Promise[items.size()];
+		DeferredFutureTask<?, ?>[] tasks = new DeferredFutureTask[items.size()];
+		for (int i = 0; i < promises.length; i++) {
+			Object item = items.get(i);
+			if (item instanceof Promise) {
+				promises[i] = (Promise<?, ?, ?>) item;
+			} else {
+				tasks[i] = toDeferredFutureTask(item);
+				submit(tasks[i]);
+				promises[i] = tasks[i].promise();
+			}
+		}
+
+		return new SomeDeferredObject(count, promises, tasks, purger);
+	}
+
+	@Override
+	public Promise<OneResult<?>, AllValues, MasterProgress> any(Promise<?, ?, ?>... promises) {
+		assertNotNull(promises, "promises");
+		return some(1, promises).filter(FIRST_RESULT_FILTER);
+	}
+
+	@Override
+	public Promise<OneResult<?>, AllValues, MasterProgress> any(DeferredFutureTask<?, ?>... tasks) {
+		assertNotNull(tasks, "tasks");
+		return some(1, tasks).filter(FIRST_RESULT_FILTER);
+	}
+
+	@Override
+	public Promise<OneResult<?>, AllValues, MasterProgress> any(Callable<?>... callables) {
+		assertNotNull(callables, "callables");
+		return some(1, callables).filter(FIRST_RESULT_FILTER);
+	}
+
+	@Override
+	public Promise<OneResult<?>, AllValues, MasterProgress> any(Iterable<?> iterable) {
+		return some(1, iterable).filter(FIRST_RESULT_FILTER);
+	}
+
+	protected Promise<MultipleResults, AllValues, MasterProgress> submitForSome(int count, DeferredFutureTask<?, ?>[] tasks) {
+		Promise<?, ?, ?>[] promises = new Promise[tasks.length];
+		for (int i = 0; i < tasks.length; i++) {
+			submit(tasks[i]);
+			promises[i] = tasks[i].promise();
+		}
+		return new SomeDeferredObject(count, promises, tasks, purger);
+	}
+
+	protected void assertCount(int count, int size) {
+		if (count < 1 || count > size) {
+			throw new IllegalArgumentException("Argument 'count' must be between 1 and " + size + " but was " + count);
+		}
+	}
+
+	protected void assertMaxConcurrency(int maxConcurrency) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("Argument 'maxConcurrency' must be positive but was " + maxConcurrency);
+		}
+	}
+
+	@Override
+	public <D, P> Promise<D, Throwable, P> withTimeout(Promise<D, ? extends Throwable, P> promise, long timeout, TimeUnit unit) {
+		assertNotNull(promise, "promise");
+		assertTimeout(timeout, unit);
+
+		CancellationHandler cancellationHandler = promise instanceof CancellationHandler ? (CancellationHandler) promise : null;
+		return new TimeoutDeferredObject<D, P>(promise, cancellationHandler, getTimer(), timeout, unit).promise();
+	}
+
+	@Override
+	public <D, P> Promise<D, Throwable, P> withTimeout(final DeferredFutureTask<D, P> task, long timeout, TimeUnit unit) {
+		assertNotNull(task, "task");
+		assertTimeout(timeout, unit);
+
+		return new TimeoutDeferredObject<D, P>(when(task), new CancellationHandler() {
+			@Override
+			public void onCancel() {
+				task.cancel();
+			}
+		}, getTimer(), timeout, unit).promise();
+	}
+
+	@Override
+	public <D> Promise<D, Throwable, Integer> retry(Callable<D> callable, RetryPolicy retryPolicy) {
+		assertNotNull(callable, "callable");
+		assertNotNull(retryPolicy, "retryPolicy");
+
+		RetryingDeferredObject<D> deferred = new RetryingDeferredObject<D>(this, callable, retryPolicy, getTimer());
+		deferred.start();
+		return deferred;
+	}
+
+	@Override
+	public <D> Promise<D, Throwable, Integer> hedge(Callable<D> callable, long delay, TimeUnit unit, int maxHedges) {
+		assertNotNull(callable, "callable");
+		assertTimeout(delay, unit);
+		assertMaxHedges(maxHedges);
+
+		HedgedDeferredObject<D> deferred = new HedgedDeferredObject<D>(this, callable, getTimer(), unit.toNanos(delay), null, maxHedges);
+		deferred.start();
+		return deferred;
+	}
+
+	@Override
+	public <D> Promise<D, Throwable, Integer> hedge(Callable<D> callable, LatencyPercentile latency, int maxHedges) {
+		assertNotNull(callable, "callable");
+		assertNotNull(latency, "latency");
+		assertMaxHedges(maxHedges);
+
+		HedgedDeferredObject<D> deferred = new HedgedDeferredObject<D>(this, callable, getTimer(), 0, latency, maxHedges);
+		deferred.start();
+		return deferred;
+	}
+
+	@Override
+	public <D> Promise<D, Throwable, Void> schedule(Callable<D> callable, long delay, TimeUnit unit) {
+		assertNotNull(callable, "callable");
+		assertTimeout(delay, unit);
+
+		DelayedDeferredObject<D> deferred = new DelayedDeferredObject<D>(this, callable, getTimer());
+		deferred.start(delay, unit);
+		return deferred;
+	}
+
+	@Override
+	public <D> Promise<Void, Throwable, D> scheduleAtFixedRate(Callable<D> callable, long initialDelay, long period, TimeUnit unit) {
+		assertNotNull(callable, "callable");
+		assertTimeout(initialDelay, unit);
+		if (period <= 0) {
+			throw new IllegalArgumentException("Argument 'period' must be positive but was " + period);
+		}
+
+		PeriodicDeferredObject<D> deferred = new PeriodicDeferredObject<D>(this, callable, getTimer(), unit.toNanos(period));
+		deferred.start(unit.toNanos(initialDelay));
+		return deferred;
+	}
+
+	@Override
+	public <D> Promise<D, Throwable, Integer> pollUntil(Callable<D> check, DoneFilter<? super D, Boolean> predicate, long interval, long timeout, TimeUnit unit) {
+		assertNotNull(check, "check");
+		assertNotNull(predicate, "predicate");
+		assertTimeout(interval, unit);
+		assertTimeout(timeout, unit);
+
+		PollingDeferredObject<D> deferred = new PollingDeferredObject<D>(this, check, predicate, getTimer(), unit.toNanos(interval));
+		deferred.start(timeout, unit);
+		return deferred;
+	}
+
+	@Override
+	public <D, P> Promise<D, Throwable, P> withDeadline(Promise<D, ? extends Throwable, P> promise, Deadline deadline) {
+		assertNotNull(promise, "promise");
+		assertNotNull(deadline, "deadline");
+
+		Deadline effective = deadline.minimum(Deadline.current());
+		CancellationHandler cancellationHandler = promise instanceof CancellationHandler ? (CancellationHandler) promise : null;
+		TimeoutDeferredObject<D, P> deferred = new TimeoutDeferredObject<D, P>(promise, cancellationHandler, getTimer(),
+			effective.timeRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+		deferred.deadline = effective;
+		return deferred;
+	}
+
+	/**
+	 * Returns the timer used to track timeouts and delays. Defaults to {@link GlobalConfiguration#getGlobalTimer()}.
+	 *
+	 * @since 2.1
+	 */
+	protected HashedWheelTimer getTimer() {
+		return GlobalConfiguration.getGlobalTimer();
+	}
+
+	protected void assertMaxHedges(int maxHedges) {
+		if (maxHedges < 0) {
+			throw new IllegalArgumentException("Argument 'maxHedges' must not be negative but was " + maxHedges);
+		}
+	}
+
+	protected void assertTimeout(long timeout, TimeUnit unit) {
+		assertNotNull(unit, "unit");
+		if (timeout < 0) {
+			throw new IllegalArgumentException("Argument 'timeout' must not be negative but was " + timeout);
+		}
+	}
+
 	@Override
 	public <D, F, P> Promise<D, F, P> resolve(D resolve) {
 		return new DeferredObject<D, F, P>().resolve(resolve).promise();
@@ -892,6 +1287,48 @@ public abstract class AbstractDeferredManager implements DeferredManager {
 		return new DeferredObject<D, F, P>().reject(reject).promise();
 	}
 
+	private static Iterator<?> toIterator(Iterable<?> iterable) {
+		if (iterable == null) {
+			throw new IllegalArgumentException("Iterable is null");
+		}
+
+		Iterator<?> iterator = iterable.iterator();
+		if (!iterator.hasNext()) {
+			throw new IllegalArgumentException("Iterable is empty");
+		}
+		return iterator;
+	}
+
+	/**
+	 * Converts every item of {@code iterable} into a {@link Promise}. Succeeds for all items or none: no task is
+	 * submitted unless every item can be converted.
+	 */
+	protected Promise<?, ?, ?>[] toPromises(Iterable<?> iterable) {
+		if (iterable == null) {
+			throw new IllegalArgumentException("Iterable is null");
+		}
+
+		Iterator<?> iterator = iterable.iterator();
+		if (!iterator.hasNext()) {
+			throw new IllegalArgumentException("Iterable is empty");
+		}
+
+		List<Object> items = new ArrayList<Object>();
+		while (iterator.hasNext()) {
+			Object object = iterator.next();
+			if (!canPromise(object)) {
+				throw new IllegalArgumentException("An item of type " + object.getClass().getName() + " cannot be converted to a Promise");
+			}
+			items.add(object);
+		}
+
+		Promise<?, ?, ?>[] promises = new Promise[items.size()];
+		for (int i = 0; i < promises.length; i++) {
+			promises[i] = toPromise(items.get(i));
+		}
+		return promises;
+	}
+
 	protected boolean canPromise(Object o) {
 		if (o instanceof DeferredFutureTask) {
 			return true;
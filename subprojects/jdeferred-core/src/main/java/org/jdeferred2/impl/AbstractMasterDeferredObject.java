@@ -15,6 +15,7 @@
  */
 package org.jdeferred2.impl;
 
+import org.jdeferred2.DeferredCancellationException;
 import org.jdeferred2.DoneCallback;
 import org.jdeferred2.FailCallback;
 import org.jdeferred2.ProgressCallback;
@@ -41,8 +42,18 @@ class AbstractMasterDeferredObject extends DeferredObject<MultipleResults, OneRe
 		this.numberOfPromises = results.size();
 	}
 
+	/**
+	 * Wraps the {@link DeferredCancellationException} in a {@link OneReject} with index {@code -1} and no promise, as the
+	 * cancellation is not caused by any particular input.
+	 */
+	@Override
+	protected OneReject<?> cancellationReason() {
+		return new OneReject<Throwable>(-1, null, DeferredCancellationException.INSTANCE);
+	}
+
 	protected <D, F, P> void configurePromise(final int index, final Promise<D, F, P> promise) {
-		promise.fail(new FailCallback<F>() {
+		dependOn(promise);
+		ObservingPromise.of(promise).fail(new FailCallback<F>() {
 			public void onFail(F result) {
 				synchronized (AbstractMasterDeferredObject.this) {
 					if (!AbstractMasterDeferredObject.this.isPending())
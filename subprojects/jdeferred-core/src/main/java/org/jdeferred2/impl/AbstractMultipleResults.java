@@ -36,6 +36,10 @@ abstract class AbstractMultipleResults implements MultipleResults {
 		this.results = new CopyOnWriteArrayList<OneResult<?>>(new OneResult[size]);
 	}
 
+	AbstractMultipleResults(List<OneResult<?>> results) {
+		this.results = new CopyOnWriteArrayList<OneResult<?>>(results);
+	}
+
 	@Override
 	public OneResult<?> get(int index) {
 		return results.get(index);
@@ -17,6 +17,8 @@ package org.jdeferred2.impl;
 
 import org.jdeferred2.multiple.OneResult;
 
+import java.util.List;
+
 /**
  * Base implementation of {@link MutableMultipleResults}.
  *
@@ -29,6 +31,10 @@ abstract class AbstractMutableMultipleResults extends AbstractMultipleResults im
 		super(size);
 	}
 
+	AbstractMutableMultipleResults(List<OneResult<?>> results) {
+		super(results);
+	}
+
 	public void set(int index, OneResult<?> result) {
 		results.set(index, result);
 	}
@@ -21,6 +21,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import org.jdeferred2.AlwaysCallback;
 import org.jdeferred2.AlwaysPipe;
 import org.jdeferred2.CallbackExceptionHandler;
+import org.jdeferred2.Deadline;
 import org.jdeferred2.DoneCallback;
 import org.jdeferred2.DoneFilter;
 import org.jdeferred2.DonePipe;
@@ -53,11 +54,24 @@ public abstract class AbstractPromise<D, F, P> implements Promise<D, F, P> {
 	protected D resolveResult;
 	protected F rejectResult;
 
+	protected volatile Deadline deadline;
+
 	@Override
 	public State state() {
 		return state;
 	}
 
+	/**
+	 * Returns the deadline inherited by stages derived from this promise.
+	 *
+	 * @return the deadline, or {@code null} if this promise has none
+	 *
+	 * @since 2.1
+	 */
+	public Deadline getDeadline() {
+		return deadline;
+	}
+
 	@Override
 	public Promise<D, F, P> done(DoneCallback<? super D> callback) {
 		synchronized (this) {
@@ -273,6 +287,35 @@ public abstract class AbstractPromise<D, F, P> implements Promise<D, F, P> {
 		}
 	}
 
+	/**
+	 * Makes {@link #deadline}, if any, the current one of this thread.
+	 *
+	 * @return the deadline to pass to {@link #exitDeadline(Deadline)}
+	 */
+	protected Deadline enterDeadline() {
+		return deadline != null ? Deadline.setCurrent(deadline) : null;
+	}
+
+	protected void exitDeadline(Deadline previous) {
+		if (deadline != null) {
+			Deadline.setCurrent(previous);
+		}
+	}
+
+	protected boolean isDeadlineExpired() {
+		return deadline != null && deadline.isExpired();
+	}
+
+	/**
+	 * @return the deadline carried by {@code promise}, or {@code null} if it has none
+	 */
+	protected static Deadline deadlineOf(Promise<?, ?, ?> promise) {
+		while (promise instanceof DelegatingPromise) {
+			promise = ((DelegatingPromise<?, ?, ?>) promise).getDelegate();
+		}
+		return promise instanceof AbstractPromise ? ((AbstractPromise<?, ?, ?>) promise).getDeadline() : null;
+	}
+
 	protected void handleException(CallbackExceptionHandler.CallbackType callbackType, Exception e) {
 		GlobalConfiguration.getGlobalCallbackExceptionHandler().handleException(callbackType, e);
 	}
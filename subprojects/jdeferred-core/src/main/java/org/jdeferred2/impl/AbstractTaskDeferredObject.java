@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.CancellationHandler;
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settles by running a {@link Callable} as one or more {@link DeferredFutureTask}s that are started on a
+ * {@link HashedWheelTimer}, such as retries, schedules and polls.
+ * <p>
+ * Each task is started according to the start policy of the {@link AbstractDeferredManager}, and its outcome is
+ * passed to {@link #onTaskDone(DeferredFutureTask, Object)} or {@link #onTaskFail(DeferredFutureTask, Throwable)}.
+ * Timeouts are handed off the timer thread before they run, so that they never settle this object on it.
+ * <p>
+ * As a {@link CancellationHandler}, this object cancels itself, so it can be handed to whatever should cancel it.
+ *
+ * @param <D> Type used for {@link #resolve(Object)}
+ * @param <P> Type used for {@link #notify(Object)}
+ * @param <R> Type of the result of the {@link Callable}
+ */
+abstract class AbstractTaskDeferredObject<D, P, R> extends DeferredObject<D, Throwable, P> implements Promise<D, Throwable, P>, CancellationHandler {
+	private final AbstractDeferredManager deferredManager;
+	private final Callable<R> callable;
+	private final HashedWheelTimer timer;
+
+	AbstractTaskDeferredObject(AbstractDeferredManager deferredManager, Callable<R> callable, HashedWheelTimer timer) {
+		this.deferredManager = deferredManager;
+		this.callable = callable;
+		this.timer = timer;
+	}
+
+	@Override
+	public void onCancel() {
+		cancel();
+	}
+
+	/**
+	 * Creates a task that runs the callable, started according to the start policy of the manager. Its outcome is
+	 * only passed on once the task is {@link #observe(DeferredFutureTask) observed}, which should happen outside of
+	 * any lock.
+	 */
+	protected DeferredFutureTask<R, Void> newTask() {
+		return deferredManager.autoStartTaskFor(callable);
+	}
+
+	protected void observe(final DeferredFutureTask<R, Void> task) {
+		deferredManager.when(task).done(new DoneCallback<R>() {
+			@Override
+			public void onDone(R result) {
+				onTaskDone(task, result);
+			}
+		}).fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable failure) {
+				onTaskFail(task, failure);
+			}
+		});
+	}
+
+	/**
+	 * Schedules {@code task} on the timer; it runs on a handoff thread once the delay elapsed.
+	 */
+	protected HashedWheelTimer.Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+		return timer.newTimeout(HashedWheelTimer.offTimerThread(task), delay, unit);
+	}
+
+	protected abstract void onTaskDone(DeferredFutureTask<R, Void> task, R result);
+
+	/**
+	 * Called when a task fails. The default implementation rejects this object with the failure, unless it settled
+	 * already.
+	 */
+	protected void onTaskFail(DeferredFutureTask<R, Void> task, Throwable failure) {
+		rejectIfPending(failure);
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.ProgressCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.multiple.MasterProgress;
+import org.jdeferred2.multiple.OneProgress;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pulls items lazily from an {@link Iterator}, keeping at most {@code maxConcurrency} of them in flight. The next
+ * item is converted into a {@link Promise} (and thus submitted) only when a previous one settles.
+ * <p>
+ * Pulling is serialized: whichever thread finds the puller idle pulls on behalf of all others, so the iterator is
+ * never accessed concurrently and settling promises never block on each other. An item that cannot be converted
+ * is treated as a rejected promise; a failing iterator additionally stops the pulling.
+ * <p>
+ * As the total number of items is unknown until the iterator is exhausted, {@link MasterProgress#getTotal()}
+ * reports the number of items pulled so far.
+ *
+ * @param <D> Type used for {@link #resolve(Object)}
+ * @param <F> Type used for {@link #reject(Object)}
+ */
+abstract class AbstractWindowedDeferredObject<D, F> extends DeferredObject<D, F, MasterProgress> implements Promise<D, F, MasterProgress> {
+	private final AbstractDeferredManager deferredManager;
+	private final Iterator<?> iterator;
+	private final int maxConcurrency;
+	private final AtomicInteger wip = new AtomicInteger();
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	// only accessed by the pulling thread, handed over through wip
+	private boolean exhausted;
+
+	// guarded by this
+	private int numberOfPromises;
+	private int doneCount;
+	private int failCount;
+
+	AbstractWindowedDeferredObject(AbstractDeferredManager deferredManager, Iterator<?> iterator, int maxConcurrency) {
+		this.deferredManager = deferredManager;
+		this.iterator = iterator;
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	/**
+	 * Starts pulling. Must be called once, after construction is complete.
+	 */
+	protected void start() {
+		drain();
+	}
+
+	/**
+	 * Records a result. Invoked while holding the lock on {@code this}, only while pending.
+	 */
+	protected abstract <D_IN> void onDone(int index, Promise<D_IN, ?, ?> promise, D_IN result);
+
+	/**
+	 * Records a rejection. Invoked while holding the lock on {@code this}, only while pending.
+	 */
+	protected abstract <F_IN> void onFail(int index, Promise<?, F_IN, ?> promise, F_IN reject);
+
+	/**
+	 * Invoked once every pulled item has settled and the iterator is exhausted, while holding the lock on
+	 * {@code this}, only while pending.
+	 */
+	protected abstract void onComplete();
+
+	private void drain() {
+		if (wip.getAndIncrement() != 0) {
+			return;
+		}
+
+		int missed = 1;
+		do {
+			while (!exhausted && isPending() && inFlight.get() < maxConcurrency) {
+				pull();
+			}
+
+			synchronized (this) {
+				if (exhausted && isPending() && doneCount + failCount == numberOfPromises) {
+					onComplete();
+				}
+			}
+
+			missed = wip.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	private void pull() {
+		Object item;
+		try {
+			if (!iterator.hasNext()) {
+				exhausted = true;
+				return;
+			}
+			item = iterator.next();
+		} catch (RuntimeException e) {
+			exhausted = true;
+			settle(new DeferredObject<Void, Throwable, Void>().reject(e));
+			return;
+		}
+
+		Promise<?, ?, ?> promise;
+		try {
+			if (!deferredManager.canPromise(item)) {
+				throw new IllegalArgumentException("An item of type " + (item == null ? null : item.getClass().getName()) + " cannot be converted to a Promise");
+			}
+			promise = deferredManager.toPromise(item);
+		} catch (RuntimeException e) {
+			promise = new DeferredObject<Void, Throwable, Void>().reject(e);
+		}
+		settle(promise);
+	}
+
+	private void settle(Promise<?, ?, ?> promise) {
+		int index;
+		synchronized (this) {
+			index = numberOfPromises++;
+		}
+		inFlight.incrementAndGet();
+		configurePromise(index, promise);
+	}
+
+	private void release() {
+		inFlight.decrementAndGet();
+		drain();
+	}
+
+	private <D_IN, F_IN, P_IN> void configurePromise(final int index, final Promise<D_IN, F_IN, P_IN> promise) {
+		dependOn(promise);
+		ObservingPromise.of(promise).fail(new FailCallback<F_IN>() {
+			public void onFail(F_IN result) {
+				synchronized (AbstractWindowedDeferredObject.this) {
+					if (AbstractWindowedDeferredObject.this.isPending()) {
+						failCount++;
+						AbstractWindowedDeferredObject.this.notify(new MasterProgress(
+							doneCount,
+							failCount,
+							numberOfPromises));
+
+						AbstractWindowedDeferredObject.this.onFail(index, promise, result);
+					}
+				}
+				release();
+			}
+		}).progress(new ProgressCallback<P_IN>() {
+			public void onProgress(P_IN progress) {
+				synchronized (AbstractWindowedDeferredObject.this) {
+					if (!AbstractWindowedDeferredObject.this.isPending())
+						return;
+
+					AbstractWindowedDeferredObject.this.notify(new OneProgress<P_IN>(
+						doneCount,
+						failCount,
+						numberOfPromises, index, promise, progress));
+				}
+			}
+		}).done(new DoneCallback<D_IN>() {
+			public void onDone(D_IN result) {
+				synchronized (AbstractWindowedDeferredObject.this) {
+					if (AbstractWindowedDeferredObject.this.isPending()) {
+						doneCount++;
+						AbstractWindowedDeferredObject.this.onDone(index, promise, result);
+						AbstractWindowedDeferredObject.this.notify(new MasterProgress(
+							doneCount,
+							failCount,
+							numberOfPromises));
+					}
+				}
+				release();
+			}
+		});
+	}
+}
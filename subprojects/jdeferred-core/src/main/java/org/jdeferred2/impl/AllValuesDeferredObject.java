@@ -46,7 +46,8 @@ class AllValuesDeferredObject extends DeferredObject<AllValues, Throwable, Maste
 	}
 
 	protected <D, F, P> void configurePromise(final int index, final Promise<D, F, P> promise) {
-		promise.fail(new FailCallback<F>() {
+		dependOn(promise);
+		ObservingPromise.of(promise).fail(new FailCallback<F>() {
 			public void onFail(F result) {
 				synchronized (AllValuesDeferredObject.this) {
 					if (!AllValuesDeferredObject.this.isPending())
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link ThreadPoolExecutor} with a bounded number of threads, a bounded queue and an explicit
+ * {@link SaturationPolicy} for tasks that arrive when both are full.
+ * <p>
+ * Unlike {@link java.util.concurrent.Executors#newCachedThreadPool()}, a burst of tasks cannot make it create
+ * threads without limit: overload turns into rejections, back-pressure on the submitter or a bounded wait, depending
+ * on the policy. {@link DefaultDeferredManager} turns rejected tasks into rejected promises. Idle threads time out
+ * after the keep-alive time.
+ * <p>
+ * Tasks submitted from a {@link HashedWheelTimer#isTimerThread() timer thread}, such as retries, scheduled runs or
+ * rate-limited tasks, are always refused as under {@link SaturationPolicy#REJECT}: running or waiting on the timer
+ * thread would hold up every other timeout.
+ *
+ * @since 2.1
+ */
+public class BoundedExecutorService extends ThreadPoolExecutor {
+	/**
+	 * What to do with a task that arrives when every thread is busy and the queue is full.
+	 */
+	public enum SaturationPolicy {
+		/**
+		 * Refuse the task with a {@link RejectedExecutionException}, which rejects its promise.
+		 */
+		REJECT,
+		/**
+		 * Run the task on the submitting thread, which slows the submitter down.
+		 */
+		CALLER_RUNS,
+		/**
+		 * Wait up to the block timeout for room in the queue, then refuse the task as {@link #REJECT} does.
+		 */
+		BLOCK
+	}
+
+	public static final long DEFAULT_KEEP_ALIVE_SECONDS = 60;
+
+	private final SaturationPolicy saturationPolicy;
+	private final int queueCapacity;
+	private final long blockTimeoutNanos;
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private final AtomicLong callerRunsCount = new AtomicLong();
+
+	/**
+	 * Equivalent to {@link #BoundedExecutorService(int, int, SaturationPolicy, long, TimeUnit)} without a block
+	 * timeout.
+	 */
+	public BoundedExecutorService(int maxThreads, int queueCapacity, SaturationPolicy saturationPolicy) {
+		this(maxThreads, queueCapacity, saturationPolicy, 0L, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param maxThreads       the maximum number of threads. Must be positive
+	 * @param queueCapacity    the maximum number of queued tasks. Must be positive
+	 * @param saturationPolicy what to do with a task when the threads and the queue are full. Must not be null
+	 * @param blockTimeout     how long {@link SaturationPolicy#BLOCK} waits for room in the queue. Must not be
+	 *                         negative
+	 * @param unit             the unit of {@code blockTimeout}. Must not be null
+	 */
+	public BoundedExecutorService(int maxThreads, int queueCapacity, SaturationPolicy saturationPolicy,
+	                              long blockTimeout, TimeUnit unit) {
+		super(maxThreads, maxThreads, DEFAULT_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<Runnable>(queueCapacity));
+		if (saturationPolicy == null) {
+			throw new IllegalArgumentException("Argument 'saturationPolicy' must not be null");
+		}
+		if (unit == null) {
+			throw new IllegalArgumentException("Argument 'unit' must not be null");
+		}
+		if (blockTimeout < 0) {
+			throw new IllegalArgumentException("Argument 'blockTimeout' must not be negative but was " + blockTimeout);
+		}
+
+		this.saturationPolicy = saturationPolicy;
+		this.queueCapacity = queueCapacity;
+		this.blockTimeoutNanos = unit.toNanos(blockTimeout);
+		allowCoreThreadTimeOut(true);
+		setRejectedExecutionHandler(new SaturationHandler());
+	}
+
+	public SaturationPolicy getSaturationPolicy() {
+		return saturationPolicy;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * @return the number of tasks waiting in the queue
+	 */
+	public int getQueueDepth() {
+		return getQueue().size();
+	}
+
+	/**
+	 * @return the number of tasks refused because the executor was saturated or shut down
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * @return the number of tasks run on the submitting thread by {@link SaturationPolicy#CALLER_RUNS}
+	 */
+	public long getCallerRunsCount() {
+		return callerRunsCount.get();
+	}
+
+	private class SaturationHandler implements RejectedExecutionHandler {
+		@Override
+		public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+			if (!executor.isShutdown() && !HashedWheelTimer.isTimerThread()) {
+				switch (saturationPolicy) {
+					case CALLER_RUNS:
+						callerRunsCount.incrementAndGet();
+						task.run();
+						return;
+					case BLOCK:
+						try {
+							if (executor.getQueue().offer(task, blockTimeoutNanos, TimeUnit.NANOSECONDS)
+								&& !(executor.isShutdown() && executor.remove(task))) {
+								return;
+							}
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						break;
+					default:
+						break;
+				}
+			}
+
+			rejectedCount.incrementAndGet();
+			throw new RejectedExecutionException("Task rejected: " + (executor.isShutdown() ? "executor is shut down"
+				: "all " + executor.getMaximumPoolSize() + " threads are busy and the queue of " + queueCapacity + " is full"));
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether a task that has waited in the queue is still worth running, CoDel style.
+ * <p>
+ * The queue counts as overloaded for the next interval when even the shortest queue time seen during an interval
+ * was above the target, i.e. when the queue never drained. While overloaded, tasks that waited longer than the
+ * target are dropped; otherwise only tasks that waited longer than a whole interval are. A standing queue is thus
+ * cut down quickly while short bursts are absorbed.
+ */
+final class CoDelLoadShedder {
+	private final long targetNanos;
+	private final long intervalNanos;
+
+	// guarded by this
+	private long intervalEnd;
+	private long minQueueTimeNanos = Long.MAX_VALUE;
+	private boolean overloaded;
+
+	CoDelLoadShedder(long target, long interval, TimeUnit unit) {
+		if (unit == null) {
+			throw new IllegalArgumentException("Argument 'unit' must not be null");
+		}
+		if (target < 1) {
+			throw new IllegalArgumentException("Argument 'target' must be positive but was " + target);
+		}
+		if (interval < target) {
+			throw new IllegalArgumentException("Argument 'interval' must not be shorter than the target but was " + interval);
+		}
+
+		this.targetNanos = unit.toNanos(target);
+		this.intervalNanos = unit.toNanos(interval);
+	}
+
+	/**
+	 * @param queueTimeNanos how long the task has been waiting
+	 *
+	 * @return {@code true} if the task should be dropped rather than run
+	 */
+	synchronized boolean shouldDrop(long queueTimeNanos) {
+		long now = System.nanoTime();
+		if (intervalEnd == 0L) {
+			intervalEnd = now + intervalNanos;
+		}
+		minQueueTimeNanos = Math.min(minQueueTimeNanos, queueTimeNanos);
+		if (now - intervalEnd >= 0) {
+			overloaded = minQueueTimeNanos > targetNanos;
+			minQueueTimeNanos = Long.MAX_VALUE;
+			intervalEnd = now + intervalNanos;
+		}
+		return queueTimeNanos > (overloaded ? targetNanos : intervalNanos);
+	}
+
+	synchronized boolean isOverloaded() {
+		return overloaded;
+	}
+}
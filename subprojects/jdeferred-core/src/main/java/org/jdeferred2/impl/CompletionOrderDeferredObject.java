@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.CallbackExceptionHandler;
+import org.jdeferred2.DeferredCancellationException;
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.multiple.MasterProgress;
+import org.jdeferred2.multiple.OneReject;
+import org.jdeferred2.multiple.OneResult;
+import org.jdeferred2.multiple.OneValue;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands each settled promise over to a consumer in completion order, without retaining it.
+ * <p>
+ * Settled values are queued lock-free by the thread that settles them; whichever thread finds the queue idle
+ * drains it. The consumer is therefore never invoked concurrently nor under a lock, and delivery order matches
+ * the order in which the values were queued. Resolves with the final {@link MasterProgress} once every promise
+ * was delivered.
+ * <p>
+ * When {@code failFast} is set, the first rejection rejects this object and ends the delivery; otherwise
+ * rejections are delivered to the consumer like any other value.
+ *
+ * @param <F> Type used for {@link #reject(Object)}
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+class CompletionOrderDeferredObject<F> extends DeferredObject<MasterProgress, F, Void> implements Promise<MasterProgress, F, Void> {
+	private final int numberOfPromises;
+	private final boolean failFast;
+	private final DoneCallback consumer;
+	private final Queue<OneValue<?>> queue = new ConcurrentLinkedQueue<OneValue<?>>();
+	private final AtomicInteger wip = new AtomicInteger();
+
+	// only accessed by the draining thread, handed over through wip
+	private int doneCount;
+	private int failCount;
+
+	CompletionOrderDeferredObject(Promise<?, ?, ?>[] promises, DoneCallback<?> consumer, boolean failFast) {
+		this.numberOfPromises = promises.length;
+		this.failFast = failFast;
+		this.consumer = consumer;
+
+		for (int index = 0; index < numberOfPromises; index++) {
+			configurePromise(index, promises[index]);
+		}
+	}
+
+	/**
+	 * Fail-fast objects reject with a {@link OneReject}, so the {@link DeferredCancellationException} is wrapped in one
+	 * with index {@code -1}; otherwise it is reported as is.
+	 */
+	@Override
+	protected F cancellationReason() {
+		if (failFast) {
+			return (F) new OneReject<Throwable>(-1, null, DeferredCancellationException.INSTANCE);
+		}
+		return (F) DeferredCancellationException.INSTANCE;
+	}
+
+	private <D, F1> void configurePromise(final int index, final Promise<D, F1, ?> promise) {
+		dependOn(promise);
+		ObservingPromise.of(promise).fail(new FailCallback<F1>() {
+			public void onFail(F1 reject) {
+				offer(new OneReject<F1>(index, promise, reject));
+			}
+		}).done(new DoneCallback<D>() {
+			public void onDone(D result) {
+				offer(new OneResult<D>(index, promise, result));
+			}
+		});
+	}
+
+	private void offer(OneValue<?> value) {
+		if (!isPending()) {
+			return;
+		}
+
+		queue.offer(value);
+		if (wip.getAndIncrement() != 0) {
+			return;
+		}
+
+		int missed = 1;
+		do {
+			OneValue<?> next;
+			while ((next = queue.poll()) != null) {
+				if (isPending()) {
+					deliver(next);
+				}
+			}
+			missed = wip.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	private void deliver(OneValue<?> value) {
+		if (value instanceof OneReject) {
+			if (failFast) {
+				rejectIfPending((F) value);
+				return;
+			}
+			failCount++;
+		} else {
+			doneCount++;
+		}
+
+		try {
+			consumer.onDone(value);
+		} catch (Exception e) {
+			handleException(CallbackExceptionHandler.CallbackType.DONE_CALLBACK, e);
+		}
+
+		if (doneCount + failCount == numberOfPromises) {
+			resolveIfPending(new MasterProgress(doneCount, failCount, numberOfPromises));
+		}
+	}
+}
@@ -35,6 +35,10 @@ class DefaultAllValues implements AllValues {
 		this.values = new CopyOnWriteArrayList<OneValue<?>>(new OneValue[size]);
 	}
 
+	DefaultAllValues(List<OneValue<?>> values) {
+		this.values = new CopyOnWriteArrayList<OneValue<?>>(values);
+	}
+
 	@Override
 	public OneValue<?> get(int index) {
 		return values.get(index);
@@ -15,11 +15,19 @@
  */
 package org.jdeferred2.impl;
 
+import org.jdeferred2.DeferredFutureTask;
+
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A default implementation that runs deferred tasks using an {@link ExecutorService}.
@@ -42,6 +50,9 @@ public class DefaultDeferredManager extends AbstractDeferredManager {
 	
 	private final ExecutorService executorService;
 	private boolean autoSubmit = DEFAULT_AUTO_SUBMIT;
+	private volatile MicroBatchingExecutor microBatchingExecutor;
+	private volatile CoDelLoadShedder loadShedder;
+	private final AtomicLong shedCount = new AtomicLong();
 
 	/**
 	 * Equivalent to {@link #DefaultDeferredManager(ExecutorService)} using
@@ -77,16 +88,129 @@ public class DefaultDeferredManager extends AbstractDeferredManager {
 	}
 
 	public void shutdown() {
+		flushMicroBatch();
 		executorService.shutdown();
 	}
 
 	public List<Runnable> shutdownNow() {
+		flushMicroBatch();
 		return executorService.shutdownNow();
 	}
 
+	/**
+	 * Groups the tasks submitted by this manager into batches that run back to back as a single job of the
+	 * {@link ExecutorService}, saving one queue handoff per task. Worth it for many tiny tasks only: a task waits up
+	 * to {@code maxLinger} for its batch to fill, and a slow task delays the rest of its batch.
+	 *
+	 * @param maxBatchSize the number of tasks per batch. {@code 0} disables micro-batching
+	 * @param maxLinger    the longest time a task waits for its batch to fill. Must be positive
+	 * @param unit         the unit of {@code maxLinger}
+	 *
+	 * @see MicroBatchingExecutor
+	 * @since 2.1
+	 */
+	public void setMicroBatching(int maxBatchSize, long maxLinger, TimeUnit unit) {
+		MicroBatchingExecutor previous = microBatchingExecutor;
+		microBatchingExecutor = maxBatchSize == 0 ? null : new MicroBatchingExecutor(executorService, maxBatchSize, maxLinger, unit) {
+			@Override
+			protected void rejected(List<Runnable> batch, RejectedExecutionException exception) {
+				for (Runnable runnable : batch) {
+					rejectTask(runnable, exception);
+				}
+			}
+		};
+		if (previous != null) {
+			previous.flush();
+		}
+	}
+
+	/**
+	 * @since 2.1
+	 */
+	public boolean isMicroBatching() {
+		return microBatchingExecutor != null;
+	}
+
+	/**
+	 * Drops queued tasks, rejecting their promises with a {@link RejectedExecutionException} instead of running them,
+	 * once their time in the queue shows the executor cannot keep up. The queue counts as overloaded when no task
+	 * during a whole {@code interval} waited less than {@code target}; tasks are then dropped as soon as they waited
+	 * longer than {@code target}. Otherwise only tasks that waited longer than {@code interval} are dropped. This
+	 * keeps an overloaded manager working on fresh tasks whose callers are still waiting.
+	 *
+	 * @param target   the acceptable queue time. {@code 0} disables load shedding
+	 * @param interval the time over which the queue must fail to drain to count as overloaded. Must not be
+	 *                 shorter than {@code target}
+	 * @param unit     the unit of {@code target} and {@code interval}
+	 *
+	 * @since 2.1
+	 */
+	public void setLoadShedding(long target, long interval, TimeUnit unit) {
+		loadShedder = target == 0 ? null : new CoDelLoadShedder(target, interval, unit);
+	}
+
+	/**
+	 * @since 2.1
+	 */
+	public boolean isLoadShedding() {
+		return loadShedder != null;
+	}
+
+	/**
+	 * @return the number of tasks dropped by {@link #setLoadShedding(long, long, TimeUnit) load shedding}
+	 *
+	 * @since 2.1
+	 */
+	public long getShedCount() {
+		return shedCount.get();
+	}
+
+	private void flushMicroBatch() {
+		MicroBatchingExecutor batching = microBatchingExecutor;
+		if (batching != null) {
+			batching.flush();
+		}
+	}
+
+	/**
+	 * Runnables handed over by this manager are {@link org.jdeferred2.DeferredFutureTask}s, so they are executed
+	 * as they are rather than wrapped in yet another future. This keeps cancelled tasks recognizable by
+	 * {@link #purge()}. With {@link #setLoadShedding(long, long, TimeUnit) load shedding} on, they are wrapped in a
+	 * future that checks their queue time first and delegates everything else to the task. With
+	 * {@link #setMicroBatching(int, long, TimeUnit) micro-batching} on, they are buffered
+	 * into batches instead. A task refused by the executor, for example a saturated {@link BoundedExecutorService},
+	 * has its promise rejected with the {@link RejectedExecutionException}.
+	 */
 	@Override
 	protected void submit(Runnable runnable) {
-		executorService.submit(runnable);
+		if (runnable instanceof DeferredFutureTask) {
+			((DeferredFutureTask) runnable).markEnqueued();
+			CoDelLoadShedder shedder = loadShedder;
+			if (shedder != null) {
+				runnable = new SheddingTask((DeferredFutureTask) runnable, shedder);
+			}
+		}
+
+		MicroBatchingExecutor batching = microBatchingExecutor;
+		try {
+			if (batching != null) {
+				batching.execute(runnable);
+			} else {
+				executorService.execute(runnable);
+			}
+		} catch (RejectedExecutionException e) {
+			rejectTask(runnable, e);
+		}
+	}
+
+	private void rejectTask(Runnable runnable, RejectedExecutionException exception) {
+		if (runnable instanceof SheddingTask) {
+			((SheddingTask) runnable).task.reject(exception);
+		} else if (runnable instanceof DeferredFutureTask) {
+			((DeferredFutureTask) runnable).reject(exception);
+		} else {
+			throw exception;
+		}
 	}
 	
 	@Override
@@ -94,6 +218,16 @@ public class DefaultDeferredManager extends AbstractDeferredManager {
 		executorService.submit(callable);
 	}
 
+	/**
+	 * Drops cancelled tasks from the queue when the executor is a {@link ThreadPoolExecutor}.
+	 */
+	@Override
+	protected void purge() {
+		if (executorService instanceof ThreadPoolExecutor) {
+			((ThreadPoolExecutor) executorService).purge();
+		}
+	}
+
 	@Override
 	public boolean isAutoSubmit() {
 		return autoSubmit;
@@ -102,5 +236,55 @@ public class DefaultDeferredManager extends AbstractDeferredManager {
 	public void setAutoSubmit(boolean autoSubmit) {
 		this.autoSubmit = autoSubmit;
 	}
-	
+
+	/**
+	 * Checks the queue time of a task before running it. Implements {@link RunnableFuture} on behalf of the task so
+	 * that {@link ThreadPoolExecutor#purge()} still recognizes it once cancelled.
+	 */
+	private class SheddingTask implements RunnableFuture<Object> {
+		private final DeferredFutureTask<Object, ?> task;
+		private final CoDelLoadShedder shedder;
+
+		SheddingTask(DeferredFutureTask<Object, ?> task, CoDelLoadShedder shedder) {
+			this.task = task;
+			this.shedder = shedder;
+		}
+
+		@Override
+		public void run() {
+			long queueTimeNanos = task.getQueueTimeNanos();
+			if (!task.isDone() && shedder.shouldDrop(queueTimeNanos)) {
+				shedCount.incrementAndGet();
+				task.reject(new RejectedExecutionException("Task dropped after waiting "
+					+ TimeUnit.NANOSECONDS.toMillis(queueTimeNanos) + " ms in the queue"));
+			} else {
+				task.run();
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return task.cancel(mayInterruptIfRunning);
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return task.isCancelled();
+		}
+
+		@Override
+		public boolean isDone() {
+			return task.isDone();
+		}
+
+		@Override
+		public Object get() throws InterruptedException, ExecutionException {
+			return task.get();
+		}
+
+		@Override
+		public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			return task.get(timeout, unit);
+		}
+	}
 }
@@ -17,6 +17,8 @@ package org.jdeferred2.impl;
 
 import org.jdeferred2.multiple.OneValue;
 
+import java.util.List;
+
 /**
  * Base implementation of {@link MutableAllValues}.
  *
@@ -28,6 +30,10 @@ class DefaultMutableAllValues extends DefaultAllValues implements MutableAllValu
 		super(size);
 	}
 
+	DefaultMutableAllValues(List<OneValue<?>> values) {
+		super(values);
+	}
+
 	public void set(int index, OneValue<?> reject) {
 		values.set(index, reject);
 	}
@@ -15,12 +15,20 @@
  */
 package org.jdeferred2.impl;
 
+import org.jdeferred2.AlwaysCallback;
+import org.jdeferred2.CancellablePromise;
+import org.jdeferred2.CancellationHandler;
 import org.jdeferred2.Deferred;
+import org.jdeferred2.DeferredCancellationException;
 import org.jdeferred2.DoneCallback;
 import org.jdeferred2.FailCallback;
 import org.jdeferred2.ProgressCallback;
 import org.jdeferred2.Promise;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * An implementation of {@link Deferred} interface.
  * <p>
@@ -55,7 +63,16 @@ import org.jdeferred2.Promise;
  * @see FailCallback
  * @see ProgressCallback
  */
-public class DeferredObject<D, F, P> extends AbstractPromise<D, F, P> implements Deferred<D, F, P> {
+public class DeferredObject<D, F, P> extends AbstractPromise<D, F, P> implements Deferred<D, F, P>, CancellablePromise<D, F, P> {
+	private final List<CancellationHandler> cancellationHandlers = new CopyOnWriteArrayList<CancellationHandler>();
+
+	// guarded by this
+	private final List<DeferredObject<?, ?, ?>> upstreams = new ArrayList<DeferredObject<?, ?, ?>>();
+	private int dependents;
+	private boolean cancelled;
+	// set once a callback is registered by anything but a stage or internal bookkeeping
+	private volatile boolean consumed;
+
 	@Override
 	public Deferred<D, F, P> resolve(final D resolve) {
 		synchronized (this) {
@@ -105,4 +122,228 @@ public class DeferredObject<D, F, P> extends AbstractPromise<D, F, P> implements
 	public Promise<D, F, P> promise() {
 		return this;
 	}
+
+	@Override
+	public Promise<D, F, P> done(DoneCallback<? super D> callback) {
+		consumed = true;
+		return super.done(callback);
+	}
+
+	@Override
+	public Promise<D, F, P> fail(FailCallback<? super F> callback) {
+		consumed = true;
+		return super.fail(callback);
+	}
+
+	@Override
+	public Promise<D, F, P> always(AlwaysCallback<? super D, ? super F> callback) {
+		consumed = true;
+		return super.always(callback);
+	}
+
+	@Override
+	public Promise<D, F, P> progress(ProgressCallback<? super P> callback) {
+		consumed = true;
+		return super.progress(callback);
+	}
+
+	// registrations made through an ObservingPromise, which do not keep this object from being cancelled upstream
+
+	void observeDone(DoneCallback<? super D> callback) {
+		super.done(callback);
+	}
+
+	void observeFail(FailCallback<? super F> callback) {
+		super.fail(callback);
+	}
+
+	void observeAlways(AlwaysCallback<? super D, ? super F> callback) {
+		super.always(callback);
+	}
+
+	void observeProgress(ProgressCallback<? super P> callback) {
+		super.progress(callback);
+	}
+
+	@Override
+	public boolean cancel() {
+		List<DeferredObject<?, ?, ?>> released;
+		synchronized (this) {
+			if (!isPending())
+				return false;
+
+			F reason = cancellationReason();
+			cancelled = true;
+			released = new ArrayList<DeferredObject<?, ?, ?>>(upstreams);
+			upstreams.clear();
+			reject(reason);
+		}
+
+		for (CancellationHandler handler : cancellationHandlers) {
+			runCancellationHandler(handler);
+		}
+		release(released);
+		return true;
+	}
+
+	/**
+	 * Releases every promise this object depends on, as {@link #cancel()} does, for objects that settled before
+	 * their upstream did and no longer need its result, for example because they timed out.
+	 *
+	 * @since 2.1
+	 */
+	protected void releaseUpstreams() {
+		List<DeferredObject<?, ?, ?>> released;
+		synchronized (this) {
+			released = new ArrayList<DeferredObject<?, ?, ?>>(upstreams);
+			upstreams.clear();
+		}
+		release(released);
+	}
+
+	private static void release(List<DeferredObject<?, ?, ?>> released) {
+		for (DeferredObject<?, ?, ?> upstream : released) {
+			upstream.releaseDependent();
+		}
+	}
+
+	/**
+	 * Registers a handler to run when this object is {@link #cancel() cancelled}. The handler runs right away if
+	 * this object has already been cancelled.
+	 *
+	 * @param handler the handler to register. Must not be null.
+	 *
+	 * @since 2.1
+	 */
+	public void addCancellationHandler(CancellationHandler handler) {
+		if (handler == null) {
+			throw new NullPointerException("Argument 'handler' must not be null");
+		}
+
+		synchronized (this) {
+			if (!cancelled) {
+				cancellationHandlers.add(handler);
+				return;
+			}
+		}
+		runCancellationHandler(handler);
+	}
+
+	/**
+	 * Returns the value this object is rejected with when it is cancelled, the shared
+	 * {@link DeferredCancellationException#INSTANCE} by default. Objects whose failure type cannot hold it override
+	 * this to wrap it.
+	 *
+	 * @since 2.1
+	 */
+	@SuppressWarnings("unchecked")
+	protected F cancellationReason() {
+		return (F) DeferredCancellationException.INSTANCE;
+	}
+
+	/**
+	 * Records that this object consumes {@code upstream}. Cancelling this object releases it, and {@code upstream}
+	 * is cancelled once every object depending on it has done so, unless a callback was registered on it directly:
+	 * such a consumer cannot be released, so it keeps {@code upstream} alive. Callbacks this object registers on
+	 * {@code upstream} should therefore go through an {@link ObservingPromise}. Promises that are not backed by a
+	 * {@code DeferredObject} are never cancelled this way, as their other consumers cannot be tracked.
+	 *
+	 * @param upstream the promise this object depends on
+	 *
+	 * @since 2.1
+	 */
+	protected void dependOn(Promise<?, ?, ?> upstream) {
+		while (upstream instanceof DelegatingPromise) {
+			upstream = ((DelegatingPromise<?, ?, ?>) upstream).getDelegate();
+		}
+		if (!(upstream instanceof DeferredObject) || upstream == this) {
+			return;
+		}
+
+		DeferredObject<?, ?, ?> source = (DeferredObject<?, ?, ?>) upstream;
+		synchronized (source) {
+			if (!source.isPending()) {
+				return;
+			}
+			source.dependents++;
+		}
+
+		synchronized (this) {
+			if (!cancelled) {
+				upstreams.add(source);
+				return;
+			}
+		}
+		source.releaseDependent();
+	}
+
+	/**
+	 * Returns the value {@code promise} is rejected with when it is cancelled, or the shared
+	 * {@link DeferredCancellationException#INSTANCE} if it is not backed by a {@code DeferredObject}.
+	 */
+	static Object cancellationReasonOf(Promise<?, ?, ?> promise) {
+		while (promise instanceof DelegatingPromise) {
+			promise = ((DelegatingPromise<?, ?, ?>) promise).getDelegate();
+		}
+		if (promise instanceof DeferredObject) {
+			return ((DeferredObject<?, ?, ?>) promise).cancellationReason();
+		}
+		return DeferredCancellationException.INSTANCE;
+	}
+
+	private void releaseDependent() {
+		synchronized (this) {
+			if (--dependents > 0 || consumed || !isPending()) {
+				return;
+			}
+		}
+		cancel();
+	}
+
+	private void runCancellationHandler(CancellationHandler handler) {
+		try {
+			handler.onCancel();
+		} catch (Exception e) {
+			log.warn("Unexpected error when running a cancellation handler", e);
+		}
+	}
+
+	/**
+	 * Resolves this object unless it has already settled, for example because it was cancelled.
+	 *
+	 * @since 2.1
+	 */
+	protected void resolveIfPending(D resolve) {
+		synchronized (this) {
+			if (isPending()) {
+				resolve(resolve);
+			}
+		}
+	}
+
+	/**
+	 * Rejects this object unless it has already settled, for example because it was cancelled.
+	 *
+	 * @since 2.1
+	 */
+	protected void rejectIfPending(F reject) {
+		synchronized (this) {
+			if (isPending()) {
+				reject(reject);
+			}
+		}
+	}
+
+	/**
+	 * Notifies progress unless this object has already settled, for example because it was cancelled.
+	 *
+	 * @since 2.1
+	 */
+	protected void notifyIfPending(P progress) {
+		synchronized (this) {
+			if (isPending()) {
+				notify(progress);
+			}
+		}
+	}
 }
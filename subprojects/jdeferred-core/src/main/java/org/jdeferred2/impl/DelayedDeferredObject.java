@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.CancellationHandler;
+import org.jdeferred2.DeferredFutureTask;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Submits a {@link Callable} once a delay has elapsed on a {@link HashedWheelTimer}, and settles with its outcome.
+ * <p>
+ * Cancelling before the delay elapsed prevents the submission; cancelling afterwards cancels the task. Either way
+ * this object rejects with a {@link CancellationException}.
+ *
+ * @param <D> Type used for {@link #resolve(Object)}
+ */
+class DelayedDeferredObject<D> extends AbstractTaskDeferredObject<D, Void, D> {
+	// guarded by this
+	private HashedWheelTimer.Timeout timeout;
+	private DeferredFutureTask<D, Void> task;
+
+	DelayedDeferredObject(AbstractDeferredManager deferredManager, Callable<D> callable, HashedWheelTimer timer) {
+		super(deferredManager, callable, timer);
+
+		addCancellationHandler(new CancellationHandler() {
+			@Override
+			public void onCancel() {
+				stop();
+			}
+		});
+	}
+
+	/**
+	 * Schedules the submission. Must be called once, after construction is complete.
+	 */
+	synchronized void start(long delay, TimeUnit unit) {
+		timeout = newTimeout(new Runnable() {
+			@Override
+			public void run() {
+				submit();
+			}
+		}, delay, unit);
+	}
+
+	private void stop() {
+		DeferredFutureTask<D, Void> task;
+		synchronized (this) {
+			if (timeout != null) {
+				timeout.cancel();
+			}
+			task = this.task;
+		}
+
+		if (task != null) {
+			task.cancel();
+		}
+	}
+
+	private void submit() {
+		DeferredFutureTask<D, Void> task;
+		synchronized (this) {
+			if (!isPending()) {
+				return;
+			}
+			task = this.task = newTask();
+		}
+
+		observe(task);
+	}
+
+	@Override
+	protected void onTaskDone(DeferredFutureTask<D, Void> task, D result) {
+		resolveIfPending(result);
+	}
+}
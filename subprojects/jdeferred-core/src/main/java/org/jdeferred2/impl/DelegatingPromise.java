@@ -17,6 +17,7 @@ package org.jdeferred2.impl;
 
 import org.jdeferred2.AlwaysCallback;
 import org.jdeferred2.AlwaysPipe;
+import org.jdeferred2.CancellablePromise;
 import org.jdeferred2.DoneCallback;
 import org.jdeferred2.DoneFilter;
 import org.jdeferred2.DonePipe;
@@ -38,7 +39,7 @@ import org.jdeferred2.Promise;
  * @author Andres Almiray
  * @since 1.2.5
  */
-public abstract class DelegatingPromise<D, F, P> implements Promise<D, F, P> {
+public abstract class DelegatingPromise<D, F, P> implements CancellablePromise<D, F, P> {
 	private final Promise<D, F, P> delegate;
 
 	public DelegatingPromise(Promise<D, F, P> delegate) {
@@ -77,6 +78,19 @@ public abstract class DelegatingPromise<D, F, P> implements Promise<D, F, P> {
 		return getDelegate().isRejected();
 	}
 
+	/**
+	 * Cancels the delegate if it is a {@link CancellablePromise}.
+	 *
+	 * @return {@code true} if this call cancelled the delegate
+	 *
+	 * @since 2.1
+	 */
+	@Override
+	public boolean cancel() {
+		Promise<D, F, P> delegate = getDelegate();
+		return delegate instanceof CancellablePromise && ((CancellablePromise<D, F, P>) delegate).cancel();
+	}
+
 	@Override
 	public Promise<D, F, P> then(DoneCallback<? super D> doneCallback) {
 		return getDelegate().then(doneCallback);
@@ -15,6 +15,8 @@
  */
 package org.jdeferred2.impl;
 
+import org.jdeferred2.Deadline;
+import org.jdeferred2.DeferredTimeoutException;
 import org.jdeferred2.DoneCallback;
 import org.jdeferred2.DoneFilter;
 import org.jdeferred2.FailCallback;
@@ -32,6 +34,7 @@ public class FilteredPromise<D, F, P, D_OUT, F_OUT, P_OUT> extends DeferredObjec
 	private final DoneFilter<D, D_OUT> doneFilter;
 	private final FailFilter<F, F_OUT> failFilter;
 	private final ProgressFilter<P, P_OUT> progressFilter;
+	private final Promise<D, F, P> upstream;
 	
 	public FilteredPromise(final Promise<D, F, P> promise,
 						   final DoneFilter<? super D, ? extends D_OUT> doneFilter,
@@ -40,27 +43,79 @@ public class FilteredPromise<D, F, P, D_OUT, F_OUT, P_OUT> extends DeferredObjec
 		this.doneFilter = doneFilter == null ? NO_OP_DONE_FILTER : doneFilter;
 		this.failFilter = failFilter == null ? NO_OP_FAIL_FILTER : failFilter;
 		this.progressFilter = progressFilter == null ? NO_OP_PROGRESS_FILTER : progressFilter;
+		this.upstream = promise;
 		
-		promise.done(new DoneCallback<D>() {
-			@Override
-			public void onDone(D result) {
-				FilteredPromise.this.resolve(FilteredPromise.this.doneFilter.filterDone(result));
-			}
-		}).fail(new FailCallback<F>() {
+		this.deadline = deadlineOf(promise);
+		dependOn(promise);
+		final FailCallback<F> failSide = new FailCallback<F>() {
 
 			@Override
 			public void onFail(F result) {
-				FilteredPromise.this.reject(FilteredPromise.this.failFilter.filterFail(result));
+				if (!isPending()) {
+					return;
+				}
+
+				F_OUT filtered;
+				Deadline previous = enterDeadline();
+				try {
+					filtered = FilteredPromise.this.failFilter.filterFail(result);
+				} finally {
+					exitDeadline(previous);
+				}
+				rejectIfPending(filtered);
+			}
+		};
+		ObservingPromise.of(promise).done(new DoneCallback<D>() {
+			@Override
+			public void onDone(D result) {
+				if (!isPending()) {
+					return;
+				}
+				if (FilteredPromise.this.doneFilter != NO_OP_DONE_FILTER && isDeadlineExpired()) {
+					// the stage fails instead of running, so the failure goes through the fail filter
+					failSide.onFail((F) new DeferredTimeoutException("Deadline expired before the filter could run"));
+					return;
+				}
+
+				D_OUT filtered;
+				Deadline previous = enterDeadline();
+				try {
+					filtered = FilteredPromise.this.doneFilter.filterDone(result);
+				} finally {
+					exitDeadline(previous);
+				}
+				resolveIfPending(filtered);
 			}
-		}).progress(new ProgressCallback<P>() {
+		}).fail(failSide).progress(new ProgressCallback<P>() {
 
 			@Override
 			public void onProgress(P progress) {
-				FilteredPromise.this.notify(FilteredPromise.this.progressFilter.filterProgress(progress));
+				if (isPending()) {
+					notifyIfPending(FilteredPromise.this.progressFilter.filterProgress(progress));
+				}
 			}
 		});
 	}
-	
+
+	/**
+	 * Passes the deadline on only while failures pass through unchanged. A stage whose deadline expired fails with a
+	 * {@link DeferredTimeoutException}, which fits the failure type of the upstream promise but not necessarily the
+	 * one produced by a fail filter.
+	 */
+	@Override
+	public Deadline getDeadline() {
+		return failFilter == NO_OP_FAIL_FILTER ? deadline : null;
+	}
+
+	/**
+	 * Runs the cancellation reason of the upstream promise through the fail filter, so that the reason matches
+	 * {@code F_OUT} whenever the filter can handle the upstream failure type.
+	 */
+	@Override
+	protected F_OUT cancellationReason() {
+		return failFilter.filterFail((F) cancellationReasonOf(upstream));
+	}
+
 	public static final class NoOpDoneFilter<D> implements DoneFilter<D, D> {
 		@Override
 		public D filterDone(D result) {
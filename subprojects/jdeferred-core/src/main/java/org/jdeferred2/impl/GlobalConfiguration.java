@@ -23,6 +23,7 @@ import org.jdeferred2.CallbackExceptionHandler;
  */
 public final class GlobalConfiguration {
 	private static CallbackExceptionHandler globalCallbackExceptionHandler = new DefaultCallbackExceptionHandler();
+	private static volatile HashedWheelTimer globalTimer;
 
 	private GlobalConfiguration() {
 	}
@@ -37,4 +38,35 @@ public final class GlobalConfiguration {
 	public static CallbackExceptionHandler getGlobalCallbackExceptionHandler() {
 		return globalCallbackExceptionHandler;
 	}
+
+	/**
+	 * Replaces the timer shared by every {@code DeferredManager} for timeouts and delays. The previous timer is
+	 * not stopped.
+	 *
+	 * @since 2.1
+	 */
+	public static void setGlobalTimer(HashedWheelTimer timer) {
+		if (timer == null) {
+			throw new IllegalArgumentException("timer cannot be null");
+		}
+		globalTimer = timer;
+	}
+
+	/**
+	 * Returns the timer shared by every {@code DeferredManager} for timeouts and delays, creating it on first use.
+	 *
+	 * @since 2.1
+	 */
+	public static HashedWheelTimer getGlobalTimer() {
+		HashedWheelTimer timer = globalTimer;
+		if (timer == null) {
+			synchronized (GlobalConfiguration.class) {
+				timer = globalTimer;
+				if (timer == null) {
+					timer = globalTimer = new HashedWheelTimer();
+				}
+			}
+		}
+		return timer;
+	}
 }
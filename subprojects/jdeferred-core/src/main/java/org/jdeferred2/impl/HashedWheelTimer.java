@@ -0,0 +1,447 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A timer optimized for large numbers of short-lived timeouts that are usually cancelled before they expire,
+ * such as promise deadlines.
+ * <p>
+ * Timeouts are kept in a wheel of buckets, one per tick, and are expired by a single daemon thread, which is
+ * started on demand. Scheduling and cancelling a timeout are lock-free and never touch the wheel directly: both
+ * are queued and applied by the worker thread on its next tick. Timeouts therefore expire with a granularity of
+ * one tick, and never early.
+ * <p>
+ * Tasks are run on the worker thread and must be short; a slow task delays every other timeout. Timeouts that settle
+ * promises therefore only hand their work over to a small shared pool of daemon threads, so that callbacks never run
+ * on the worker thread.
+ *
+ * @see GlobalConfiguration#getGlobalTimer()
+ * @since 2.1
+ */
+public class HashedWheelTimer {
+	private static final Logger LOG = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+	public static final long DEFAULT_TICK_DURATION_MILLIS = 10;
+	public static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+	private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+	private static final int WORKER_INIT = 0;
+	private static final int WORKER_STARTED = 1;
+	private static final int WORKER_SHUTDOWN = 2;
+
+	private final AtomicInteger workerState = new AtomicInteger(WORKER_INIT);
+	private final long tickDuration;
+	private final Bucket[] wheel;
+	private final int mask;
+	private final Queue<Timeout> timeouts = new ConcurrentLinkedQueue<Timeout>();
+	private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<Timeout>();
+	private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
+	private final Thread workerThread;
+
+	private volatile long startTime;
+
+	/**
+	 * Equivalent to {@link #HashedWheelTimer(long, TimeUnit, int)} using a tick of
+	 * {@value #DEFAULT_TICK_DURATION_MILLIS} milliseconds and {@value #DEFAULT_TICKS_PER_WHEEL} ticks per wheel.
+	 */
+	public HashedWheelTimer() {
+		this(DEFAULT_TICK_DURATION_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_TICKS_PER_WHEEL);
+	}
+
+	/**
+	 * @param tickDuration  the duration of a tick, i.e. the granularity of timeouts. Must be positive
+	 * @param unit          the unit of {@code tickDuration}. Must not be null
+	 * @param ticksPerWheel the number of buckets in the wheel, rounded up to a power of two. Must be positive
+	 */
+	public HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+		if (unit == null) {
+			throw new IllegalArgumentException("Argument 'unit' cannot be null");
+		}
+		if (tickDuration <= 0) {
+			throw new IllegalArgumentException("Argument 'tickDuration' must be positive but was " + tickDuration);
+		}
+		if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+			throw new IllegalArgumentException("Argument 'ticksPerWheel' must be between 1 and 2^30 but was " + ticksPerWheel);
+		}
+
+		int normalizedTicksPerWheel = 1;
+		while (normalizedTicksPerWheel < ticksPerWheel) {
+			normalizedTicksPerWheel <<= 1;
+		}
+
+		this.wheel = new Bucket[normalizedTicksPerWheel];
+		for (int i = 0; i < wheel.length; i++) {
+			wheel[i] = new Bucket();
+		}
+		this.mask = wheel.length - 1;
+		this.tickDuration = unit.toNanos(tickDuration);
+		if (this.tickDuration >= Long.MAX_VALUE / wheel.length) {
+			throw new IllegalArgumentException("Argument 'tickDuration' is too large: " + tickDuration + " " + unit);
+		}
+
+		this.workerThread = new WorkerThread(new Worker());
+		this.workerThread.setDaemon(true);
+	}
+
+	/**
+	 * Returns whether the calling thread is the worker thread of a {@code HashedWheelTimer}, i.e. whether the caller
+	 * is a timer task and must not block.
+	 */
+	public static boolean isTimerThread() {
+		return Thread.currentThread() instanceof WorkerThread;
+	}
+
+	/**
+	 * Wraps {@code task} so that the worker thread only hands it over to the {@link #handoffExecutor() handoff executor}
+	 * when its timeout expires. Used by timeouts that settle a promise and thereby run arbitrary callbacks.
+	 */
+	static Runnable offTimerThread(final Runnable task) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				Handoff.EXECUTOR.execute(task);
+			}
+		};
+	}
+
+	/**
+	 * Returns the shared pool of daemon threads that expired tasks are handed over to, so that they don't delay the
+	 * worker thread. Its threads time out when idle.
+	 */
+	static Executor handoffExecutor() {
+		return Handoff.EXECUTOR;
+	}
+
+	/**
+	 * Schedules {@code task} to run once after {@code delay}.
+	 *
+	 * @param task  the task to run. Must not be null
+	 * @param delay the delay. Values less or equal to zero expire on the next tick
+	 * @param unit  the unit of {@code delay}. Must not be null
+	 *
+	 * @return a handle that can be used to cancel the timeout
+	 *
+	 * @throws IllegalStateException if this timer has been stopped
+	 */
+	public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+		if (task == null) {
+			throw new IllegalArgumentException("Argument 'task' cannot be null");
+		}
+		if (unit == null) {
+			throw new IllegalArgumentException("Argument 'unit' cannot be null");
+		}
+
+		start();
+
+		long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
+		if (delay > 0 && deadline < 0) {
+			// guard against overflow
+			deadline = Long.MAX_VALUE;
+		}
+
+		Timeout timeout = new Timeout(this, task, deadline);
+		timeouts.add(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Stops the worker thread. Timeouts that have not expired yet are discarded.
+	 */
+	public void stop() {
+		if (Thread.currentThread() == workerThread) {
+			throw new IllegalStateException("HashedWheelTimer.stop() cannot be called from a timer task");
+		}
+
+		if (workerState.getAndSet(WORKER_SHUTDOWN) != WORKER_STARTED) {
+			return;
+		}
+
+		boolean interrupted = false;
+		while (workerThread.isAlive()) {
+			workerThread.interrupt();
+			try {
+				workerThread.join(100);
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void start() {
+		switch (workerState.get()) {
+			case WORKER_INIT:
+				if (workerState.compareAndSet(WORKER_INIT, WORKER_STARTED)) {
+					workerThread.start();
+				}
+				break;
+			case WORKER_STARTED:
+				break;
+			default:
+				throw new IllegalStateException("HashedWheelTimer cannot be started once stopped");
+		}
+
+		boolean interrupted = false;
+		while (startTime == 0) {
+			try {
+				startTimeInitialized.await();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static final class Handoff {
+		static final ThreadPoolExecutor EXECUTOR;
+
+		static {
+			int threads = Runtime.getRuntime().availableProcessors();
+			EXECUTOR = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "jdeferred-timer-handoff");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			EXECUTOR.allowCoreThreadTimeOut(true);
+		}
+	}
+
+	private static final class WorkerThread extends Thread {
+		WorkerThread(Runnable worker) {
+			super(worker, "jdeferred-timer");
+		}
+	}
+
+	private final class Worker implements Runnable {
+		private long tick;
+
+		@Override
+		public void run() {
+			long now = System.nanoTime();
+			// 0 is used as the "not started" marker
+			startTime = now == 0 ? 1 : now;
+			startTimeInitialized.countDown();
+
+			while (workerState.get() == WORKER_STARTED) {
+				long deadline = waitForNextTick();
+				if (deadline > 0) {
+					processCancelledTimeouts();
+					transferTimeoutsToBuckets();
+					wheel[(int) (tick & mask)].expireTimeouts(deadline);
+					tick++;
+				}
+			}
+		}
+
+		private void transferTimeoutsToBuckets() {
+			for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+				Timeout timeout = timeouts.poll();
+				if (timeout == null) {
+					break;
+				}
+				if (timeout.isCancelled()) {
+					continue;
+				}
+
+				long calculated = timeout.deadline / tickDuration;
+				timeout.remainingRounds = (calculated - tick) / wheel.length;
+
+				// never schedule into the past; expired timeouts go into the current bucket
+				long ticks = Math.max(calculated, tick);
+				wheel[(int) (ticks & mask)].add(timeout);
+			}
+		}
+
+		private void processCancelledTimeouts() {
+			Timeout timeout;
+			while ((timeout = cancelledTimeouts.poll()) != null) {
+				if (timeout.bucket != null) {
+					timeout.bucket.remove(timeout);
+				}
+			}
+		}
+
+		/**
+		 * @return the current time relative to the start time, or a non-positive value when stopped
+		 */
+		private long waitForNextTick() {
+			long deadline = tickDuration * (tick + 1);
+
+			for (; ; ) {
+				long currentTime = System.nanoTime() - startTime;
+				long sleepTimeMs = (deadline - currentTime + 999999) / 1000000;
+
+				if (sleepTimeMs <= 0) {
+					return currentTime == Long.MIN_VALUE ? -Long.MAX_VALUE : currentTime;
+				}
+
+				try {
+					Thread.sleep(sleepTimeMs);
+				} catch (InterruptedException e) {
+					if (workerState.get() == WORKER_SHUTDOWN) {
+						return Long.MIN_VALUE;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Doubly linked list of timeouts, only ever accessed by the worker thread.
+	 */
+	private static final class Bucket {
+		private Timeout head;
+		private Timeout tail;
+
+		void add(Timeout timeout) {
+			timeout.bucket = this;
+			if (head == null) {
+				head = tail = timeout;
+			} else {
+				tail.next = timeout;
+				timeout.prev = tail;
+				tail = timeout;
+			}
+		}
+
+		void expireTimeouts(long deadline) {
+			Timeout timeout = head;
+			while (timeout != null) {
+				Timeout next = timeout.next;
+				if (timeout.remainingRounds <= 0) {
+					remove(timeout);
+					if (timeout.deadline <= deadline) {
+						timeout.expire();
+					}
+				} else if (timeout.isCancelled()) {
+					remove(timeout);
+				} else {
+					timeout.remainingRounds--;
+				}
+				timeout = next;
+			}
+		}
+
+		void remove(Timeout timeout) {
+			if (timeout.bucket != this) {
+				return;
+			}
+
+			if (timeout.prev != null) {
+				timeout.prev.next = timeout.next;
+			}
+			if (timeout.next != null) {
+				timeout.next.prev = timeout.prev;
+			}
+			if (timeout == head) {
+				head = timeout.next;
+			}
+			if (timeout == tail) {
+				tail = timeout.prev;
+			}
+
+			timeout.prev = null;
+			timeout.next = null;
+			timeout.bucket = null;
+		}
+	}
+
+	/**
+	 * A handle on a scheduled task.
+	 */
+	public static final class Timeout {
+		private static final int ST_INIT = 0;
+		private static final int ST_CANCELLED = 1;
+		private static final int ST_EXPIRED = 2;
+
+		private static final AtomicIntegerFieldUpdater<Timeout> STATE_UPDATER =
+			AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+		private final HashedWheelTimer timer;
+		private final Runnable task;
+		private final long deadline;
+
+		private volatile int state = ST_INIT;
+
+		// only accessed by the worker thread
+		private long remainingRounds;
+		private Timeout next;
+		private Timeout prev;
+		private Bucket bucket;
+
+		private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+			this.timer = timer;
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Cancels the timeout, unless it has expired already.
+		 *
+		 * @return {@code true} if the task will not run because of this call
+		 */
+		public boolean cancel() {
+			if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+				return false;
+			}
+			timer.cancelledTimeouts.add(this);
+			return true;
+		}
+
+		public boolean isCancelled() {
+			return state == ST_CANCELLED;
+		}
+
+		public boolean isExpired() {
+			return state == ST_EXPIRED;
+		}
+
+		private void expire() {
+			if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+				return;
+			}
+
+			try {
+				task.run();
+			} catch (Throwable t) {
+				LOG.warn("An exception was thrown by a timer task", t);
+			}
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.AlwaysCallback;
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.LatencyPercentile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a {@link Callable} and, whenever no attempt has succeeded within the hedge delay, launches another attempt,
+ * up to {@code maxHedges} additional ones. The first attempt to succeed wins; the others are cancelled the same way
+ * {@link SingleDeferredObject} cancels its losers. The number of every hedge is notified as progress.
+ * <p>
+ * A failed attempt does not end the race while hedges remain: if every launched attempt has failed, the next hedge
+ * is launched right away instead of waiting for the delay. Rejects with the last failure once every attempt failed.
+ * <p>
+ * When a {@link LatencyPercentile} is given, the hedge delay is read from it before each hedge, and the latency of
+ * every attempt that completes is recorded to it. A first attempt that loses to a hedge is recorded with the time it
+ * ran, a lower bound of its latency that is at least the hedge delay; leaving it out would censor the tail. Cancelled
+ * hedges are not recorded, as they may have run for a fraction of the delay only.
+ *
+ * @param <D> Type used for {@link #resolve(Object)}
+ */
+class HedgedDeferredObject<D> extends AbstractTaskDeferredObject<D, Integer, D> {
+	private final long delayNanos;
+	private final LatencyPercentile latency;
+	private final int maxHedges;
+
+	// guarded by this
+	private final List<DeferredFutureTask<D, Void>> tasks = new ArrayList<DeferredFutureTask<D, Void>>();
+	private int failed;
+	private DeferredFutureTask<D, Void> winner;
+	private HashedWheelTimer.Timeout pendingHedge;
+
+	/**
+	 * @param delayNanos the fixed hedge delay, ignored when {@code latency} is given
+	 * @param latency    the source of an adaptive hedge delay. May be null
+	 */
+	HedgedDeferredObject(AbstractDeferredManager deferredManager, Callable<D> callable, HashedWheelTimer timer,
+	                     long delayNanos, LatencyPercentile latency, int maxHedges) {
+		super(deferredManager, callable, timer);
+		this.delayNanos = delayNanos;
+		this.latency = latency;
+		this.maxHedges = maxHedges;
+
+		observeAlways(new AlwaysCallback<D, Throwable>() {
+			@Override
+			public void onAlways(State state, D resolved, Throwable rejected) {
+				cancelLosers();
+			}
+		});
+	}
+
+	/**
+	 * Starts the first attempt. Must be called once, after construction is complete.
+	 */
+	void start() {
+		launch();
+	}
+
+	private void launch() {
+		final DeferredFutureTask<D, Void> task;
+		final int hedge;
+		synchronized (this) {
+			if (!isPending() || tasks.size() > maxHedges) {
+				return;
+			}
+
+			if (pendingHedge != null) {
+				pendingHedge.cancel();
+				pendingHedge = null;
+			}
+
+			task = newTask();
+			tasks.add(task);
+
+			hedge = tasks.size() - 1;
+			if (hedge > 0) {
+				notify(hedge);
+			}
+			if (hedge < maxHedges) {
+				pendingHedge = newTimeout(new Runnable() {
+					@Override
+					public void run() {
+						launch();
+					}
+				}, latency != null ? latency.getNanos() : delayNanos, TimeUnit.NANOSECONDS);
+			}
+		}
+
+		final long start = System.nanoTime();
+		if (latency != null) {
+			ObservingPromise.of(task.promise()).always(new AlwaysCallback<D, Throwable>() {
+				@Override
+				public void onAlways(State state, D resolved, Throwable rejected) {
+					if (rejected instanceof CancellationException && !lostToHedge(hedge, task)) {
+						return;
+					}
+					latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+				}
+			});
+		}
+		observe(task);
+	}
+
+	@Override
+	protected void onTaskDone(DeferredFutureTask<D, Void> task, D result) {
+		synchronized (this) {
+			if (!isPending()) {
+				return;
+			}
+			winner = task;
+			resolve(result);
+		}
+	}
+
+	@Override
+	protected void onTaskFail(DeferredFutureTask<D, Void> task, Throwable failure) {
+		synchronized (this) {
+			if (!isPending()) {
+				return;
+			}
+			if (++failed < tasks.size()) {
+				return;
+			}
+			if (tasks.size() > maxHedges) {
+				reject(failure);
+				return;
+			}
+		}
+		// every launched attempt failed, don't wait for the delay
+		launch();
+	}
+
+	private synchronized boolean lostToHedge(int hedge, DeferredFutureTask<D, Void> task) {
+		return hedge == 0 && winner != null && winner != task;
+	}
+
+	private void cancelLosers() {
+		List<DeferredFutureTask<D, Void>> losers;
+		DeferredFutureTask<D, Void> winner;
+		synchronized (this) {
+			if (pendingHedge != null) {
+				pendingHedge.cancel();
+				pendingHedge = null;
+			}
+			losers = new ArrayList<DeferredFutureTask<D, Void>>(tasks);
+			winner = this.winner;
+		}
+
+		for (DeferredFutureTask<D, Void> task : losers) {
+			if (task != winner) {
+				task.cancel();
+			}
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link Executor} that groups tasks submitted close together into a single job of its delegate.
+ * <p>
+ * Tasks are buffered until {@code maxBatchSize} of them are waiting or {@code maxLinger} has elapsed since the first
+ * of them was buffered, whichever comes first. The batch is then handed to the delegate as one job that runs its
+ * tasks back to back on the same thread, paying for one queue handoff instead of one per task. This pays off for
+ * many tiny tasks; a long task delays the ones queued behind it in its batch.
+ * <p>
+ * A batch whose linger elapsed is handed over by the {@link #getFlushExecutor() flush executor} rather than by the
+ * timer thread, so a delegate that blocks or runs the batch in the calling thread does not hold up other timeouts.
+ * <p>
+ * A task that throws is logged and does not prevent the rest of its batch from running. The interrupt status of the
+ * worker thread is cleared before each task, so a task cancelled with interruption does not leak its interrupt into
+ * the next one.
+ *
+ * @since 2.1
+ */
+public class MicroBatchingExecutor implements Executor {
+	private static final Logger LOG = LoggerFactory.getLogger(MicroBatchingExecutor.class);
+
+	private final Executor delegate;
+	private final int maxBatchSize;
+	private final long maxLingerNanos;
+	private final Runnable lingerFlush = new Runnable() {
+		@Override
+		public void run() {
+			flush();
+		}
+	};
+
+	// guarded by this
+	private List<Runnable> buffer;
+	private HashedWheelTimer.Timeout linger;
+
+	/**
+	 * @param delegate     the executor that runs the batches. Must not be null
+	 * @param maxBatchSize the number of buffered tasks that triggers a batch. Must be positive
+	 * @param maxLinger    the longest time a task waits in the buffer. Must be positive
+	 * @param unit         the unit of {@code maxLinger}. Must not be null
+	 */
+	public MicroBatchingExecutor(Executor delegate, int maxBatchSize, long maxLinger, TimeUnit unit) {
+		if (delegate == null) {
+			throw new IllegalArgumentException("Argument 'delegate' must not be null");
+		}
+		if (unit == null) {
+			throw new IllegalArgumentException("Argument 'unit' must not be null");
+		}
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("Argument 'maxBatchSize' must be positive but was " + maxBatchSize);
+		}
+		if (maxLinger < 1) {
+			throw new IllegalArgumentException("Argument 'maxLinger' must be positive but was " + maxLinger);
+		}
+
+		this.delegate = delegate;
+		this.maxBatchSize = maxBatchSize;
+		this.maxLingerNanos = unit.toNanos(maxLinger);
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public long getMaxLinger(TimeUnit unit) {
+		return unit.convert(maxLingerNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		if (task == null) {
+			throw new IllegalArgumentException("Argument 'task' must not be null");
+		}
+
+		List<Runnable> full = null;
+		synchronized (this) {
+			if (buffer == null) {
+				buffer = new ArrayList<Runnable>(Math.min(maxBatchSize, 64));
+			}
+			buffer.add(task);
+			if (buffer.size() >= maxBatchSize) {
+				full = takeBuffer();
+			} else if (buffer.size() == 1) {
+				linger = getTimer().newTimeout(new Runnable() {
+					@Override
+					public void run() {
+						getFlushExecutor().execute(lingerFlush);
+					}
+				}, maxLingerNanos, TimeUnit.NANOSECONDS);
+			}
+		}
+
+		if (full != null) {
+			runBatch(full);
+		}
+	}
+
+	/**
+	 * Hands the buffered tasks to the delegate right away, if there are any.
+	 */
+	public void flush() {
+		List<Runnable> batch;
+		synchronized (this) {
+			if (buffer == null) {
+				return;
+			}
+			batch = takeBuffer();
+		}
+		runBatch(batch);
+	}
+
+	/**
+	 * @return the number of tasks waiting for the next batch
+	 */
+	public synchronized int getBufferedCount() {
+		return buffer == null ? 0 : buffer.size();
+	}
+
+	/**
+	 * Returns the timer that bounds the linger time. Defaults to {@link GlobalConfiguration#getGlobalTimer()}.
+	 */
+	protected HashedWheelTimer getTimer() {
+		return GlobalConfiguration.getGlobalTimer();
+	}
+
+	/**
+	 * Returns the executor that hands over batches whose linger elapsed. Defaults to the pool of daemon threads that
+	 * every timeout settling a promise is handed over to. It must not block or run the flush in the calling timer thread.
+	 */
+	protected Executor getFlushExecutor() {
+		return HashedWheelTimer.handoffExecutor();
+	}
+
+	// guarded by this
+	private List<Runnable> takeBuffer() {
+		if (linger != null) {
+			linger.cancel();
+			linger = null;
+		}
+		List<Runnable> batch = buffer;
+		buffer = null;
+		return batch;
+	}
+
+	private void runBatch(List<Runnable> batch) {
+		try {
+			if (batch.size() == 1) {
+				delegate.execute(batch.get(0));
+			} else {
+				delegate.execute(new Batch(batch));
+			}
+		} catch (RejectedExecutionException e) {
+			rejected(batch, e);
+		}
+	}
+
+	/**
+	 * Called when the delegate refuses a batch. A batch may be handed over from the flush executor, so the default
+	 * implementation only logs; override it to fail the tasks.
+	 *
+	 * @param batch     the tasks of the refused batch
+	 * @param exception the delegate's refusal
+	 */
+	protected void rejected(List<Runnable> batch, RejectedExecutionException exception) {
+		LOG.error("A batch of " + batch.size() + " tasks was rejected", exception);
+	}
+
+	private static final class Batch implements Runnable {
+		private final List<Runnable> tasks;
+
+		Batch(List<Runnable> tasks) {
+			this.tasks = tasks;
+		}
+
+		@Override
+		public void run() {
+			for (Runnable task : tasks) {
+				Thread.interrupted();
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					LOG.error("An uncaught exception occurred in a batched task", e);
+				}
+			}
+		}
+	}
+}
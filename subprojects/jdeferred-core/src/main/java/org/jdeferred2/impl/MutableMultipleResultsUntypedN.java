@@ -18,6 +18,8 @@ package org.jdeferred2.impl;
 import org.jdeferred2.multiple.MultipleResults;
 import org.jdeferred2.multiple.OneResult;
 
+import java.util.List;
+
 /**
  * Contains multiple instances of {@link OneResult}.
  *
@@ -29,4 +31,8 @@ class MutableMultipleResultsUntypedN extends AbstractMutableMultipleResults impl
 	MutableMultipleResultsUntypedN(int size) {
 		super(size);
 	}
+
+	MutableMultipleResultsUntypedN(List<OneResult<?>> results) {
+		super(results);
+	}
 }
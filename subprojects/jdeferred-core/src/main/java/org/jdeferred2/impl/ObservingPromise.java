@@ -0,0 +1,113 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.AlwaysCallback;
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.ProgressCallback;
+import org.jdeferred2.Promise;
+
+/**
+ * A view of a {@link DeferredObject} whose callback registrations do not count as consumers of it.
+ * <p>
+ * A promise with a callback registered on it directly is never cancelled because the stages derived from it were
+ * cancelled, as that callback still expects a result. Stages, aggregates and bookkeeping hooks that only observe a
+ * promise on behalf of their own consumers register through this view instead, so that they do not keep it alive.
+ *
+ * @param <D> Type used for {@link #done(DoneCallback)}
+ * @param <F> Type used for {@link #fail(FailCallback)}
+ * @param <P> Type used for {@link #progress(ProgressCallback)}
+ *
+ * @since 2.1
+ */
+public final class ObservingPromise<D, F, P> extends DelegatingPromise<D, F, P> {
+	private final DeferredObject<D, F, P> observed;
+
+	private ObservingPromise(DeferredObject<D, F, P> observed) {
+		super(observed);
+		this.observed = observed;
+	}
+
+	/**
+	 * Returns a view of {@code promise} whose registrations do not count as consumers, or {@code promise} itself
+	 * if it is not backed by a {@link DeferredObject}.
+	 *
+	 * @param promise the promise to observe. Must not be null.
+	 *
+	 * @return the view
+	 */
+	@SuppressWarnings("unchecked")
+	public static <D, F, P> Promise<D, F, P> of(Promise<D, F, P> promise) {
+		if (promise == null) {
+			throw new NullPointerException("Argument 'promise' must not be null");
+		}
+
+		Promise<D, F, P> target = promise;
+		while (target instanceof DelegatingPromise && !(target instanceof ObservingPromise)) {
+			target = ((DelegatingPromise<D, F, P>) target).getDelegate();
+		}
+		if (target instanceof ObservingPromise) {
+			return target;
+		}
+		if (target instanceof DeferredObject) {
+			return new ObservingPromise<D, F, P>((DeferredObject<D, F, P>) target);
+		}
+		return promise;
+	}
+
+	@Override
+	public Promise<D, F, P> then(DoneCallback<? super D> doneCallback) {
+		return done(doneCallback);
+	}
+
+	@Override
+	public Promise<D, F, P> then(DoneCallback<? super D> doneCallback, FailCallback<? super F> failCallback) {
+		done(doneCallback);
+		return fail(failCallback);
+	}
+
+	@Override
+	public Promise<D, F, P> then(DoneCallback<? super D> doneCallback, FailCallback<? super F> failCallback, ProgressCallback<? super P> progressCallback) {
+		done(doneCallback);
+		fail(failCallback);
+		return progress(progressCallback);
+	}
+
+	@Override
+	public Promise<D, F, P> done(DoneCallback<? super D> callback) {
+		observed.observeDone(callback);
+		return this;
+	}
+
+	@Override
+	public Promise<D, F, P> fail(FailCallback<? super F> callback) {
+		observed.observeFail(callback);
+		return this;
+	}
+
+	@Override
+	public Promise<D, F, P> always(AlwaysCallback<? super D, ? super F> callback) {
+		observed.observeAlways(callback);
+		return this;
+	}
+
+	@Override
+	public Promise<D, F, P> progress(ProgressCallback<? super P> callback) {
+		observed.observeProgress(callback);
+		return this;
+	}
+}
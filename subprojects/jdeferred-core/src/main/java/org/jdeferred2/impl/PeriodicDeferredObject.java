@@ -0,0 +1,110 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.CancellationHandler;
+import org.jdeferred2.DeferredFutureTask;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Submits a {@link Callable} at a fixed rate and notifies every result as progress, much like
+ * {@link java.util.concurrent.ScheduledExecutorService#scheduleAtFixedRate(Runnable, long, long, TimeUnit)}, but
+ * timed by a {@link HashedWheelTimer}.
+ * <p>
+ * Runs never overlap: if a run takes longer than the period, the next one is submitted as soon as it completes.
+ * The first failure rejects this object and ends the schedule, as does cancelling, which rejects with a
+ * {@link CancellationException}. This object never resolves.
+ *
+ * @param <D> Type of the notified results
+ */
+class PeriodicDeferredObject<D> extends AbstractTaskDeferredObject<Void, D, D> {
+	private final long periodNanos;
+
+	// guarded by this
+	private long nextRunNanos;
+	private HashedWheelTimer.Timeout timeout;
+	private DeferredFutureTask<D, Void> task;
+
+	PeriodicDeferredObject(AbstractDeferredManager deferredManager, Callable<D> callable, HashedWheelTimer timer, long periodNanos) {
+		super(deferredManager, callable, timer);
+		this.periodNanos = periodNanos;
+
+		addCancellationHandler(new CancellationHandler() {
+			@Override
+			public void onCancel() {
+				stop();
+			}
+		});
+	}
+
+	/**
+	 * Schedules the first run. Must be called once, after construction is complete.
+	 */
+	synchronized void start(long initialDelayNanos) {
+		nextRunNanos = System.nanoTime() + initialDelayNanos;
+		scheduleNextRun();
+	}
+
+	private void stop() {
+		DeferredFutureTask<D, Void> task;
+		synchronized (this) {
+			if (timeout != null) {
+				timeout.cancel();
+			}
+			task = this.task;
+		}
+
+		if (task != null) {
+			task.cancel();
+		}
+	}
+
+	// guarded by this
+	private void scheduleNextRun() {
+		timeout = newTimeout(new Runnable() {
+			@Override
+			public void run() {
+				submit();
+			}
+		}, nextRunNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	private void submit() {
+		DeferredFutureTask<D, Void> task;
+		synchronized (this) {
+			if (!isPending()) {
+				return;
+			}
+			task = this.task = newTask();
+		}
+
+		observe(task);
+	}
+
+	@Override
+	protected synchronized void onTaskDone(DeferredFutureTask<D, Void> task, D result) {
+		if (!isPending()) {
+			return;
+		}
+		this.task = null;
+		notify(result);
+		nextRunNanos += periodNanos;
+		scheduleNextRun();
+	}
+}
@@ -17,7 +17,9 @@ package org.jdeferred2.impl;
 
 import org.jdeferred2.AlwaysCallback;
 import org.jdeferred2.AlwaysPipe;
+import org.jdeferred2.Deadline;
 import org.jdeferred2.Deferred;
+import org.jdeferred2.DeferredTimeoutException;
 import org.jdeferred2.DoneCallback;
 import org.jdeferred2.DonePipe;
 import org.jdeferred2.FailCallback;
@@ -27,67 +29,146 @@ import org.jdeferred2.ProgressPipe;
 import org.jdeferred2.Promise;
 
 public class PipedPromise<D, F, P, D_OUT, F_OUT, P_OUT> extends DeferredObject<D_OUT, F_OUT, P_OUT> implements Promise<D_OUT, F_OUT, P_OUT>{
+	// the upstream promise whose failures are passed through unchanged, if any
+	private final Promise<?, ?, ?> failureSource;
+
 	public PipedPromise(final Promise<D, F, P> promise,
 						final DonePipe<? super D, ? extends D_OUT, ? extends F_OUT, ? extends P_OUT> doneFilter,
 						final FailPipe<? super F, ? extends D_OUT, ? extends F_OUT, ? extends P_OUT> failFilter,
 						final ProgressPipe<? super P, ? extends D_OUT, ? extends F_OUT, ? extends P_OUT> progressFilter) {
-		promise.done(new DoneCallback<D>() {
+		this.deadline = deadlineOf(promise);
+		this.failureSource = failFilter == null ? promise : null;
+		dependOn(promise);
+		final FailCallback<F> failSide = new FailCallback<F>() {
 			@SuppressWarnings("unchecked")
 			@Override
-			public void onDone(D result) {
-				if (doneFilter != null) pipe(doneFilter.pipeDone(result));
-				else PipedPromise.this.resolve((D_OUT) result);
-				
+			public void onFail(F result) {
+				if (!isPending()) {
+					return;
+				} else if (failFilter == null) {
+					rejectIfPending((F_OUT) result);
+				} else {
+					Deadline previous = enterDeadline();
+					try {
+						pipe(failFilter.pipeFail(result));
+					} finally {
+						exitDeadline(previous);
+					}
+				}
 			}
-		}).fail(new FailCallback<F>() {
+		};
+		ObservingPromise.of(promise).done(new DoneCallback<D>() {
 			@SuppressWarnings("unchecked")
 			@Override
-			public void onFail(F result) {
-				if (failFilter != null)  pipe(failFilter.pipeFail(result));
-				else PipedPromise.this.reject((F_OUT) result);
+			public void onDone(D result) {
+				if (!isPending()) {
+					return;
+				} else if (doneFilter == null) {
+					resolveIfPending((D_OUT) result);
+				} else if (isDeadlineExpired()) {
+					// the stage fails instead of running, so the failure goes through the fail pipe
+					failSide.onFail((F) expired());
+				} else {
+					Deadline previous = enterDeadline();
+					try {
+						pipe(doneFilter.pipeDone(result));
+					} finally {
+						exitDeadline(previous);
+					}
+				}
 			}
-		}).progress(new ProgressCallback<P>() {
+		}).fail(failSide).progress(new ProgressCallback<P>() {
 			@SuppressWarnings("unchecked")
 			@Override
 			public void onProgress(P progress) {
+				if (!isPending()) return;
 				if (progressFilter != null) pipe(progressFilter.pipeProgress(progress));
-				else PipedPromise.this.notify((P_OUT) progress);
+				else notifyIfPending((P_OUT) progress);
 			}
 		});
 	}
 	
 	public PipedPromise(final Promise<D, F, P_OUT> promise,
 						final AlwaysPipe<? super D, ? super F, ? extends D_OUT, ? extends F_OUT, ? extends P_OUT> alwaysFilter) {
-		promise.always(new AlwaysCallback<D, F>() {
+		this.deadline = deadlineOf(promise);
+		this.failureSource = null;
+		dependOn(promise);
+		ObservingPromise.of(promise).always(new AlwaysCallback<D, F>() {
 			@SuppressWarnings("unchecked")
 			@Override
 			public void onAlways(State state, D resolved, F rejected) {
-				pipe(alwaysFilter.pipeAlways(state, resolved, rejected));
+				if (!isPending()) {
+					return;
+				}
+				if (state == State.RESOLVED && isDeadlineExpired()) {
+					// the stage sees a rejection with the timeout instead of a resolution it can no longer act on
+					state = State.REJECTED;
+					resolved = null;
+					rejected = (F) expired();
+				}
+
+				Deadline previous = enterDeadline();
+				try {
+					pipe(alwaysFilter.pipeAlways(state, resolved, rejected));
+				} finally {
+					exitDeadline(previous);
+				}
 			}
 		}).progress(new ProgressCallback<P_OUT>() {
 			@Override
 			public void onProgress(P_OUT progress) {
-				PipedPromise.this.notify(progress);
+				notifyIfPending(progress);
 			}
 		});
 	}
 
+	/**
+	 * Passes the deadline on only while failures are not piped. A stage whose deadline expired fails with a
+	 * {@link DeferredTimeoutException}, which fits the failure type of the upstream promise but not necessarily the
+	 * one produced by a fail or always pipe.
+	 */
+	@Override
+	public Deadline getDeadline() {
+		return failureSource != null ? deadline : null;
+	}
+
+	/**
+	 * Passes the cancellation reason of the upstream promise through when failures are not piped; a piped failure
+	 * type cannot be derived without running the pipe, so the default reason is used otherwise.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected F_OUT cancellationReason() {
+		return failureSource != null ? (F_OUT) cancellationReasonOf(failureSource) : super.cancellationReason();
+	}
+
+	/**
+	 * Returns the failure a stage observes instead of running once the inherited deadline has expired. It is fed to
+	 * the fail or always pipe like any other failure, which requires the upstream failure type to be compatible with
+	 * {@link Throwable}, as it is for any chain started by
+	 * {@link org.jdeferred2.DeferredManager#withDeadline(Promise, Deadline)}.
+	 */
+	private static DeferredTimeoutException expired() {
+		return new DeferredTimeoutException("Deadline expired before the pipe could run");
+	}
+
 	protected Promise<? extends D_OUT, ? extends F_OUT, ? extends P_OUT> pipe(
 			Promise<? extends D_OUT, ? extends F_OUT, ? extends P_OUT> promise) {
-		promise.done(new DoneCallback<D_OUT>() {
+		dependOn(promise);
+		ObservingPromise.of(promise).done(new DoneCallback<D_OUT>() {
 			@Override
 			public void onDone(D_OUT result) {
-				PipedPromise.this.resolve(result);
+				resolveIfPending(result);
 			}
 		}).fail(new FailCallback<F_OUT>() {
 			@Override
 			public void onFail(F_OUT result) {
-				PipedPromise.this.reject(result);
+				rejectIfPending(result);
 			}
 		}).progress(new ProgressCallback<P_OUT>() {
 			@Override
 			public void onProgress(P_OUT progress) {
-				PipedPromise.this.notify(progress);
+				notifyIfPending(progress);
 			}
 		});
 		
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.AlwaysCallback;
+import org.jdeferred2.CancellationHandler;
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.DeferredTimeoutException;
+import org.jdeferred2.DoneFilter;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Submits a check repeatedly until its result satisfies a predicate, waiting for an interval on a
+ * {@link HashedWheelTimer} between the end of one check and the start of the next. The number of every
+ * unsatisfying check is notified as progress.
+ * <p>
+ * Rejects if a check fails or the predicate throws, with a {@link DeferredTimeoutException} once the timeout
+ * expires, or with a {@link CancellationException} when cancelled; the running check, if any, is cancelled.
+ *
+ * @param <D> Type used for {@link #resolve(Object)}
+ */
+class PollingDeferredObject<D> extends AbstractTaskDeferredObject<D, Integer, D> {
+	private final DoneFilter<? super D, Boolean> predicate;
+	private final long intervalNanos;
+
+	// guarded by this
+	private int attempts;
+	private HashedWheelTimer.Timeout deadline;
+	private HashedWheelTimer.Timeout nextPoll;
+	private DeferredFutureTask<D, Void> task;
+
+	PollingDeferredObject(AbstractDeferredManager deferredManager, Callable<D> check, DoneFilter<? super D, Boolean> predicate,
+	                      HashedWheelTimer timer, long intervalNanos) {
+		super(deferredManager, check, timer);
+		this.predicate = predicate;
+		this.intervalNanos = intervalNanos;
+
+		observeAlways(new AlwaysCallback<D, Throwable>() {
+			@Override
+			public void onAlways(State state, D resolved, Throwable rejected) {
+				cancelTimeouts();
+			}
+		});
+		addCancellationHandler(new CancellationHandler() {
+			@Override
+			public void onCancel() {
+				cancelTask();
+			}
+		});
+	}
+
+	/**
+	 * Arms the timeout and starts the first check. Must be called once, after construction is complete.
+	 */
+	void start(final long timeout, final TimeUnit unit) {
+		synchronized (this) {
+			deadline = newTimeout(new Runnable() {
+				@Override
+				public void run() {
+					stop(new DeferredTimeoutException("Condition was not met within " + timeout + " " + unit));
+				}
+			}, timeout, unit);
+		}
+		poll();
+	}
+
+	private synchronized void cancelTimeouts() {
+		if (deadline != null) {
+			deadline.cancel();
+		}
+		if (nextPoll != null) {
+			nextPoll.cancel();
+		}
+	}
+
+	private void cancelTask() {
+		DeferredFutureTask<D, Void> task;
+		synchronized (this) {
+			task = this.task;
+		}
+
+		if (task != null) {
+			task.cancel();
+		}
+	}
+
+	private void stop(Throwable reason) {
+		DeferredFutureTask<D, Void> task;
+		synchronized (this) {
+			if (!isPending()) {
+				return;
+			}
+			task = this.task;
+			reject(reason);
+		}
+
+		if (task != null) {
+			task.cancel();
+		}
+	}
+
+	private void poll() {
+		DeferredFutureTask<D, Void> task;
+		synchronized (this) {
+			if (!isPending()) {
+				return;
+			}
+			nextPoll = null;
+			task = this.task = newTask();
+		}
+
+		observe(task);
+	}
+
+	@Override
+	protected synchronized void onTaskDone(DeferredFutureTask<D, Void> task, D result) {
+		if (!isPending()) {
+			return;
+		}
+		this.task = null;
+
+		boolean satisfied;
+		try {
+			satisfied = Boolean.TRUE.equals(predicate.filterDone(result));
+		} catch (Exception e) {
+			reject(e);
+			return;
+		}
+
+		if (satisfied) {
+			resolve(result);
+			return;
+		}
+
+		notify(++attempts);
+		if (isPending()) {
+			nextPoll = newTimeout(new Runnable() {
+				@Override
+				public void run() {
+					poll();
+				}
+			}, intervalNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+}
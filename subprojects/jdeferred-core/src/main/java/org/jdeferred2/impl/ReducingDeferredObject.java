@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.DeferredCancellationException;
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.Reducer;
+import org.jdeferred2.multiple.MasterProgress;
+import org.jdeferred2.multiple.OneReject;
+import org.jdeferred2.multiple.OneResult;
+
+/**
+ * Folds every resolved value into a single accumulated value as soon as it arrives. Values are delivered one at a
+ * time by a {@link CompletionOrderDeferredObject}, so only the accumulated value is retained, regardless of the
+ * number of promises.
+ * <p>
+ * Rejects with the first {@link OneReject}; an exception thrown by the reducer is reported the same way, against
+ * the promise whose value could not be folded in.
+ *
+ * @param <D> Type of the folded values
+ * @param <R> Type of the accumulated value
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+class ReducingDeferredObject<D, R> extends DeferredObject<R, OneReject<?>, Void> implements Promise<R, OneReject<?>, Void> {
+	private final Reducer<R, ? super D> reducer;
+
+	// only accessed by the delivering thread of CompletionOrderDeferredObject
+	private R accumulated;
+
+	ReducingDeferredObject(Promise<?, ?, ?>[] promises, R identity, Reducer<R, ? super D> reducer) {
+		this.reducer = reducer;
+		this.accumulated = identity;
+
+		Promise<MasterProgress, OneReject<?>, Void> delivery = new CompletionOrderDeferredObject<OneReject<?>>(promises, new DoneCallback<OneResult<?>>() {
+			@Override
+			public void onDone(OneResult<?> result) {
+				accumulate(result);
+			}
+		}, true);
+		dependOn(delivery);
+		ObservingPromise.of(delivery).done(new DoneCallback<MasterProgress>() {
+			@Override
+			public void onDone(MasterProgress progress) {
+				resolveIfPending(accumulated);
+			}
+		}).fail(new FailCallback<OneReject<?>>() {
+			@Override
+			public void onFail(OneReject<?> reject) {
+				rejectIfPending(reject);
+			}
+		});
+	}
+
+	@Override
+	protected OneReject<?> cancellationReason() {
+		return new OneReject<Throwable>(-1, null, DeferredCancellationException.INSTANCE);
+	}
+
+	private void accumulate(OneResult<?> result) {
+		if (!isPending()) {
+			return;
+		}
+
+		try {
+			accumulated = reducer.reduce(accumulated, (D) result.getResult());
+		} catch (Exception e) {
+			rejectIfPending(new OneReject<Exception>(result.getIndex(), (Promise) result.getPromise(), e));
+		}
+	}
+}
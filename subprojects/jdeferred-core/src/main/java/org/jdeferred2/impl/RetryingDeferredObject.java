@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.CancellationHandler;
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.RetryPolicy;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a {@link Callable} until it succeeds or the {@link RetryPolicy} gives up, notifying the number of every
+ * retry as progress when it starts. Each attempt runs as a fresh {@link DeferredFutureTask}; the delay between attempts is
+ * awaited on a {@link HashedWheelTimer}, so no thread is held during backoff.
+ * <p>
+ * Cancelling stops further attempts, cancels the running one and rejects with a {@link CancellationException}.
+ *
+ * @param <D> Type used for {@link #resolve(Object)}
+ */
+class RetryingDeferredObject<D> extends AbstractTaskDeferredObject<D, Integer, D> {
+	private final RetryPolicy retryPolicy;
+
+	// guarded by this
+	private int attempt;
+	private DeferredFutureTask<D, Void> currentTask;
+	private HashedWheelTimer.Timeout pendingRetry;
+
+	RetryingDeferredObject(AbstractDeferredManager deferredManager, Callable<D> callable, RetryPolicy retryPolicy, HashedWheelTimer timer) {
+		super(deferredManager, callable, timer);
+		this.retryPolicy = retryPolicy;
+
+		addCancellationHandler(new CancellationHandler() {
+			@Override
+			public void onCancel() {
+				stopAttempts();
+			}
+		});
+	}
+
+	/**
+	 * Starts the first attempt. Must be called once, after construction is complete.
+	 */
+	void start() {
+		attempt();
+	}
+
+	private void stopAttempts() {
+		DeferredFutureTask<D, Void> task;
+		synchronized (this) {
+			if (pendingRetry != null) {
+				pendingRetry.cancel();
+			}
+			task = currentTask;
+		}
+
+		if (task != null) {
+			task.cancel();
+		}
+	}
+
+	private void attempt() {
+		DeferredFutureTask<D, Void> task;
+		synchronized (this) {
+			if (!isPending()) {
+				return;
+			}
+			int current = ++attempt;
+			pendingRetry = null;
+			task = currentTask = newTask();
+			if (current > 1) {
+				notify(current);
+			}
+		}
+
+		observe(task);
+	}
+
+	@Override
+	protected void onTaskDone(DeferredFutureTask<D, Void> task, D result) {
+		resolveIfPending(result);
+	}
+
+	@Override
+	protected synchronized void onTaskFail(DeferredFutureTask<D, Void> task, Throwable failure) {
+		if (!isPending()) {
+			return;
+		}
+
+		boolean retry;
+		try {
+			retry = retryPolicy.shouldRetry(attempt, failure);
+		} catch (Exception e) {
+			log.warn("Unexpected error when evaluating the retry condition", e);
+			retry = false;
+		}
+
+		if (!retry) {
+			reject(failure);
+			return;
+		}
+
+		pendingRetry = newTimeout(new Runnable() {
+			@Override
+			public void run() {
+				attempt();
+			}
+		}, retryPolicy.getDelayNanos(attempt), TimeUnit.NANOSECONDS);
+	}
+}
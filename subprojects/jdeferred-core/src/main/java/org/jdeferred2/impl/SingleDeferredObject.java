@@ -15,6 +15,10 @@
  */
 package org.jdeferred2.impl;
 
+import org.jdeferred2.AlwaysCallback;
+import org.jdeferred2.CancellablePromise;
+import org.jdeferred2.CancellationHandler;
+import org.jdeferred2.DeferredCancellationException;
 import org.jdeferred2.DeferredFutureTask;
 import org.jdeferred2.DoneCallback;
 import org.jdeferred2.FailCallback;
@@ -22,60 +26,131 @@ import org.jdeferred2.Promise;
 import org.jdeferred2.multiple.OneReject;
 import org.jdeferred2.multiple.OneResult;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
+ * Settles with the first of the given promises to settle. The decision is a single compare-and-set on
+ * {@link #winner}, so losers never contend on a lock and a race needs no shared state beyond that field.
+ * <p>
+ * Once settled, every loser is cancelled: tasks through {@link DeferredFutureTask#cancel()}, other
+ * inputs through {@link CancellablePromise#cancel()}, or their {@link CancellationHandler} if they are not
+ * cancellable. Cancelling this object claims the race for itself, so every input is a loser.
+ *
  * @author Andres Almiray
  */
+@SuppressWarnings({"rawtypes", "unchecked"})
 final class SingleDeferredObject extends DeferredObject<OneResult<?>, OneReject<Throwable>, Void> implements Promise<OneResult<?>, OneReject<Throwable>, Void> {
-	private int resolvedOrRejectedTaskIndex;
+	private static final AtomicIntegerFieldUpdater<SingleDeferredObject> WINNER =
+		AtomicIntegerFieldUpdater.newUpdater(SingleDeferredObject.class, "winner");
+
+	private static final int NONE = -1;
+	private static final int CANCELLED = -2;
+
+	private volatile int winner = NONE;
 
-	SingleDeferredObject(final DeferredFutureTask<?, ?>[] tasks) {
+	/**
+	 * @param tasks the tasks racing each other, each loser of which is cancelled
+	 * @param purge run once if a loser was cancelled before it started, to drop it from its executor's queue
+	 */
+	SingleDeferredObject(final DeferredFutureTask<?, ?>[] tasks, final Runnable purge) {
+		Promise<?, ?, ?>[] promises = new Promise[tasks.length];
 		for (int index = 0; index < tasks.length; index++) {
-			configureTask(index, tasks[index]);
+			promises[index] = tasks[index].promise();
 		}
+		configure(promises, tasks, null, purge);
+	}
+
+	/**
+	 * @param promises the promises racing each other, each loser of which is cancelled
+	 */
+	SingleDeferredObject(final Promise<?, ?, ?>[] promises) {
+		configure(promises, null, promises, null);
+	}
 
-		fail(new FailCallback<OneReject<Throwable>>() {
+	private void configure(Promise<?, ?, ?>[] promises, final DeferredFutureTask<?, ?>[] tasks, final Promise<?, ?, ?>[] losers, final Runnable purge) {
+		observeAlways(new AlwaysCallback<OneResult<?>, OneReject<Throwable>>() {
 			@Override
-			public void onFail(OneReject<Throwable> result) {
-				cancelAllTasks(tasks);
+			public void onAlways(State state, OneResult<?> resolved, OneReject<Throwable> rejected) {
+				if (cancelLosers(tasks, losers) && purge != null) {
+					purge.run();
+				}
 			}
 		});
 
-		done(new DoneCallback<OneResult<?>>() {
-			@Override
-			public void onDone(OneResult<?> result) {
-				cancelAllTasks(tasks);
+		for (int index = 0; index < promises.length; index++) {
+			configurePromise(index, promises[index]);
+		}
+	}
+
+	/**
+	 * A cancelled race has no winner, so the {@link DeferredCancellationException} is reported with index {@code -1}.
+	 */
+	@Override
+	protected OneReject<Throwable> cancellationReason() {
+		return new OneReject<Throwable>(-1, null, DeferredCancellationException.INSTANCE);
+	}
+
+	/**
+	 * Claims the race before cancelling, so that inputs settling afterwards, such as the losers cancelled in turn,
+	 * are ignored.
+	 */
+	@Override
+	public boolean cancel() {
+		return claim(CANCELLED) && super.cancel();
+	}
+
+	/**
+	 * @return whether a task was cancelled while it was still queued
+	 */
+	private boolean cancelLosers(DeferredFutureTask<?, ?>[] tasks, Promise<?, ?, ?>[] losers) {
+		final int winner = this.winner;
+		boolean queued = false;
+		if (tasks != null) {
+			for (int index = 0; index < tasks.length; index++) {
+				if (index != winner && !tasks[index].isDone() && tasks[index].cancel() && !tasks[index].isStarted()) {
+					queued = true;
+				}
 			}
-		});
+		}
+		if (losers != null) {
+			for (int index = 0; index < losers.length; index++) {
+				if (index != winner) {
+					cancelLoser(losers[index]);
+				}
+			}
+		}
+		return queued;
 	}
 
-	private void cancelAllTasks(DeferredFutureTask<?, ?>[] tasks) {
-		for (int index = 0; index < tasks.length; index++) {
-			DeferredFutureTask<?, ?> task = tasks[index];
-			if (index != resolvedOrRejectedTaskIndex) {
-				task.cancel(true);
+	private void cancelLoser(Promise<?, ?, ?> loser) {
+		try {
+			if (loser instanceof CancellablePromise) {
+				((CancellablePromise<?, ?, ?>) loser).cancel();
+			} else if (loser instanceof CancellationHandler) {
+				((CancellationHandler) loser).onCancel();
 			}
+		} catch (Throwable t) {
+			log.warn("Unexpected error when cancelling", t);
 		}
 	}
 
-	private <D, P> void configureTask(final int index, final DeferredFutureTask<D, P> task) {
-		task.promise().fail(new FailCallback<Throwable>() {
-			public void onFail(Throwable reject) {
-				synchronized (SingleDeferredObject.this) {
-					if (SingleDeferredObject.this.isPending()) {
-						// task $index is rejected
-						resolvedOrRejectedTaskIndex = index;
-						SingleDeferredObject.this.reject(new OneReject<Throwable>(index, task.promise(), reject));
-					}
+	private boolean claim(int index) {
+		return winner == NONE && WINNER.compareAndSet(this, NONE, index);
+	}
+
+	private <D, F> void configurePromise(final int index, final Promise<D, F, ?> promise) {
+		promise.fail(new FailCallback<F>() {
+			public void onFail(F reject) {
+				if (claim(index)) {
+					// promise $index is rejected
+					SingleDeferredObject.this.reject(new OneReject(index, promise, reject));
 				}
 			}
 		}).done(new DoneCallback<D>() {
 			public void onDone(D result) {
-				synchronized (SingleDeferredObject.this) {
-					if (SingleDeferredObject.this.isPending()) {
-						// task $index is resolved
-						resolvedOrRejectedTaskIndex = index;
-						SingleDeferredObject.this.resolve(new OneResult<D>(index, task.promise(), result));
-					}
+				if (claim(index)) {
+					// promise $index is resolved
+					SingleDeferredObject.this.resolve(new OneResult<D>(index, promise, result));
 				}
 			}
 		});
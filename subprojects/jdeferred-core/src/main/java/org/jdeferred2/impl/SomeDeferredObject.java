@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.AlwaysCallback;
+import org.jdeferred2.DeferredCancellationException;
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.multiple.AllValues;
+import org.jdeferred2.multiple.MasterProgress;
+import org.jdeferred2.multiple.MultipleResults;
+import org.jdeferred2.multiple.OneReject;
+import org.jdeferred2.multiple.OneResult;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves as soon as {@code count} of the given promises resolve, and rejects as soon as too many
+ * of them were rejected for that to happen. Results and rejections are stored in the order in
+ * which they arrive; each entry keeps the index of the promise it came from.
+ * <p>
+ * When the outcome is known, every task that is still pending is cancelled.
+ */
+final class SomeDeferredObject extends DeferredObject<MultipleResults, AllValues, MasterProgress> implements Promise<MultipleResults, AllValues, MasterProgress> {
+	private final int numberOfPromises;
+	private final int count;
+	private final MutableMultipleResults results;
+	private final MutableAllValues rejects;
+	private final AtomicInteger doneCount = new AtomicInteger();
+	private final AtomicInteger failCount = new AtomicInteger();
+
+	/**
+	 * @param count    the number of promises that have to resolve
+	 * @param promises the promises to observe
+	 * @param tasks    the tasks backing each promise, to be cancelled once settled. May be null, as may any of its items
+	 * @param purge    run once if a task was cancelled before it started, to drop it from its executor's queue. May be null
+	 */
+	SomeDeferredObject(int count, Promise<?, ?, ?>[] promises, final DeferredFutureTask<?, ?>[] tasks, final Runnable purge) {
+		this.numberOfPromises = promises.length;
+		this.count = count;
+		this.results = new MutableMultipleResultsUntypedN(count);
+		this.rejects = new DefaultMutableAllValues(numberOfPromises - count + 1);
+
+		if (tasks != null) {
+			observeAlways(new AlwaysCallback<MultipleResults, AllValues>() {
+				@Override
+				public void onAlways(State state, MultipleResults resolved, AllValues rejected) {
+					if (cancelPendingTasks(tasks) && purge != null) {
+						purge.run();
+					}
+				}
+			});
+		}
+
+		for (int index = 0; index < numberOfPromises; index++) {
+			configurePromise(index, promises[index]);
+		}
+	}
+
+	/**
+	 * Reports the {@link DeferredCancellationException} as the only rejection, with index {@code -1}.
+	 */
+	@Override
+	protected AllValues cancellationReason() {
+		MutableAllValues reasons = new DefaultMutableAllValues(1);
+		reasons.set(0, new OneReject<Throwable>(-1, null, DeferredCancellationException.INSTANCE));
+		return reasons;
+	}
+
+	/**
+	 * @return whether a task was cancelled while it was still queued
+	 */
+	private boolean cancelPendingTasks(DeferredFutureTask<?, ?>[] tasks) {
+		boolean queued = false;
+		for (DeferredFutureTask<?, ?> task : tasks) {
+			if (task != null && !task.isDone() && task.cancel() && !task.isStarted()) {
+				queued = true;
+			}
+		}
+		return queued;
+	}
+
+	private <D, F, P> void configurePromise(final int index, final Promise<D, F, P> promise) {
+		dependOn(promise);
+		ObservingPromise.of(promise).fail(new FailCallback<F>() {
+			public void onFail(F reject) {
+				synchronized (SomeDeferredObject.this) {
+					if (!SomeDeferredObject.this.isPending())
+						return;
+
+					final int fail = failCount.incrementAndGet();
+					rejects.set(fail - 1, new OneReject<F>(index, promise, reject));
+
+					SomeDeferredObject.this.notify(new MasterProgress(
+						doneCount.get(),
+						fail,
+						numberOfPromises));
+
+					if (numberOfPromises - fail < count) {
+						SomeDeferredObject.this.reject(rejects);
+					}
+				}
+			}
+		}).done(new DoneCallback<D>() {
+			public void onDone(D result) {
+				synchronized (SomeDeferredObject.this) {
+					if (!SomeDeferredObject.this.isPending())
+						return;
+
+					final int done = doneCount.incrementAndGet();
+					results.set(done - 1, new OneResult<D>(index, promise, result));
+
+					SomeDeferredObject.this.notify(new MasterProgress(
+						done,
+						failCount.get(),
+						numberOfPromises));
+
+					if (done == count) {
+						SomeDeferredObject.this.resolve(results);
+					}
+				}
+			}
+		});
+	}
+}
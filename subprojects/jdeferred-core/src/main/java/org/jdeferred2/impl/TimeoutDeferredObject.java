@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.CancellationHandler;
+import org.jdeferred2.DeferredTimeoutException;
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.ProgressCallback;
+import org.jdeferred2.Promise;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mirrors a {@link Promise}, unless it does not settle before the timeout expires, in which case this object
+ * rejects with a {@link DeferredTimeoutException}, releases the promise and invokes the optional
+ * {@link CancellationHandler}. Releasing the promise cancels it unless something else still depends on it.
+ * <p>
+ * The timeout is tracked by a {@link HashedWheelTimer} and cancelled as soon as the promise settles. An expired
+ * timeout is handed off the timer thread before this object rejects, so callbacks never run on it.
+ *
+ * @param <D> Type used for {@link #resolve(Object)}
+ * @param <P> Type used for {@link #notify(Object)}
+ */
+class TimeoutDeferredObject<D, P> extends DeferredObject<D, Throwable, P> implements Promise<D, Throwable, P> {
+	private final CancellationHandler cancellationHandler;
+	private final HashedWheelTimer.Timeout timeout;
+
+	TimeoutDeferredObject(Promise<D, ? extends Throwable, P> promise, CancellationHandler cancellationHandler,
+	                      HashedWheelTimer timer, final long duration, final TimeUnit unit) {
+		this.cancellationHandler = cancellationHandler;
+		this.timeout = timer.newTimeout(HashedWheelTimer.offTimerThread(new Runnable() {
+			@Override
+			public void run() {
+				expire(duration, unit);
+			}
+		}), duration, unit);
+
+		configurePromise(promise);
+	}
+
+	private <F extends Throwable> void configurePromise(Promise<D, F, P> promise) {
+		dependOn(promise);
+		ObservingPromise.of(promise).fail(new FailCallback<F>() {
+			public void onFail(F result) {
+				timeout.cancel();
+				synchronized (TimeoutDeferredObject.this) {
+					if (TimeoutDeferredObject.this.isPending()) {
+						TimeoutDeferredObject.this.reject(result);
+					}
+				}
+			}
+		}).progress(new ProgressCallback<P>() {
+			public void onProgress(P progress) {
+				synchronized (TimeoutDeferredObject.this) {
+					if (TimeoutDeferredObject.this.isPending()) {
+						TimeoutDeferredObject.this.notify(progress);
+					}
+				}
+			}
+		}).done(new DoneCallback<D>() {
+			public void onDone(D result) {
+				timeout.cancel();
+				synchronized (TimeoutDeferredObject.this) {
+					if (TimeoutDeferredObject.this.isPending()) {
+						TimeoutDeferredObject.this.resolve(result);
+					}
+				}
+			}
+		});
+	}
+
+	private void expire(long duration, TimeUnit unit) {
+		synchronized (this) {
+			if (!isPending()) {
+				return;
+			}
+			reject(new DeferredTimeoutException("Promise did not settle within " + duration + " " + unit));
+		}
+
+		releaseUpstreams();
+
+		if (cancellationHandler != null) {
+			try {
+				cancellationHandler.onCancel();
+			} catch (Exception e) {
+				log.warn("Unexpected error when cancelling a timed out task", e);
+			}
+		}
+	}
+}
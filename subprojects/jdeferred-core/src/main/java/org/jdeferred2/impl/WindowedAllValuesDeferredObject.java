@@ -0,0 +1,61 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.Promise;
+import org.jdeferred2.multiple.AllValues;
+import org.jdeferred2.multiple.OneReject;
+import org.jdeferred2.multiple.OneResult;
+import org.jdeferred2.multiple.OneValue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Bounded-concurrency counterpart of {@link AllValuesDeferredObject}: resolves with every resolution and
+ * rejection in iteration order.
+ */
+class WindowedAllValuesDeferredObject extends AbstractWindowedDeferredObject<AllValues, Throwable> {
+	// guarded by this
+	private final List<OneValue<?>> values = new ArrayList<OneValue<?>>();
+
+	WindowedAllValuesDeferredObject(AbstractDeferredManager deferredManager, Iterator<?> iterator, int maxConcurrency) {
+		super(deferredManager, iterator, maxConcurrency);
+	}
+
+	@Override
+	protected <D_IN> void onDone(int index, Promise<D_IN, ?, ?> promise, D_IN result) {
+		set(index, new OneResult<D_IN>(index, promise, result));
+	}
+
+	@Override
+	protected <F_IN> void onFail(int index, Promise<?, F_IN, ?> promise, F_IN reject) {
+		set(index, new OneReject<F_IN>(index, promise, reject));
+	}
+
+	@Override
+	protected void onComplete() {
+		resolve(new DefaultMutableAllValues(values));
+	}
+
+	private void set(int index, OneValue<?> value) {
+		while (values.size() <= index) {
+			values.add(null);
+		}
+		values.set(index, value);
+	}
+}
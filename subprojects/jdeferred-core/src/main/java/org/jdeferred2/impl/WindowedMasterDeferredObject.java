@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.DeferredCancellationException;
+import org.jdeferred2.Promise;
+import org.jdeferred2.multiple.MultipleResults;
+import org.jdeferred2.multiple.OneReject;
+import org.jdeferred2.multiple.OneResult;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Bounded-concurrency counterpart of {@link MasterDeferredObjectUntypedN}: rejects on the first rejection, or
+ * resolves with every result in iteration order.
+ */
+class WindowedMasterDeferredObject extends AbstractWindowedDeferredObject<MultipleResults, OneReject<?>> {
+	// guarded by this
+	private final List<OneResult<?>> results = new ArrayList<OneResult<?>>();
+
+	WindowedMasterDeferredObject(AbstractDeferredManager deferredManager, Iterator<?> iterator, int maxConcurrency) {
+		super(deferredManager, iterator, maxConcurrency);
+	}
+
+	@Override
+	protected OneReject<?> cancellationReason() {
+		return new OneReject<Throwable>(-1, null, DeferredCancellationException.INSTANCE);
+	}
+
+	@Override
+	protected <D_IN> void onDone(int index, Promise<D_IN, ?, ?> promise, D_IN result) {
+		while (results.size() <= index) {
+			results.add(null);
+		}
+		results.set(index, new OneResult<D_IN>(index, promise, result));
+	}
+
+	@Override
+	protected <F_IN> void onFail(int index, Promise<?, F_IN, ?> promise, F_IN reject) {
+		reject(new OneReject<F_IN>(index, promise, reject));
+	}
+
+	@Override
+	protected void onComplete() {
+		resolve(new MutableMultipleResultsUntypedN(results));
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+import org.jdeferred2.AlwaysCallback;
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.DeferredTimeoutException;
+import org.jdeferred2.Promise;
+import org.jdeferred2.impl.DefaultDeferredManager;
+import org.jdeferred2.impl.ObservingPromise;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A {@link DefaultDeferredManager} that admits tasks to its {@link ExecutorService} under a {@link ConcurrencyLimit}
+ * driven by the observed task latency.
+ * <p>
+ * A task is admitted right away while fewer tasks than the current limit are in flight. Otherwise it waits, without
+ * holding a thread, in a queue of up to {@code maxQueued} tasks and is admitted as in-flight tasks complete; when
+ * that queue is full its promise is rejected with a {@link RejectedExecutionException}. A task's latency is measured
+ * from admission to completion, and a task rejected with a {@link DeferredTimeoutException} or a
+ * {@link RejectedExecutionException} counts as dropped. Cancelled tasks release their slot without producing a
+ * sample.
+ *
+ * @since 2.1
+ */
+public class AdaptiveConcurrencyDeferredManager extends DefaultDeferredManager {
+	private final ConcurrencyLimit limit;
+	private final int maxQueued;
+
+	// guarded by this
+	private final Queue<DeferredFutureTask<?, ?>> queued = new ArrayDeque<DeferredFutureTask<?, ?>>();
+	private int inFlight;
+
+	/**
+	 * Equivalent to {@link #AdaptiveConcurrencyDeferredManager(ExecutorService, ConcurrencyLimit, int)} using
+	 * {@link Executors#newCachedThreadPool()}.
+	 */
+	public AdaptiveConcurrencyDeferredManager(ConcurrencyLimit limit, int maxQueued) {
+		this(Executors.newCachedThreadPool(), limit, maxQueued);
+	}
+
+	/**
+	 * @param executorService the executor that runs the admitted tasks
+	 * @param limit           the limit on tasks in flight. Must not be null
+	 * @param maxQueued       the number of tasks that may wait for admission. {@code 0} rejects every task over
+	 *                        the limit. Must not be negative
+	 */
+	public AdaptiveConcurrencyDeferredManager(ExecutorService executorService, ConcurrencyLimit limit, int maxQueued) {
+		super(executorService);
+		assertNotNull(limit, "limit");
+		if (maxQueued < 0) {
+			throw new IllegalArgumentException("Argument 'maxQueued' must not be negative but was " + maxQueued);
+		}
+
+		this.limit = limit;
+		this.maxQueued = maxQueued;
+	}
+
+	public ConcurrencyLimit getLimit() {
+		return limit;
+	}
+
+	/**
+	 * @return the number of admitted tasks that have not completed yet
+	 */
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * @return the number of tasks waiting for admission
+	 */
+	public synchronized int getQueued() {
+		return queued.size();
+	}
+
+	@Override
+	protected void submit(Runnable runnable) {
+		if (!(runnable instanceof DeferredFutureTask)) {
+			super.submit(runnable);
+			return;
+		}
+
+		DeferredFutureTask<?, ?> task = (DeferredFutureTask<?, ?>) runnable;
+		synchronized (this) {
+			if (inFlight >= limit.getLimit()) {
+				if (queued.size() < maxQueued) {
+					queued.add(task);
+					return;
+				}
+				task.reject(new RejectedExecutionException("Concurrency limit of " + limit.getLimit() + " reached"));
+				return;
+			}
+			inFlight++;
+		}
+		admit(task);
+	}
+
+	private void admit(DeferredFutureTask<?, ?> task) {
+		final long admittedAt = System.nanoTime();
+		ObservingPromise.of(task.promise()).always(new AlwaysCallback<Object, Throwable>() {
+			@Override
+			public void onAlways(Promise.State state, Object resolved, Throwable rejected) {
+				completed(System.nanoTime() - admittedAt, rejected);
+			}
+		});
+		super.submit(task);
+	}
+
+	private void completed(long rttNanos, Throwable rejected) {
+		List<DeferredFutureTask<?, ?>> admitted = new ArrayList<DeferredFutureTask<?, ?>>();
+		synchronized (this) {
+			if (!(rejected instanceof CancellationException)) {
+				limit.onSample(rttNanos, inFlight, rejected instanceof DeferredTimeoutException
+					|| rejected instanceof RejectedExecutionException);
+			}
+			inFlight--;
+
+			while (inFlight < limit.getLimit() && !queued.isEmpty()) {
+				DeferredFutureTask<?, ?> next = queued.poll();
+				// cancelled while waiting
+				if (!next.isDone()) {
+					inFlight++;
+					admitted.add(next);
+				}
+			}
+		}
+
+		for (DeferredFutureTask<?, ?> task : admitted) {
+			admit(task);
+		}
+	}
+}
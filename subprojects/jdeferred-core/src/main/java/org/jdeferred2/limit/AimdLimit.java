@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Additive-increase/multiplicative-decrease limit: grows by one for every task that completes while the limit is
+ * in use, and is multiplied by the backoff ratio for every task that is dropped or slower than the slow-call
+ * threshold.
+ *
+ * @since 2.1
+ */
+public class AimdLimit implements ConcurrencyLimit {
+	public static final int DEFAULT_INITIAL_LIMIT = 20;
+	public static final int DEFAULT_MIN_LIMIT = 1;
+	public static final int DEFAULT_MAX_LIMIT = 1000;
+	public static final double DEFAULT_BACKOFF_RATIO = 0.9;
+	public static final long DEFAULT_SLOW_CALL_THRESHOLD_MILLIS = 5000;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final double backoffRatio;
+	private final long slowCallThresholdNanos;
+
+	private volatile int limit;
+
+	/**
+	 * Creates a limit using the defaults declared by this class.
+	 */
+	public AimdLimit() {
+		this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_BACKOFF_RATIO,
+			DEFAULT_SLOW_CALL_THRESHOLD_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param initialLimit      the limit to start with. Must be between {@code minLimit} and {@code maxLimit}
+	 * @param minLimit          the lowest limit. Must be positive
+	 * @param maxLimit          the highest limit. Must not be lower than {@code minLimit}
+	 * @param backoffRatio      the factor applied to the limit on a drop. Must be in {@code [0.5, 1)}
+	 * @param slowCallThreshold the latency above which a task counts as dropped. Must be positive
+	 * @param unit              the unit of {@code slowCallThreshold}. Must not be null
+	 */
+	public AimdLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio, long slowCallThreshold, TimeUnit unit) {
+		Limits.assertBounds(initialLimit, minLimit, maxLimit);
+		if (backoffRatio < 0.5 || backoffRatio >= 1.0) {
+			throw new IllegalArgumentException("Argument 'backoffRatio' must be in [0.5, 1) but was " + backoffRatio);
+		}
+		if (unit == null) {
+			throw new IllegalArgumentException("Argument 'unit' must not be null");
+		}
+		if (slowCallThreshold < 1) {
+			throw new IllegalArgumentException("Argument 'slowCallThreshold' must be positive but was " + slowCallThreshold);
+		}
+
+		this.limit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.backoffRatio = backoffRatio;
+		this.slowCallThresholdNanos = unit.toNanos(slowCallThreshold);
+	}
+
+	@Override
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+		if (dropped || rttNanos > slowCallThresholdNanos) {
+			limit = Math.max(minLimit, Math.min(limit - 1, (int) (limit * backoffRatio)));
+		} else if (inFlight * 2 >= limit) {
+			// only grow when the limit is actually in use, not when the load is low
+			limit = Math.min(maxLimit, limit + 1);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "AimdLimit[limit=" + limit + "]";
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.impl.BoundedExecutorService;
+import org.jdeferred2.impl.BoundedExecutorService.SaturationPolicy;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An isolated pool of threads with its own concurrency limit and queue, reserved for the tasks of one dependency.
+ * Created by {@link BulkheadDeferredManager#addBulkhead(String, int, int)}.
+ *
+ * @since 2.1
+ */
+public final class Bulkhead {
+	private final String name;
+	private final BoundedExecutorService executor;
+
+	Bulkhead(final String name, int maxConcurrency, int maxQueued) {
+		this.name = name;
+		this.executor = new BoundedExecutorService(maxConcurrency, maxQueued, SaturationPolicy.REJECT);
+		this.executor.setThreadFactory(new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				return new Thread(runnable, "bulkhead-" + name + "-" + count.incrementAndGet());
+			}
+		});
+	}
+
+	void submit(DeferredFutureTask<?, ?> task) {
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.reject(new BulkheadFullException(name, executor.isShutdown() ? "Bulkhead '" + name + "' is shut down"
+				: "Bulkhead '" + name + "' is full: " + getMaxConcurrency() + " tasks running and " + getMaxQueued() + " queued"));
+		}
+	}
+
+	BoundedExecutorService getExecutor() {
+		return executor;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxConcurrency() {
+		return executor.getMaximumPoolSize();
+	}
+
+	public int getMaxQueued() {
+		return executor.getQueueCapacity();
+	}
+
+	/**
+	 * @return the number of tasks running in this bulkhead
+	 */
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	/**
+	 * @return the number of tasks waiting in this bulkhead's queue
+	 */
+	public int getQueueDepth() {
+		return executor.getQueueDepth();
+	}
+
+	/**
+	 * @return the number of tasks rejected because this bulkhead was full
+	 */
+	public long getRejectedCount() {
+		return executor.getRejectedCount();
+	}
+
+	/**
+	 * @return the number of tasks that ran to completion in this bulkhead
+	 */
+	public long getCompletedCount() {
+		return executor.getCompletedTaskCount();
+	}
+
+	void shutdown() {
+		executor.shutdown();
+	}
+
+	boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return executor.awaitTermination(timeout, unit);
+	}
+
+	@Override
+	public String toString() {
+		return "Bulkhead[" + name + ", active=" + getActiveCount() + ", queued=" + getQueueDepth() + "]";
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+import org.jdeferred2.DeferredCallable;
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.DeferredManager.StartPolicy;
+import org.jdeferred2.DeferredRunnable;
+import org.jdeferred2.Promise;
+import org.jdeferred2.impl.DefaultDeferredManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link DefaultDeferredManager} that isolates the tasks of each dependency in a named {@link Bulkhead}, so that
+ * a slow dependency cannot take up the threads every other task needs.
+ * <p>
+ * A task runs in the bulkhead named by {@link #when(String, Callable)} or {@link #when(String, Runnable)}, or by
+ * {@link DeferredCallable#getBulkhead()} or {@link DeferredRunnable#getBulkhead()}. Tasks without a bulkhead run on
+ * the manager's {@link ExecutorService}. When a bulkhead has all of its threads busy and its queue full, the promise
+ * of a task is rejected with a {@link BulkheadFullException} right away. A task naming a bulkhead that was not added
+ * is rejected with an {@link IllegalArgumentException}.
+ * <p>
+ * Shutting down the manager shuts down its bulkheads as well.
+ *
+ * @since 2.1
+ */
+public class BulkheadDeferredManager extends DefaultDeferredManager {
+	private final ConcurrentMap<String, Bulkhead> bulkheads = new ConcurrentHashMap<String, Bulkhead>();
+
+	/**
+	 * Equivalent to {@link #BulkheadDeferredManager(ExecutorService)} using {@link Executors#newCachedThreadPool()}.
+	 */
+	public BulkheadDeferredManager() {
+		this(Executors.newCachedThreadPool());
+	}
+
+	/**
+	 * @param executorService the executor that runs the tasks without a bulkhead
+	 */
+	public BulkheadDeferredManager(ExecutorService executorService) {
+		super(executorService);
+	}
+
+	/**
+	 * Adds a bulkhead with its own threads.
+	 *
+	 * @param name           the name tasks use to run in the bulkhead. Must not be null nor already added
+	 * @param maxConcurrency the number of tasks the bulkhead runs at once. Must be positive
+	 * @param maxQueued      the number of tasks that may wait in the bulkhead. Must be positive
+	 *
+	 * @return the bulkhead, for its metrics
+	 */
+	public Bulkhead addBulkhead(String name, int maxConcurrency, int maxQueued) {
+		assertNotNull(name, "name");
+		Bulkhead bulkhead = new Bulkhead(name, maxConcurrency, maxQueued);
+		if (bulkheads.putIfAbsent(name, bulkhead) != null) {
+			bulkhead.shutdown();
+			throw new IllegalArgumentException("Bulkhead '" + name + "' already exists");
+		}
+		return bulkhead;
+	}
+
+	/**
+	 * @return the bulkhead named {@code name}, or {@code null} if it was not added
+	 */
+	public Bulkhead getBulkhead(String name) {
+		return bulkheads.get(name);
+	}
+
+	public Collection<Bulkhead> getBulkheads() {
+		return bulkheads.values();
+	}
+
+	/**
+	 * Runs {@code callable} in the bulkhead named {@code bulkhead}.
+	 *
+	 * @throws IllegalArgumentException if no bulkhead named {@code bulkhead} was added
+	 */
+	public <D> Promise<D, Throwable, Void> when(final String bulkhead, final Callable<D> callable) {
+		assertNotNull(callable, "callable");
+		bulkheadNamed(bulkhead);
+		return when(new DeferredFutureTask<D, Void>(new DeferredCallable<D, Void>(StartPolicy.AUTO) {
+			@Override
+			public D call() throws Exception {
+				return callable.call();
+			}
+
+			@Override
+			public String getBulkhead() {
+				return bulkhead;
+			}
+		}));
+	}
+
+	/**
+	 * Runs {@code runnable} in the bulkhead named {@code bulkhead}.
+	 *
+	 * @throws IllegalArgumentException if no bulkhead named {@code bulkhead} was added
+	 */
+	public Promise<Void, Throwable, Void> when(final String bulkhead, final Runnable runnable) {
+		assertNotNull(runnable, "runnable");
+		bulkheadNamed(bulkhead);
+		return when(new DeferredFutureTask<Void, Void>(new DeferredRunnable<Void>(StartPolicy.AUTO) {
+			@Override
+			public void run() {
+				runnable.run();
+			}
+
+			@Override
+			public String getBulkhead() {
+				return bulkhead;
+			}
+		}));
+	}
+
+	private Bulkhead bulkheadNamed(String name) {
+		assertNotNull(name, "bulkhead");
+		Bulkhead bulkhead = bulkheads.get(name);
+		if (bulkhead == null) {
+			throw new IllegalArgumentException("Unknown bulkhead '" + name + "'");
+		}
+		return bulkhead;
+	}
+
+	@Override
+	protected void submit(Runnable runnable) {
+		String name = runnable instanceof DeferredFutureTask ? ((DeferredFutureTask<?, ?>) runnable).getBulkhead() : null;
+		if (name == null) {
+			super.submit(runnable);
+			return;
+		}
+
+		DeferredFutureTask<?, ?> task = (DeferredFutureTask<?, ?>) runnable;
+		Bulkhead bulkhead = bulkheads.get(name);
+		if (bulkhead == null) {
+			task.reject(new IllegalArgumentException("Unknown bulkhead '" + name + "'"));
+			return;
+		}
+		task.markEnqueued();
+		bulkhead.submit(task);
+	}
+
+	@Override
+	protected void purge() {
+		super.purge();
+		for (Bulkhead bulkhead : bulkheads.values()) {
+			bulkhead.getExecutor().purge();
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		super.shutdown();
+		for (Bulkhead bulkhead : bulkheads.values()) {
+			bulkhead.shutdown();
+		}
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		List<Runnable> pending = new ArrayList<Runnable>(super.shutdownNow());
+		for (Bulkhead bulkhead : bulkheads.values()) {
+			pending.addAll(bulkhead.getExecutor().shutdownNow());
+		}
+		return pending;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		if (!super.isTerminated()) {
+			return false;
+		}
+		for (Bulkhead bulkhead : bulkheads.values()) {
+			if (!bulkhead.getExecutor().isTerminated()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		if (!super.awaitTermination(timeout, unit)) {
+			return false;
+		}
+		for (Bulkhead bulkhead : bulkheads.values()) {
+			if (!bulkhead.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+/**
+ * A concurrency limit that adapts to the latency samples of the tasks it admits.
+ * <p>
+ * Implementations must be thread-safe.
+ *
+ * @see AdaptiveConcurrencyDeferredManager
+ * @since 2.1
+ */
+public interface ConcurrencyLimit {
+	/**
+	 * @return the number of tasks currently allowed in flight. Always at least 1
+	 */
+	int getLimit();
+
+	/**
+	 * Updates the limit with the outcome of a task.
+	 *
+	 * @param rttNanos the time from admission to completion of the task
+	 * @param inFlight the number of tasks that were in flight when the task completed, including itself
+	 * @param dropped  whether the task failed in a way that signals overload, such as a timeout or a rejection
+	 */
+	void onSample(long rttNanos, int inFlight, boolean dropped);
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+/**
+ * Gradient limit: compares the recent latency with the long-term latency and scales the limit by their ratio.
+ * <p>
+ * While recent latency matches the long-term one the limit grows by a queue allowance of {@code sqrt(limit)};
+ * once recent latency rises above it, the limit shrinks in proportion, down to half per sample. The change is
+ * smoothed, and the long-term latency slowly follows the recent one so that a permanent shift in latency is not
+ * mistaken for overload forever.
+ *
+ * @since 2.1
+ */
+public class GradientLimit implements ConcurrencyLimit {
+	public static final int DEFAULT_INITIAL_LIMIT = 20;
+	public static final int DEFAULT_MIN_LIMIT = 1;
+	public static final int DEFAULT_MAX_LIMIT = 1000;
+	public static final double DEFAULT_SMOOTHING = 0.2;
+	public static final int DEFAULT_LONG_WINDOW = 600;
+
+	private static final int SHORT_WINDOW = 10;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final double smoothing;
+	private final int longWindow;
+
+	// guarded by this
+	private double estimatedLimit;
+	private double shortRttNanos;
+	private double longRttNanos;
+
+	private volatile int limit;
+
+	/**
+	 * Creates a limit using the defaults declared by this class.
+	 */
+	public GradientLimit() {
+		this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_SMOOTHING, DEFAULT_LONG_WINDOW);
+	}
+
+	/**
+	 * @param initialLimit the limit to start with. Must be between {@code minLimit} and {@code maxLimit}
+	 * @param minLimit     the lowest limit. Must be positive
+	 * @param maxLimit     the highest limit. Must not be lower than {@code minLimit}
+	 * @param smoothing    the weight of a new estimate against the current limit. Must be in {@code (0, 1]}
+	 * @param longWindow   the number of samples the long-term latency averages over. Must be greater than 10
+	 */
+	public GradientLimit(int initialLimit, int minLimit, int maxLimit, double smoothing, int longWindow) {
+		Limits.assertBounds(initialLimit, minLimit, maxLimit);
+		if (smoothing <= 0 || smoothing > 1) {
+			throw new IllegalArgumentException("Argument 'smoothing' must be in (0, 1] but was " + smoothing);
+		}
+		if (longWindow <= SHORT_WINDOW) {
+			throw new IllegalArgumentException("Argument 'longWindow' must be greater than " + SHORT_WINDOW + " but was " + longWindow);
+		}
+
+		this.limit = initialLimit;
+		this.estimatedLimit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.smoothing = smoothing;
+		this.longWindow = longWindow;
+	}
+
+	@Override
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+		if (longRttNanos == 0) {
+			shortRttNanos = longRttNanos = rttNanos;
+		} else {
+			shortRttNanos += (rttNanos - shortRttNanos) / SHORT_WINDOW;
+			longRttNanos += (rttNanos - longRttNanos) / longWindow;
+		}
+
+		// let the baseline catch up quickly after latency has dropped
+		if (longRttNanos > shortRttNanos * 2) {
+			longRttNanos *= 0.95;
+		}
+
+		double gradient = dropped ? 0.5 : Math.max(0.5, Math.min(1.0, longRttNanos / Math.max(1.0, shortRttNanos)));
+		if (gradient == 1.0 && inFlight * 2 < estimatedLimit) {
+			// the limit is not in use, so a flat latency says nothing about whether it can grow
+			return;
+		}
+
+		double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+		estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - smoothing) + newLimit * smoothing));
+		limit = (int) estimatedLimit;
+	}
+
+	@Override
+	public String toString() {
+		return "GradientLimit[limit=" + limit + "]";
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+final class Limits {
+	private Limits() {
+	}
+
+	static void assertBounds(int initialLimit, int minLimit, int maxLimit) {
+		if (minLimit < 1) {
+			throw new IllegalArgumentException("Argument 'minLimit' must be positive but was " + minLimit);
+		}
+		if (maxLimit < minLimit) {
+			throw new IllegalArgumentException("Argument 'maxLimit' must not be lower than " + minLimit + " but was " + maxLimit);
+		}
+		if (initialLimit < minLimit || initialLimit > maxLimit) {
+			throw new IllegalArgumentException("Argument 'initialLimit' must be between " + minLimit + " and " + maxLimit
+				+ " but was " + initialLimit);
+		}
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+import org.jdeferred2.AlwaysCallback;
+import org.jdeferred2.DeferredCallable;
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.DeferredRunnable;
+import org.jdeferred2.Promise;
+import org.jdeferred2.impl.DefaultDeferredManager;
+import org.jdeferred2.impl.ObservingPromise;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link DefaultDeferredManager} that runs pending tasks by priority rather than in submission order.
+ * <p>
+ * At most {@code maxConcurrency} tasks are handed to the {@link ExecutorService} at a time, which should match its
+ * number of threads so that tasks wait here rather than in the executor's own FIFO queue. The others wait in a
+ * priority queue, without holding a thread, ordered by {@link DeferredFutureTask#getPriority()},
+ * {@link DeferredCallable#getPriority()} or {@link DeferredRunnable#getPriority()}, higher first.
+ * <p>
+ * Waiting tasks age so that low-priority work is not starved: each point of priority is worth one
+ * {@code agingInterval} of waiting. A priority 0 task that has waited for three aging intervals thus runs before a
+ * priority 2 task that has just arrived. Tasks of equal priority run in submission order.
+ * <p>
+ * A task gives its turn back once it has returned from its executor thread, not as soon as its promise settles, so a
+ * cancelled task that is still winding down keeps its thread counted. A task cancelled while waiting leaves the
+ * queue right away.
+ *
+ * @since 2.1
+ */
+public class PriorityDeferredManager extends DefaultDeferredManager {
+	// keeps boosted times far from overflowing
+	private static final long MAX_BOOST_NANOS = Long.MAX_VALUE >> 2;
+
+	private final int maxConcurrency;
+	private final long agingNanos;
+	private final long createdAt = System.nanoTime();
+
+	// guarded by this
+	private final PriorityQueue<Pending> pending = new PriorityQueue<Pending>();
+	private long sequence;
+	private int inFlight;
+
+	/**
+	 * Equivalent to {@link #PriorityDeferredManager(ExecutorService, int, long, TimeUnit)} using
+	 * {@link Executors#newFixedThreadPool(int)} with {@code threads} threads.
+	 */
+	public PriorityDeferredManager(int threads, long agingInterval, TimeUnit unit) {
+		this(Executors.newFixedThreadPool(threads), threads, agingInterval, unit);
+	}
+
+	/**
+	 * @param executorService the executor that runs the tasks
+	 * @param maxConcurrency  the number of tasks handed to the executor at a time. Must be positive
+	 * @param agingInterval   the waiting time worth one point of priority. Must be positive
+	 * @param unit            the unit of {@code agingInterval}. Must not be null
+	 */
+	public PriorityDeferredManager(ExecutorService executorService, int maxConcurrency, long agingInterval, TimeUnit unit) {
+		super(executorService);
+		assertNotNull(unit, "unit");
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("Argument 'maxConcurrency' must be positive but was " + maxConcurrency);
+		}
+		if (agingInterval < 1) {
+			throw new IllegalArgumentException("Argument 'agingInterval' must be positive but was " + agingInterval);
+		}
+
+		this.maxConcurrency = maxConcurrency;
+		this.agingNanos = unit.toNanos(agingInterval);
+	}
+
+	/**
+	 * @return the number of tasks handed to the executor that have not completed yet
+	 */
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * @return the number of tasks waiting for their turn
+	 */
+	public synchronized int getQueued() {
+		return pending.size();
+	}
+
+	@Override
+	protected void submit(Runnable runnable) {
+		if (!(runnable instanceof DeferredFutureTask)) {
+			super.submit(runnable);
+			return;
+		}
+
+		DeferredFutureTask<?, ?> task = (DeferredFutureTask<?, ?>) runnable;
+		Pending waiting = null;
+		synchronized (this) {
+			if (inFlight >= maxConcurrency) {
+				double boost = (double) task.getPriority() * agingNanos;
+				long rank = System.nanoTime() - createdAt - (long) Math.max(-MAX_BOOST_NANOS, Math.min(MAX_BOOST_NANOS, boost));
+				waiting = new Pending(task, rank, sequence++);
+				pending.add(waiting);
+			} else {
+				inFlight++;
+			}
+		}
+
+		if (waiting != null) {
+			dropOnceSettled(waiting);
+		} else {
+			dispatch(task);
+		}
+	}
+
+	/**
+	 * Hands the waiting tasks to the executor in priority order before shutting it down, so that they still run.
+	 */
+	@Override
+	public void shutdown() {
+		List<DeferredFutureTask<?, ?>> remaining = new ArrayList<DeferredFutureTask<?, ?>>();
+		synchronized (this) {
+			while (!pending.isEmpty()) {
+				DeferredFutureTask<?, ?> task = poll();
+				if (!task.isDone()) {
+					inFlight++;
+					remaining.add(task);
+				}
+			}
+		}
+
+		for (DeferredFutureTask<?, ?> task : remaining) {
+			dispatch(task);
+		}
+		super.shutdown();
+	}
+
+	/**
+	 * Also returns the tasks that were waiting for their turn, in priority order.
+	 */
+	@Override
+	public List<Runnable> shutdownNow() {
+		List<Runnable> remaining = new ArrayList<Runnable>();
+		synchronized (this) {
+			while (!pending.isEmpty()) {
+				remaining.add(poll());
+			}
+		}
+		remaining.addAll(super.shutdownNow());
+		return remaining;
+	}
+
+	// removes a waiting task from the queue as soon as it settles, typically because it was cancelled
+	private void dropOnceSettled(final Pending waiting) {
+		ObservingPromise.of(waiting.task.promise()).always(new AlwaysCallback<Object, Throwable>() {
+			@Override
+			public void onAlways(Promise.State state, Object resolved, Throwable rejected) {
+				synchronized (PriorityDeferredManager.this) {
+					if (waiting.queued) {
+						waiting.queued = false;
+						pending.remove(waiting);
+					}
+				}
+			}
+		});
+	}
+
+	// guarded by this
+	private DeferredFutureTask<?, ?> poll() {
+		Pending next = pending.poll();
+		next.queued = false;
+		return next.task;
+	}
+
+	private void dispatch(DeferredFutureTask<?, ?> task) {
+		task.markEnqueued();
+		try {
+			super.submit(new Turn(task));
+		} catch (RejectedExecutionException e) {
+			task.reject(e);
+			completed();
+		}
+	}
+
+	private void completed() {
+		List<DeferredFutureTask<?, ?>> next = new ArrayList<DeferredFutureTask<?, ?>>(1);
+		synchronized (this) {
+			inFlight--;
+			while (inFlight < maxConcurrency && !pending.isEmpty()) {
+				DeferredFutureTask<?, ?> task = poll();
+				// settled while waiting
+				if (!task.isDone()) {
+					inFlight++;
+					next.add(task);
+				}
+			}
+		}
+
+		for (DeferredFutureTask<?, ?> task : next) {
+			dispatch(task);
+		}
+	}
+
+	/**
+	 * Runs a dispatched task and then gives its turn to the next waiting one. It is deliberately not a
+	 * {@link java.util.concurrent.Future}, so that the executor never purges it and its turn is always given back.
+	 */
+	private final class Turn implements Runnable {
+		private final DeferredFutureTask<?, ?> task;
+
+		Turn(DeferredFutureTask<?, ?> task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			try {
+				task.run();
+			} finally {
+				completed();
+			}
+		}
+	}
+
+	private static final class Pending implements Comparable<Pending> {
+		private final DeferredFutureTask<?, ?> task;
+		private final long rank;
+		private final long sequence;
+		// guarded by the manager
+		private boolean queued = true;
+
+		Pending(DeferredFutureTask<?, ?> task, long rank, long sequence) {
+			this.task = task;
+			this.rank = rank;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Pending other) {
+			if (rank != other.rank) {
+				return rank < other.rank ? -1 : 1;
+			}
+			return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+		}
+	}
+}
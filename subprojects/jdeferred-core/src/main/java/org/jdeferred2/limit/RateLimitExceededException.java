@@ -0,0 +1,41 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Rejects a task that could not wait for a permit because the queue of its rate limit was full.
+ *
+ * @since 2.1
+ */
+public class RateLimitExceededException extends RejectedExecutionException {
+	private static final long serialVersionUID = 1L;
+
+	private final Object key;
+
+	public RateLimitExceededException(Object key, String message) {
+		super(message);
+		this.key = key;
+	}
+
+	/**
+	 * @return the key of the exhausted rate limit, or {@code null} for the manager's shared limit
+	 */
+	public Object getKey() {
+		return key;
+	}
+}
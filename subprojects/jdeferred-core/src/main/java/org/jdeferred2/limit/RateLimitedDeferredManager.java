@@ -0,0 +1,319 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+import org.jdeferred2.AlwaysCallback;
+import org.jdeferred2.CancellationHandler;
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.ProgressCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.impl.DefaultDeferredManager;
+import org.jdeferred2.impl.DeferredObject;
+import org.jdeferred2.impl.ObservingPromise;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link DefaultDeferredManager} that submits tasks to its {@link ExecutorService} at a limited rate.
+ * <p>
+ * Each rate limit is a token bucket that allows bursts of up to {@code burst} tasks and refills at
+ * {@code permitsPerSecond}. Tasks submitted through the usual {@code when(...)} methods share one limit;
+ * {@link #whenPermitted(Object, Callable)} uses a separate limit per key, for example per third-party API. A task
+ * without a permit waits in a queue of up to {@code maxQueued} tasks per limit, without holding a thread, and is
+ * submitted by the timer thread once a permit is available. Permits keep accruing at the full rate while tasks wait,
+ * so queued tasks start at {@code permitsPerSecond} even when that is faster than the timer ticks. When that queue is
+ * full its promise is rejected with a {@link RateLimitExceededException}. A task cancelled while waiting leaves the
+ * queue right away.
+ * <p>
+ * Per-key limits live as long as the manager, so keys should come from a bounded set.
+ *
+ * @since 2.1
+ */
+public class RateLimitedDeferredManager extends DefaultDeferredManager {
+	private final long burst;
+	private final double permitsPerSecond;
+	private final int maxQueued;
+	private final RateLimit sharedLimit;
+	private final ConcurrentMap<Object, RateLimit> limitsByKey = new ConcurrentHashMap<Object, RateLimit>();
+
+	/**
+	 * Equivalent to {@link #RateLimitedDeferredManager(ExecutorService, long, double, int)} using
+	 * {@link Executors#newCachedThreadPool()}.
+	 */
+	public RateLimitedDeferredManager(long burst, double permitsPerSecond, int maxQueued) {
+		this(Executors.newCachedThreadPool(), burst, permitsPerSecond, maxQueued);
+	}
+
+	/**
+	 * @param executorService  the executor that runs the permitted tasks
+	 * @param burst            the number of tasks that may start at once after a quiet period. Must be positive
+	 * @param permitsPerSecond the sustained rate at which tasks may start. Must be positive
+	 * @param maxQueued        the number of tasks that may wait for a permit, per limit. Must not be negative
+	 */
+	public RateLimitedDeferredManager(ExecutorService executorService, long burst, double permitsPerSecond, int maxQueued) {
+		super(executorService);
+		if (burst < 1) {
+			throw new IllegalArgumentException("Argument 'burst' must be positive but was " + burst);
+		}
+		if (!(permitsPerSecond > 0)) {
+			throw new IllegalArgumentException("Argument 'permitsPerSecond' must be positive but was " + permitsPerSecond);
+		}
+		if (maxQueued < 0) {
+			throw new IllegalArgumentException("Argument 'maxQueued' must not be negative but was " + maxQueued);
+		}
+
+		this.burst = burst;
+		this.permitsPerSecond = permitsPerSecond;
+		this.maxQueued = maxQueued;
+		this.sharedLimit = new RateLimit(null);
+	}
+
+	/**
+	 * Submits {@code callable} under the rate limit of {@code key}.
+	 *
+	 * @param key      the key of the rate limit to use. Must not be null
+	 * @param callable the task to run once permitted. Must not be null
+	 *
+	 * @return a promise that reports {@link SubmissionProgress#QUEUED} if the task has to wait for a permit and
+	 * {@link SubmissionProgress#STARTED} once it is submitted, then settles with the task. A progress callback
+	 * registered late is called back with the latest progress right away
+	 */
+	public <D> Promise<D, Throwable, SubmissionProgress> whenPermitted(Object key, Callable<D> callable) {
+		assertNotNull(key, "key");
+		assertNotNull(callable, "callable");
+
+		RateLimit limit = limitsByKey.get(key);
+		if (limit == null) {
+			RateLimit created = new RateLimit(key);
+			limit = limitsByKey.putIfAbsent(key, created);
+			if (limit == null) {
+				limit = created;
+			}
+		}
+
+		final DeferredFutureTask<D, Void> task = new DeferredFutureTask<D, Void>(callable);
+		final SubmissionDeferred<D> deferred = new SubmissionDeferred<D>();
+		deferred.addCancellationHandler(new CancellationHandler() {
+			@Override
+			public void onCancel() {
+				task.cancel();
+			}
+		});
+		task.promise().done(new DoneCallback<D>() {
+			@Override
+			public void onDone(D result) {
+				synchronized (deferred) {
+					if (deferred.isPending()) {
+						deferred.resolve(result);
+					}
+				}
+			}
+		}).fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable failure) {
+				synchronized (deferred) {
+					if (deferred.isPending()) {
+						deferred.reject(failure);
+					}
+				}
+			}
+		});
+
+		limit.acquire(new Waiter(task, deferred));
+		return deferred.promise();
+	}
+
+	/**
+	 * @return the number of tasks waiting for a permit of the shared limit
+	 */
+	public int getQueued() {
+		return sharedLimit.getQueued();
+	}
+
+	/**
+	 * @return the number of tasks waiting for a permit of the limit of {@code key}
+	 */
+	public int getQueued(Object key) {
+		RateLimit limit = limitsByKey.get(key);
+		return limit == null ? 0 : limit.getQueued();
+	}
+
+	@Override
+	protected void submit(Runnable runnable) {
+		if (runnable instanceof DeferredFutureTask) {
+			sharedLimit.acquire(new Waiter((DeferredFutureTask<?, ?>) runnable, null));
+		} else {
+			super.submit(runnable);
+		}
+	}
+
+	private void start(Waiter waiter) {
+		if (waiter.progress != null) {
+			waiter.progress.report(SubmissionProgress.STARTED);
+		}
+		super.submit(waiter.task);
+	}
+
+	private static final class Waiter {
+		private final DeferredFutureTask<?, ?> task;
+		private final SubmissionDeferred<?> progress;
+
+		// guarded by the rate limit it waits for
+		private boolean queued;
+
+		Waiter(DeferredFutureTask<?, ?> task, SubmissionDeferred<?> progress) {
+			this.task = task;
+			this.progress = progress;
+		}
+	}
+
+	/**
+	 * Remembers the latest progress, which is reported before the caller had a chance to register callbacks.
+	 */
+	private static final class SubmissionDeferred<D> extends DeferredObject<D, Throwable, SubmissionProgress> {
+		// guarded by this
+		private SubmissionProgress latest;
+
+		synchronized void report(SubmissionProgress progress) {
+			if (isPending()) {
+				latest = progress;
+				notify(progress);
+			}
+		}
+
+		@Override
+		public synchronized Promise<D, Throwable, SubmissionProgress> progress(ProgressCallback<? super SubmissionProgress> callback) {
+			super.progress(callback);
+			if (latest != null && isPending()) {
+				triggerProgress(callback, latest);
+			}
+			return this;
+		}
+	}
+
+	private final class RateLimit implements Runnable {
+		private final Object key;
+
+		// guarded by this
+		private final TokenBucket bucket = new TokenBucket(burst, permitsPerSecond);
+		private final Queue<Waiter> queued = new ArrayDeque<Waiter>();
+		private boolean drainScheduled;
+
+		RateLimit(Object key) {
+			this.key = key;
+		}
+
+		void acquire(Waiter waiter) {
+			boolean permitted = false;
+			boolean full = false;
+			synchronized (this) {
+				long wait = 0L;
+				if (queued.isEmpty() && (wait = bucket.tryAcquire()) == 0) {
+					permitted = true;
+				} else if (queued.size() >= maxQueued) {
+					full = true;
+				} else {
+					queued.add(waiter);
+					waiter.queued = true;
+					scheduleDrain(wait);
+					// under the lock, so that it cannot be reported after STARTED
+					if (waiter.progress != null) {
+						waiter.progress.report(SubmissionProgress.QUEUED);
+					}
+				}
+			}
+
+			if (permitted) {
+				start(waiter);
+			} else if (full) {
+				waiter.task.reject(new RateLimitExceededException(key, "Rate limit of " + permitsPerSecond + " per second"
+					+ (key == null ? "" : " for " + key) + " exceeded with " + maxQueued + " tasks already queued"));
+			} else {
+				dropOnceSettled(waiter);
+			}
+		}
+
+		// a waiter cancelled in the middle of the queue must not count towards maxQueued until it reaches the head
+		private void dropOnceSettled(final Waiter waiter) {
+			ObservingPromise.of(waiter.task.promise()).always(new AlwaysCallback<Object, Throwable>() {
+				@Override
+				public void onAlways(Promise.State state, Object resolved, Throwable rejected) {
+					synchronized (RateLimit.this) {
+						if (waiter.queued) {
+							waiter.queued = false;
+							queued.remove(waiter);
+						}
+					}
+				}
+			});
+		}
+
+		synchronized int getQueued() {
+			return queued.size();
+		}
+
+		// drains the queue on the timer thread as permits become available
+		@Override
+		public void run() {
+			List<Waiter> permitted = new ArrayList<Waiter>();
+			synchronized (this) {
+				drainScheduled = false;
+				long wait = 0L;
+				while (!queued.isEmpty()) {
+					if (queued.peek().task.isDone()) {
+						// cancelled while waiting, and about to be dropped
+						poll();
+					} else if ((wait = bucket.tryAcquire(true)) == 0) {
+						permitted.add(poll());
+					} else {
+						break;
+					}
+				}
+				scheduleDrain(wait);
+			}
+
+			for (Waiter waiter : permitted) {
+				start(waiter);
+			}
+		}
+
+		// guarded by this
+		private Waiter poll() {
+			Waiter next = queued.poll();
+			next.queued = false;
+			return next;
+		}
+
+		// guarded by this; wakes up when the bucket expects the next permit, or after one permit interval if unknown
+		private void scheduleDrain(long wait) {
+			if (!drainScheduled && !queued.isEmpty()) {
+				drainScheduled = true;
+				getTimer().newTimeout(this, wait > 0 ? wait : Math.max(1L, (long) (1e9 / permitsPerSecond)), TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+/**
+ * Progress reported by the promises of {@link RateLimitedDeferredManager#whenPermitted(Object, java.util.concurrent.Callable)}.
+ *
+ * @since 2.1
+ */
+public enum SubmissionProgress {
+	/**
+	 * The task is waiting for a permit.
+	 */
+	QUEUED,
+	/**
+	 * The task has been given a permit and submitted to the executor.
+	 */
+	STARTED
+}
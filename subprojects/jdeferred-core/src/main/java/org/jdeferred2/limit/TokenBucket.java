@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+/**
+ * A token bucket that holds up to {@code capacity} tokens and gains them back at a fixed rate. Not thread-safe.
+ */
+final class TokenBucket {
+	private final double capacity;
+	private final double tokensPerNano;
+
+	private double tokens;
+	private long refilledAt;
+
+	TokenBucket(long capacity, double tokensPerSecond) {
+		this.capacity = capacity;
+		this.tokensPerNano = tokensPerSecond / 1e9;
+		this.tokens = capacity;
+		this.refilledAt = System.nanoTime();
+	}
+
+	/**
+	 * Takes a token if one is available.
+	 *
+	 * @return {@code 0} if a token was taken, otherwise the nanoseconds until the next one is available
+	 */
+	long tryAcquire() {
+		return tryAcquire(false);
+	}
+
+	/**
+	 * Takes a token if one is available.
+	 *
+	 * @param backlogged whether callers have been waiting for a token since the previous call. The tokens gained in
+	 *                   the meantime are then not capped at the capacity, since they are owed to those callers
+	 *
+	 * @return {@code 0} if a token was taken, otherwise the nanoseconds until the next one is available
+	 */
+	long tryAcquire(boolean backlogged) {
+		long now = System.nanoTime();
+		tokens += (now - refilledAt) * tokensPerNano;
+		if (!backlogged) {
+			tokens = Math.min(capacity, tokens);
+		}
+		refilledAt = now;
+		if (tokens >= 1) {
+			tokens -= 1;
+			return 0L;
+		}
+		return Math.max(1L, (long) Math.ceil((1 - tokens) / tokensPerNano));
+	}
+}
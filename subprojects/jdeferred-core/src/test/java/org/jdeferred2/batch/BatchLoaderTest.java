@@ -0,0 +1,148 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.batch;
+
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.impl.AbstractDeferredTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchLoaderTest extends AbstractDeferredTest {
+	@Test
+	public void repeatedKeysAreLoadedOnceWhenTheBatchIsFull() throws InterruptedException {
+		RecordingBatchFunction function = new RecordingBatchFunction();
+		BatchLoader<String, Integer> loader = new BatchLoader<String, Integer>(deferredManager, function, 3);
+
+		Promise<Integer, Throwable, Void> a = loader.load("a");
+		Promise<Integer, Throwable, Void> b = loader.load("bb");
+		Promise<Integer, Throwable, Void> again = loader.load("a");
+		Promise<Integer, Throwable, Void> c = loader.load("ccc");
+		a.waitSafely();
+		again.waitSafely();
+		b.waitSafely();
+		c.waitSafely();
+
+		assertEquals(1, function.batches.size());
+		assertEquals(Arrays.asList("a", "bb", "ccc"), function.batches.get(0));
+		assertEquals(Integer.valueOf(1), resolvedValue(again));
+		assertEquals(Integer.valueOf(3), resolvedValue(c));
+		assertEquals(0, loader.getQueuedCount());
+	}
+
+	@Test
+	public void queuedKeysAreDispatchedWhenTheWindowElapses() throws InterruptedException {
+		RecordingBatchFunction function = new RecordingBatchFunction();
+		BatchLoader<String, Integer> loader = new BatchLoader<String, Integer>(deferredManager, function, 100, 20, TimeUnit.MILLISECONDS);
+
+		Promise<Integer, Throwable, Void> a = loader.load("a");
+		Promise<Integer, Throwable, Void> b = loader.load("bb");
+		a.waitSafely();
+		b.waitSafely();
+
+		assertEquals(1, function.batches.size());
+		assertEquals(Integer.valueOf(2), resolvedValue(b));
+	}
+
+	@Test
+	public void dispatchSubmitsTheQueuedKeys() throws InterruptedException {
+		RecordingBatchFunction function = new RecordingBatchFunction();
+		BatchLoader<String, Integer> loader = new BatchLoader<String, Integer>(deferredManager, function, 100);
+
+		Promise<Integer, Throwable, Void> a = loader.load("a");
+		assertEquals(1, loader.getQueuedCount());
+		assertTrue(a.isPending());
+
+		loader.dispatch();
+		a.waitSafely();
+		assertEquals(Integer.valueOf(1), resolvedValue(a));
+		assertEquals(1, function.batches.size());
+	}
+
+	@Test
+	public void missingKeysAndFailedBatchesAreRejected() throws InterruptedException {
+		BatchLoader<String, Integer> loader = new BatchLoader<String, Integer>(deferredManager, new BatchFunction<String, Integer>() {
+			@Override
+			public Map<String, Integer> load(List<String> keys) throws Exception {
+				if (keys.contains("fail")) {
+					throw new IllegalStateException("unavailable");
+				}
+				return new HashMap<String, Integer>();
+			}
+		}, 100);
+
+		Promise<Integer, Throwable, Void> missing = loader.load("missing");
+		loader.dispatch();
+		missing.waitSafely();
+		assertTrue(rejection(missing) instanceof NoSuchElementException);
+
+		Promise<Integer, Throwable, Void> first = loader.load("fail");
+		Promise<Integer, Throwable, Void> second = loader.load("other");
+		loader.dispatch();
+		first.waitSafely();
+		second.waitSafely();
+		assertTrue(rejection(first) instanceof IllegalStateException);
+		assertTrue(rejection(second) instanceof IllegalStateException);
+	}
+
+	private static Integer resolvedValue(Promise<Integer, Throwable, Void> promise) {
+		final Integer[] value = new Integer[1];
+		promise.done(new DoneCallback<Integer>() {
+			@Override
+			public void onDone(Integer result) {
+				value[0] = result;
+			}
+		});
+		return value[0];
+	}
+
+	private static Throwable rejection(Promise<Integer, Throwable, Void> promise) {
+		final Throwable[] failure = new Throwable[1];
+		promise.fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable result) {
+				failure[0] = result;
+			}
+		});
+		return failure[0];
+	}
+
+	private static class RecordingBatchFunction implements BatchFunction<String, Integer> {
+		private final List<List<String>> batches = new CopyOnWriteArrayList<List<String>>();
+
+		@Override
+		public Map<String, Integer> load(List<String> keys) throws Exception {
+			batches.add(new ArrayList<String>(keys));
+			Map<String, Integer> results = new HashMap<String, Integer>();
+			for (String key : keys) {
+				results.put(key, key.length());
+			}
+			return results;
+		}
+	}
+}
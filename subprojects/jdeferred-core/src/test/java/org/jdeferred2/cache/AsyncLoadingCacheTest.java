@@ -0,0 +1,167 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.cache;
+
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.impl.AbstractDeferredTest;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncLoadingCacheTest extends AbstractDeferredTest {
+	@Test
+	public void concurrentReadsShareOneLoad() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		CountingLoader loader = new CountingLoader(release);
+		AsyncLoadingCache<String, Integer> cache = new AsyncLoadingCache<String, Integer>(deferredManager, loader);
+
+		Promise<Integer, Throwable, Void> first = cache.get("key");
+		Promise<Integer, Throwable, Void> second = cache.get("key");
+		release.countDown();
+		first.waitSafely();
+		second.waitSafely();
+
+		assertEquals(1, loader.loads.get());
+		assertTrue(second.isResolved());
+
+		Promise<Integer, Throwable, Void> hit = cache.get("key");
+		assertTrue(hit.isResolved());
+		assertSame(hit, cache.get("key"));
+
+		CacheStats stats = cache.stats();
+		assertEquals(1, stats.getMissCount());
+		assertEquals(3, stats.getHitCount());
+		assertEquals(1, stats.getLoadSuccessCount());
+	}
+
+	@Test
+	public void failedLoadsAreNotCached() throws InterruptedException {
+		final AtomicInteger loads = new AtomicInteger();
+		AsyncLoadingCache<String, Integer> cache = new AsyncLoadingCache<String, Integer>(deferredManager, new CacheLoader<String, Integer>() {
+			@Override
+			public Integer load(String key) throws Exception {
+				if (loads.incrementAndGet() == 1) {
+					throw new IllegalStateException("unavailable");
+				}
+				return loads.get();
+			}
+		});
+
+		Promise<Integer, Throwable, Void> failed = cache.get("key");
+		failed.waitSafely();
+		assertTrue(failed.isRejected());
+		assertNull(cache.getIfPresent("key"));
+
+		Promise<Integer, Throwable, Void> retried = cache.get("key");
+		retried.waitSafely();
+		assertTrue(retried.isResolved());
+		assertEquals(1, cache.stats().getLoadFailureCount());
+	}
+
+	@Test
+	public void expiredValuesAreLoadedAgain() throws InterruptedException {
+		CountingLoader loader = new CountingLoader(new CountDownLatch(0));
+		AsyncLoadingCache<String, Integer> cache = new AsyncLoadingCache<String, Integer>(deferredManager, loader,
+			CachePolicy.DEFAULT.withExpireAfterWrite(20, TimeUnit.MILLISECONDS));
+
+		cache.get("key").waitSafely();
+		Thread.sleep(50);
+		cache.get("key").waitSafely();
+
+		assertEquals(2, loader.loads.get());
+	}
+
+	@Test
+	public void staleValueIsServedWhileRefreshing() throws InterruptedException {
+		CountingLoader loader = new CountingLoader(new CountDownLatch(0));
+		AsyncLoadingCache<String, Integer> cache = new AsyncLoadingCache<String, Integer>(deferredManager, loader,
+			CachePolicy.DEFAULT.withRefreshAfterWrite(20, TimeUnit.MILLISECONDS));
+
+		cache.get("key").waitSafely();
+		Thread.sleep(50);
+
+		final AtomicInteger stale = new AtomicInteger();
+		Promise<Integer, Throwable, Void> promise = cache.get("key");
+		assertTrue(promise.isResolved());
+		promise.done(new DoneCallback<Integer>() {
+			@Override
+			public void onDone(Integer result) {
+				stale.set(result);
+			}
+		});
+		assertEquals(1, stale.get());
+
+		long deadline = System.currentTimeMillis() + 1000;
+		while (loader.loads.get() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		Thread.sleep(20);
+
+		final AtomicInteger fresh = new AtomicInteger();
+		cache.get("key").done(new DoneCallback<Integer>() {
+			@Override
+			public void onDone(Integer result) {
+				fresh.set(result);
+			}
+		});
+		assertEquals(2, fresh.get());
+	}
+
+	@Test
+	public void frequentlyReadValuesSurviveOneOffReads() throws InterruptedException {
+		CountingLoader loader = new CountingLoader(new CountDownLatch(0));
+		AsyncLoadingCache<String, Integer> cache = new AsyncLoadingCache<String, Integer>(deferredManager, loader,
+			CachePolicy.DEFAULT.withMaximumSize(2));
+
+		for (int i = 0; i < 5; i++) {
+			cache.get("hot").waitSafely();
+			cache.get("warm").waitSafely();
+		}
+		for (int i = 0; i < 20; i++) {
+			cache.get("cold" + i).waitSafely();
+		}
+
+		assertNotNull(cache.getIfPresent("hot"));
+		assertNotNull(cache.getIfPresent("warm"));
+		assertEquals(2, cache.size());
+		assertEquals(20, cache.stats().getEvictionCount());
+	}
+
+	private static class CountingLoader implements CacheLoader<String, Integer> {
+		private final CountDownLatch release;
+		private final AtomicInteger loads = new AtomicInteger();
+
+		CountingLoader(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public Integer load(String key) throws Exception {
+			int load = loads.incrementAndGet();
+			release.await(5, TimeUnit.SECONDS);
+			return load;
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.circuit;
+
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.impl.AbstractDeferredTest;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest extends AbstractDeferredTest {
+	private static final CircuitBreakerPolicy POLICY = CircuitBreakerPolicy.DEFAULT
+		.withWindow(4, 4)
+		.withFailureRateThreshold(0.5)
+		.withOpenDuration(50, TimeUnit.MILLISECONDS)
+		.withHalfOpenCalls(2);
+
+	@Test
+	public void opensOnFailuresAndFailsFastWithoutSubmitting() throws InterruptedException {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("dependency", POLICY);
+		CircuitBreakerDeferredManager manager = new CircuitBreakerDeferredManager(circuitBreaker);
+
+		for (int i = 0; i < 2; i++) {
+			manager.when(successCallable("ok", 0)).waitSafely();
+			manager.when(failedCallable(new IllegalStateException("down"), 0)).waitSafely();
+		}
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+		final AtomicInteger calls = new AtomicInteger();
+		Promise<Integer, Throwable, Void> rejected = manager.when(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				return calls.incrementAndGet();
+			}
+		});
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		rejected.fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable result) {
+				failure.set(result);
+			}
+		});
+		assertTrue(failure.get() instanceof CircuitBreakerOpenException);
+		assertEquals(0, calls.get());
+		manager.shutdown();
+	}
+
+	@Test
+	public void recoversThroughHalfOpenTrialCalls() throws InterruptedException {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("dependency", POLICY);
+		final List<String> transitions = new CopyOnWriteArrayList<String>();
+		circuitBreaker.addListener(new CircuitBreakerListener() {
+			@Override
+			public void onStateChange(CircuitBreaker circuitBreaker, CircuitBreaker.State from, CircuitBreaker.State to) {
+				transitions.add(from + "->" + to);
+			}
+		});
+		for (int i = 0; i < 4; i++) {
+			long permit = circuitBreaker.tryAcquirePermit();
+			assertTrue(permit != CircuitBreaker.NOT_PERMITTED);
+			circuitBreaker.onFailure(permit, 0);
+		}
+		assertEquals(CircuitBreaker.NOT_PERMITTED, circuitBreaker.tryAcquirePermit());
+
+		Thread.sleep(60);
+		long first = circuitBreaker.tryAcquirePermit();
+		long second = circuitBreaker.tryAcquirePermit();
+		assertTrue(first != CircuitBreaker.NOT_PERMITTED);
+		assertTrue(second != CircuitBreaker.NOT_PERMITTED);
+		assertEquals(CircuitBreaker.NOT_PERMITTED, circuitBreaker.tryAcquirePermit());
+		circuitBreaker.onSuccess(first, 0);
+		circuitBreaker.onSuccess(second, 0);
+
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+		assertEquals(0.0d, circuitBreaker.getFailureRate(), 0.0d);
+		assertEquals(3, transitions.size());
+		assertEquals("CLOSED->OPEN", transitions.get(0));
+		assertEquals("OPEN->HALF_OPEN", transitions.get(1));
+		assertEquals("HALF_OPEN->CLOSED", transitions.get(2));
+	}
+
+	@Test
+	public void staleOutcomesAreNotCountedAsTrialCalls() throws InterruptedException {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("dependency", POLICY);
+		long closedPermit = circuitBreaker.tryAcquirePermit();
+		for (int i = 0; i < 4; i++) {
+			circuitBreaker.onFailure(circuitBreaker.tryAcquirePermit(), 0);
+		}
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+		Thread.sleep(60);
+		long first = circuitBreaker.tryAcquirePermit();
+		long second = circuitBreaker.tryAcquirePermit();
+		assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+		// neither frees a trial slot nor counts as a successful trial
+		circuitBreaker.onIgnored(closedPermit);
+		assertEquals(CircuitBreaker.NOT_PERMITTED, circuitBreaker.tryAcquirePermit());
+		circuitBreaker.onSuccess(closedPermit, 0);
+		circuitBreaker.onSuccess(first, 0);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+		circuitBreaker.onSuccess(second, 0);
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+		// a trial outcome reported after the circuit closed is not recorded in the new window
+		circuitBreaker.onFailure(first, 0);
+		assertEquals(0.0d, circuitBreaker.getFailureRate(), 0.0d);
+	}
+
+	@Test
+	public void slowCallsOpenTheCircuitAndFailedTrialsReopenIt() throws InterruptedException {
+		CircuitBreaker circuitBreaker = new CircuitBreaker("dependency", POLICY.withSlowCalls(10, TimeUnit.MILLISECONDS, 0.75));
+
+		for (int i = 0; i < 4; i++) {
+			Promise<String, Throwable, Void> promise = circuitBreaker.when(deferredManager, successCallable("slow", 20));
+			promise.waitSafely();
+			assertTrue(promise.isResolved());
+		}
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+		assertEquals(1.0d, circuitBreaker.getSlowCallRate(), 0.0d);
+
+		Thread.sleep(60);
+		circuitBreaker.when(deferredManager, failedCallable(new IllegalStateException("still down"), 0)).waitSafely();
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+		assertTrue(circuitBreaker.when(deferredManager, successCallable("fast", 0)).isRejected());
+	}
+}
@@ -18,11 +18,15 @@ package org.jdeferred2.impl;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
+import org.jdeferred2.CancellablePromise;
+import org.jdeferred2.Promise;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 
+import static org.junit.Assert.assertTrue;
+
 public abstract class AbstractDeferredTest {
 	protected DefaultDeferredManager deferredManager;
 
@@ -76,6 +80,11 @@ public abstract class AbstractDeferredTest {
 		};
 	}
 	
+	protected static boolean cancel(Promise<?, ?, ?> promise) {
+		assertTrue(promise instanceof CancellablePromise);
+		return ((CancellablePromise<?, ?, ?>) promise).cancel();
+	}
+
 	protected void waitForCompletion() {
 		deferredManager.shutdown();
 		while (!deferredManager.isTerminated()) {
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.multiple.AllValues;
+import org.jdeferred2.multiple.MasterProgress;
+import org.jdeferred2.multiple.MultipleResults;
+import org.jdeferred2.multiple.OneReject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BoundedConcurrencyTest extends AbstractDeferredTest {
+	// tasks are submitted lazily, so wait for the composite promise rather than shutting the executor down
+
+	@Test
+	public void whenKeepsAtMostMaxConcurrencyTasksInFlight() throws InterruptedException {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+		for (int i = 0; i < 20; i++) {
+			final int value = i;
+			tasks.add(new Callable<Integer>() {
+				@Override
+				public Integer call() throws Exception {
+					int current = running.incrementAndGet();
+					int max;
+					while ((max = maxRunning.get()) < current && !maxRunning.compareAndSet(max, current)) ;
+					Thread.sleep(10);
+					running.decrementAndGet();
+					return value;
+				}
+			});
+		}
+
+		final AtomicReference<MultipleResults> results = new AtomicReference<MultipleResults>();
+		Promise<MultipleResults, OneReject<?>, MasterProgress> promise = deferredManager.when(tasks, 3).done(new DoneCallback<MultipleResults>() {
+			@Override
+			public void onDone(MultipleResults result) {
+				results.set(result);
+			}
+		});
+
+		promise.waitSafely();
+
+		assertTrue(maxRunning.get() <= 3);
+		assertEquals(20, results.get().size());
+		for (int i = 0; i < 20; i++) {
+			assertEquals(i, results.get().get(i).getResult());
+		}
+	}
+
+	@Test
+	public void whenPullsLazily() {
+		final DeferredObject<String, Throwable, Void> d1 = new DeferredObject<String, Throwable, Void>();
+		final DeferredObject<String, Throwable, Void> d2 = new DeferredObject<String, Throwable, Void>();
+		final DeferredObject<String, Throwable, Void> d3 = new DeferredObject<String, Throwable, Void>();
+		final AtomicInteger pulled = new AtomicInteger();
+		Iterable<Object> iterable = new Iterable<Object>() {
+			@Override
+			public Iterator<Object> iterator() {
+				final Iterator<Object> delegate = Arrays.<Object>asList(d1, d2, d3).iterator();
+				return new Iterator<Object>() {
+					@Override
+					public boolean hasNext() {
+						return delegate.hasNext();
+					}
+
+					@Override
+					public Object next() {
+						pulled.incrementAndGet();
+						return delegate.next();
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+
+		final AtomicReference<MultipleResults> results = new AtomicReference<MultipleResults>();
+		deferredManager.when(iterable, 1).done(new DoneCallback<MultipleResults>() {
+			@Override
+			public void onDone(MultipleResults result) {
+				results.set(result);
+			}
+		});
+
+		assertEquals(1, pulled.get());
+		d1.resolve("a");
+		assertEquals(2, pulled.get());
+		d2.resolve("b");
+		assertEquals(3, pulled.get());
+		d3.resolve("c");
+
+		assertEquals(3, results.get().size());
+		assertEquals("c", results.get().get(2).getResult());
+	}
+
+	@Test
+	public void whenRejectsOnFirstFailure() throws InterruptedException {
+		final AtomicReference<OneReject<?>> reject = new AtomicReference<OneReject<?>>();
+		List<Callable<?>> tasks = new ArrayList<Callable<?>>();
+		tasks.add(successCallable(1, 10));
+		tasks.add(failedCallable(new IllegalStateException(), 10));
+		tasks.add(successCallable(3, 10));
+
+		Promise<MultipleResults, OneReject<?>, MasterProgress> promise = deferredManager.when(tasks, 2).fail(new FailCallback<OneReject<?>>() {
+			@Override
+			public void onFail(OneReject<?> result) {
+				reject.set(result);
+			}
+		});
+
+		promise.waitSafely();
+
+		assertEquals(1, reject.get().getIndex());
+		assertTrue(reject.get().getReject() instanceof IllegalStateException);
+	}
+
+	@Test
+	public void settleRecordsUnconvertibleItemsAsRejections() throws InterruptedException {
+		final AtomicReference<AllValues> values = new AtomicReference<AllValues>();
+		Promise<AllValues, Throwable, MasterProgress> promise = deferredManager.settle(Arrays.<Object>asList(successCallable(1, 10), new Object(), successCallable(3, 10)), 2)
+			.done(new DoneCallback<AllValues>() {
+				@Override
+				public void onDone(AllValues result) {
+					values.set(result);
+				}
+			});
+
+		promise.waitSafely();
+
+		assertEquals(3, values.get().size());
+		assertEquals(1, values.get().get(0).getValue());
+		assertTrue(values.get().get(1) instanceof OneReject);
+		assertTrue(values.get().get(1).getValue() instanceof IllegalArgumentException);
+		assertEquals(3, values.get().get(2).getValue());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void maxConcurrencyMustBePositive() {
+		deferredManager.when(Arrays.<Object>asList(successCallable(1, 0)), 0);
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.impl.BoundedExecutorService.SaturationPolicy;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BoundedExecutorServiceTest extends AbstractDeferredTest {
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@Test
+	public void saturatedExecutorRejectsThePromise() throws InterruptedException {
+		BoundedExecutorService executor = new BoundedExecutorService(1, 1, SaturationPolicy.REJECT);
+		deferredManager = new DefaultDeferredManager(executor);
+		saturate();
+
+		Promise<String, Throwable, Void> overflow = deferredManager.when(successCallable("overflow", 0));
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		overflow.fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable result) {
+				failure.set(result);
+			}
+		});
+
+		assertTrue(overflow.isRejected());
+		assertTrue(failure.get() instanceof RejectedExecutionException);
+		assertEquals(1, executor.getRejectedCount());
+		assertEquals(1, executor.getQueueDepth());
+		release.countDown();
+	}
+
+	@Test
+	public void callerRunsWhenSaturated() throws InterruptedException {
+		BoundedExecutorService executor = new BoundedExecutorService(1, 1, SaturationPolicy.CALLER_RUNS);
+		deferredManager = new DefaultDeferredManager(executor);
+		saturate();
+
+		final AtomicReference<Thread> runner = new AtomicReference<Thread>();
+		Promise<Void, Throwable, Void> overflow = deferredManager.when(new Runnable() {
+			@Override
+			public void run() {
+				runner.set(Thread.currentThread());
+			}
+		});
+
+		assertTrue(overflow.isResolved());
+		assertSame(Thread.currentThread(), runner.get());
+		assertEquals(1, executor.getCallerRunsCount());
+		assertEquals(0, executor.getRejectedCount());
+		release.countDown();
+	}
+
+	@Test
+	public void blockGivesUpAfterTheTimeout() throws InterruptedException {
+		BoundedExecutorService executor = new BoundedExecutorService(1, 1, SaturationPolicy.BLOCK, 20, TimeUnit.MILLISECONDS);
+		deferredManager = new DefaultDeferredManager(executor);
+		saturate();
+
+		long start = System.nanoTime();
+		Promise<String, Throwable, Void> overflow = deferredManager.when(successCallable("overflow", 0));
+
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+		assertTrue(overflow.isRejected());
+		assertEquals(1, executor.getRejectedCount());
+
+		release.countDown();
+		Promise<String, Throwable, Void> accepted = deferredManager.when(successCallable("accepted", 0));
+		accepted.waitSafely();
+		assertTrue(accepted.isResolved());
+	}
+
+	@Test
+	public void timerThreadIsRejectedInsteadOfRunningTheTask() throws InterruptedException {
+		BoundedExecutorService executor = new BoundedExecutorService(1, 1, SaturationPolicy.CALLER_RUNS);
+		deferredManager = new DefaultDeferredManager(executor);
+		saturate();
+
+		final AtomicReference<Promise<String, Throwable, Void>> overflow = new AtomicReference<Promise<String, Throwable, Void>>();
+		final CountDownLatch submitted = new CountDownLatch(1);
+		GlobalConfiguration.getGlobalTimer().newTimeout(new Runnable() {
+			@Override
+			public void run() {
+				overflow.set(deferredManager.when(successCallable("overflow", 0)));
+				submitted.countDown();
+			}
+		}, 1, TimeUnit.MILLISECONDS);
+
+		assertTrue(submitted.await(5, TimeUnit.SECONDS));
+		assertTrue(overflow.get().isRejected());
+		assertEquals(0, executor.getCallerRunsCount());
+		assertEquals(1, executor.getRejectedCount());
+		release.countDown();
+	}
+
+	// occupies the only thread and the only queue slot
+	private void saturate() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		deferredManager.when(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				started.countDown();
+				release.await();
+				return null;
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		deferredManager.when(successCallable("queued", 0));
+	}
+}
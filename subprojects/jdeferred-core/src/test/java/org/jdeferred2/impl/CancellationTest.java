@@ -0,0 +1,388 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.CancellationHandler;
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.DoneFilter;
+import org.jdeferred2.DonePipe;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.FailPipe;
+import org.jdeferred2.Promise;
+import org.jdeferred2.Reducer;
+import org.jdeferred2.multiple.AllValues;
+import org.jdeferred2.multiple.MasterProgress;
+import org.jdeferred2.multiple.MultipleResults;
+import org.jdeferred2.multiple.OneReject;
+import org.jdeferred2.multiple.OneResult;
+import org.jdeferred2.multiple.OneValue;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CancellationTest extends AbstractDeferredTest {
+	@Test
+	public void cancelRejectsPendingPromiseOnce() {
+		DeferredObject<String, Throwable, Void> deferred = new DeferredObject<String, Throwable, Void>();
+
+		final AtomicReference<Throwable> reject = new AtomicReference<Throwable>();
+		deferred.fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable result) {
+				reject.set(result);
+			}
+		});
+
+		assertTrue(deferred.cancel());
+		assertFalse(deferred.cancel());
+		assertTrue(deferred.isRejected());
+		assertTrue(reject.get() instanceof CancellationException);
+	}
+
+	@Test
+	public void cancelPropagatesThroughFilterToTask() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final AtomicBoolean handlerRan = new AtomicBoolean();
+		DeferredFutureTask<String, Void> task = new DeferredFutureTask<String, Void>(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				started.countDown();
+				Thread.sleep(5000);
+				return "late";
+			}
+		}, new CancellationHandler() {
+			@Override
+			public void onCancel() {
+				handlerRan.set(true);
+			}
+		});
+
+		Promise<Integer, Throwable, Void> length = deferredManager.when(task).filter(new DoneFilter<String, Integer>() {
+			@Override
+			public Integer filterDone(String result) {
+				return result.length();
+			}
+		});
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+
+		assertTrue(cancel(length));
+		task.promise().waitSafely();
+
+		assertTrue(task.isCancelled());
+		assertTrue(task.promise().isRejected());
+		assertTrue(handlerRan.get());
+	}
+
+	@Test
+	public void sharedUpstreamIsCancelledByItsLastDependent() {
+		DeferredObject<String, Throwable, Void> source = new DeferredObject<String, Throwable, Void>();
+		Promise<String, Throwable, Void> first = source.filter(new DoneFilter<String, String>() {
+			@Override
+			public String filterDone(String result) {
+				return result;
+			}
+		});
+		Promise<String, Throwable, Void> second = source.pipe(new DonePipe<String, String, Throwable, Void>() {
+			@Override
+			public Promise<String, Throwable, Void> pipeDone(String result) {
+				return new DeferredObject<String, Throwable, Void>().resolve(result);
+			}
+		});
+
+		cancel(first);
+		assertTrue(source.isPending());
+		assertTrue(second.isPending());
+
+		cancel(second);
+		assertTrue(source.isRejected());
+	}
+
+	@Test
+	public void directCallbackKeepsUpstreamAlive() throws InterruptedException {
+		final AtomicReference<String> done = new AtomicReference<String>();
+		Promise<String, Throwable, Void> p = deferredManager.when(successCallable("result", 200));
+		p.done(new DoneCallback<String>() {
+			@Override
+			public void onDone(String result) {
+				done.set(result);
+			}
+		});
+		Promise<Integer, Throwable, Void> q = p.filter(new DoneFilter<String, Integer>() {
+			@Override
+			public Integer filterDone(String result) {
+				return result.length();
+			}
+		});
+
+		assertTrue(cancel(q));
+		assertTrue(p.isPending());
+
+		p.waitSafely();
+		assertTrue(p.isResolved());
+		assertEquals("result", done.get());
+	}
+
+	@Test
+	public void cancelReachesThePipedPromise() {
+		final DeferredObject<String, Throwable, Void> inner = new DeferredObject<String, Throwable, Void>();
+		DeferredObject<String, Throwable, Void> source = new DeferredObject<String, Throwable, Void>();
+		Promise<String, Throwable, Void> piped = source.pipe(new DonePipe<String, String, Throwable, Void>() {
+			@Override
+			public Promise<String, Throwable, Void> pipeDone(String result) {
+				return inner;
+			}
+		});
+
+		source.resolve("a");
+		assertTrue(inner.isPending());
+
+		cancel(piped);
+		assertTrue(piped.isRejected());
+		assertTrue(inner.isRejected());
+	}
+
+	@Test
+	public void cancellationDoesNotRunFailPipes() {
+		final AtomicInteger failPipes = new AtomicInteger();
+		DeferredObject<String, Throwable, Void> source = new DeferredObject<String, Throwable, Void>();
+		Promise<String, Throwable, Void> piped = source.pipe(null, new FailPipe<Throwable, String, Throwable, Void>() {
+			@Override
+			public Promise<String, Throwable, Void> pipeFail(Throwable result) {
+				failPipes.incrementAndGet();
+				return new DeferredObject<String, Throwable, Void>().resolve("recovered");
+			}
+		});
+
+		cancel(piped);
+
+		assertTrue(source.isRejected());
+		assertTrue(piped.isRejected());
+		assertEquals(0, failPipes.get());
+	}
+
+	@Test
+	public void cancellingMasterCancelsInputs() {
+		DeferredObject<String, Throwable, Void> first = new DeferredObject<String, Throwable, Void>();
+		DeferredObject<String, Throwable, Void> second = new DeferredObject<String, Throwable, Void>();
+
+		final AtomicReference<OneReject<?>> reject = new AtomicReference<OneReject<?>>();
+		Promise<MultipleResults, OneReject<?>, MasterProgress> master = deferredManager.when(Arrays.asList(first, second))
+			.fail(new FailCallback<OneReject<?>>() {
+				@Override
+				public void onFail(OneReject<?> result) {
+					reject.set(result);
+				}
+			});
+
+		cancel(master);
+
+		assertTrue(first.isRejected());
+		assertTrue(second.isRejected());
+		assertEquals(-1, reject.get().getIndex());
+		assertTrue(reject.get().getReject() instanceof CancellationException);
+	}
+
+	@Test
+	public void cancellingRaceCancelsEveryTask() {
+		DeferredFutureTask<String, Void> first = sleepingTask();
+		DeferredFutureTask<String, Void> second = sleepingTask();
+
+		final AtomicReference<OneReject<Throwable>> reject = new AtomicReference<OneReject<Throwable>>();
+		Promise<OneResult<?>, OneReject<Throwable>, Void> race = deferredManager.race(first, second)
+			.fail(new FailCallback<OneReject<Throwable>>() {
+				@Override
+				public void onFail(OneReject<Throwable> result) {
+					reject.set(result);
+				}
+			});
+
+		assertTrue(cancel(race));
+
+		assertEquals(-1, reject.get().getIndex());
+		assertTrue(reject.get().getReject() instanceof CancellationException);
+		assertTrue(first.isCancelled());
+		assertTrue(second.isCancelled());
+	}
+
+	@Test
+	public void cancellingSomeRejectsWithAllValues() {
+		DeferredFutureTask<String, Void> first = sleepingTask();
+		DeferredFutureTask<String, Void> second = sleepingTask();
+
+		final AtomicReference<AllValues> reject = new AtomicReference<AllValues>();
+		Promise<MultipleResults, AllValues, MasterProgress> some = deferredManager.some(1, first, second)
+			.fail(new FailCallback<AllValues>() {
+				@Override
+				public void onFail(AllValues result) {
+					reject.set(result);
+				}
+			});
+
+		assertTrue(cancel(some));
+
+		assertCancelledAllValues(reject.get());
+		assertTrue(first.isCancelled());
+		assertTrue(second.isCancelled());
+	}
+
+	@Test
+	public void cancellingSomeCancelsInputPromises() {
+		DeferredObject<String, Throwable, Void> first = new DeferredObject<String, Throwable, Void>();
+		DeferredObject<String, Throwable, Void> second = new DeferredObject<String, Throwable, Void>();
+
+		Promise<MultipleResults, AllValues, MasterProgress> some = deferredManager.some(1, first, second);
+
+		assertTrue(cancel(some));
+
+		assertTrue(first.isRejected());
+		assertTrue(second.isRejected());
+	}
+
+	@Test
+	public void cancellingAnyRejectsWithAllValues() {
+		DeferredFutureTask<String, Void> first = sleepingTask();
+		DeferredFutureTask<String, Void> second = sleepingTask();
+
+		final AtomicReference<AllValues> reject = new AtomicReference<AllValues>();
+		Promise<OneResult<?>, AllValues, MasterProgress> any = deferredManager.any(first, second)
+			.fail(new FailCallback<AllValues>() {
+				@Override
+				public void onFail(AllValues result) {
+					reject.set(result);
+				}
+			});
+
+		assertTrue(cancel(any));
+
+		assertCancelledAllValues(reject.get());
+		assertTrue(first.isCancelled());
+		assertTrue(second.isCancelled());
+	}
+
+	@Test
+	public void cancellingReduceRejectsWithOneReject() {
+		DeferredObject<Integer, Throwable, Void> input = new DeferredObject<Integer, Throwable, Void>();
+
+		final AtomicReference<OneReject<?>> reject = new AtomicReference<OneReject<?>>();
+		Promise<Integer, OneReject<?>, Void> sum = deferredManager.<Integer, Integer>reduce(Arrays.asList(input), 0, new Reducer<Integer, Integer>() {
+			@Override
+			public Integer reduce(Integer accumulated, Integer value) {
+				return accumulated + value;
+			}
+		}).fail(new FailCallback<OneReject<?>>() {
+			@Override
+			public void onFail(OneReject<?> result) {
+				reject.set(result);
+			}
+		});
+
+		assertTrue(cancel(sum));
+
+		assertEquals(-1, reject.get().getIndex());
+		assertTrue(reject.get().getReject() instanceof CancellationException);
+		assertTrue(input.isRejected());
+	}
+
+	@Test
+	public void cancellingWhenEachRejectsWithOneReject() {
+		DeferredObject<String, Throwable, Void> input = new DeferredObject<String, Throwable, Void>();
+
+		final AtomicReference<OneReject<?>> reject = new AtomicReference<OneReject<?>>();
+		Promise<MasterProgress, OneReject<?>, Void> each = deferredManager.whenEach(Arrays.asList(input), new DoneCallback<OneResult<?>>() {
+			@Override
+			public void onDone(OneResult<?> result) {
+			}
+		}).fail(new FailCallback<OneReject<?>>() {
+			@Override
+			public void onFail(OneReject<?> result) {
+				reject.set(result);
+			}
+		});
+
+		assertTrue(cancel(each));
+
+		assertEquals(-1, reject.get().getIndex());
+		assertTrue(reject.get().getReject() instanceof CancellationException);
+		assertTrue(input.isRejected());
+	}
+
+	@Test
+	public void cancellingSettleEachRejectsWithCancellationException() {
+		DeferredObject<String, Throwable, Void> input = new DeferredObject<String, Throwable, Void>();
+
+		final AtomicReference<Throwable> reject = new AtomicReference<Throwable>();
+		Promise<MasterProgress, Throwable, Void> each = deferredManager.settleEach(Arrays.asList(input), new DoneCallback<OneValue<?>>() {
+			@Override
+			public void onDone(OneValue<?> value) {
+			}
+		}).fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable result) {
+				reject.set(result);
+			}
+		});
+
+		assertTrue(cancel(each));
+
+		assertTrue(reject.get() instanceof CancellationException);
+		assertTrue(input.isRejected());
+	}
+
+	@Test
+	public void cancellingWindowedWhenRejectsWithOneReject() {
+		DeferredObject<String, Throwable, Void> first = new DeferredObject<String, Throwable, Void>();
+		DeferredObject<String, Throwable, Void> second = new DeferredObject<String, Throwable, Void>();
+
+		final AtomicReference<OneReject<?>> reject = new AtomicReference<OneReject<?>>();
+		Promise<MultipleResults, OneReject<?>, MasterProgress> master = deferredManager.when(Arrays.asList(first, second), 1)
+			.fail(new FailCallback<OneReject<?>>() {
+				@Override
+				public void onFail(OneReject<?> result) {
+					reject.set(result);
+				}
+			});
+
+		assertTrue(cancel(master));
+
+		assertEquals(-1, reject.get().getIndex());
+		assertTrue(reject.get().getReject() instanceof CancellationException);
+		assertTrue(first.isRejected());
+		// never pulled, as only one item may be in flight
+		assertTrue(second.isPending());
+	}
+
+	private DeferredFutureTask<String, Void> sleepingTask() {
+		return new DeferredFutureTask<String, Void>(successCallable("late", 5000));
+	}
+
+	private void assertCancelledAllValues(AllValues reject) {
+		assertEquals(1, reject.size());
+		assertEquals(-1, reject.get(0).getIndex());
+		assertTrue(((OneReject<?>) reject.get(0)).getReject() instanceof CancellationException);
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.DeferredCallable;
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.DeferredManager.CancellationPolicy;
+import org.jdeferred2.DeferredManager.StartPolicy;
+import org.jdeferred2.Promise;
+import org.jdeferred2.multiple.OneReject;
+import org.jdeferred2.multiple.OneResult;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CooperativeCancellationTest extends AbstractDeferredTest {
+	@Test
+	public void raceLoserBailsOutWithoutInterrupt() throws InterruptedException {
+		final CountDownLatch loserStarted = new CountDownLatch(1);
+		final CountDownLatch loserStopped = new CountDownLatch(1);
+		final AtomicBoolean interrupted = new AtomicBoolean();
+
+		DeferredCallable<String, Void> winner = new DeferredCallable<String, Void>() {
+			@Override
+			public String call() throws Exception {
+				if (!loserStarted.await(1, TimeUnit.SECONDS)) {
+					throw new IllegalStateException("the loser never started");
+				}
+				return "winner";
+			}
+		};
+		DeferredCallable<String, Void> loser = new DeferredCallable<String, Void>(StartPolicy.DEFAULT, CancellationPolicy.COOPERATIVE) {
+			@Override
+			public String call() {
+				loserStarted.countDown();
+				while (!isCancellationRequested()) {
+					Thread.yield();
+				}
+				interrupted.set(Thread.currentThread().isInterrupted());
+				loserStopped.countDown();
+				return "loser";
+			}
+		};
+
+		Promise<OneResult<?>, OneReject<Throwable>, Void> race = deferredManager.race(winner, loser);
+		race.waitSafely();
+
+		assertTrue(race.isResolved());
+		assertTrue(loserStopped.await(1, TimeUnit.SECONDS));
+		assertFalse(interrupted.get());
+	}
+
+	@Test
+	public void defaultPolicyInterruptsAndFlagsTheTask() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch stopped = new CountDownLatch(1);
+		final AtomicBoolean requested = new AtomicBoolean();
+
+		DeferredFutureTask<String, Void> task = new DeferredFutureTask<String, Void>(new DeferredCallable<String, Void>() {
+			@Override
+			public String call() throws Exception {
+				started.countDown();
+				try {
+					Thread.sleep(5000);
+				} catch (InterruptedException e) {
+					requested.set(isCancellationRequested());
+					stopped.countDown();
+					throw e;
+				}
+				return "late";
+			}
+		});
+		assertEquals(CancellationPolicy.INTERRUPT, task.getCancellationPolicy());
+
+		deferredManager.when(task);
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+		assertTrue(task.cancel());
+
+		assertTrue(stopped.await(1, TimeUnit.SECONDS));
+		assertTrue(requested.get());
+		assertTrue(task.promise().isRejected());
+	}
+
+	@Test
+	public void cancellingThePromiseSignalsTheTask() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch stopped = new CountDownLatch(1);
+
+		DeferredFutureTask<String, Void> task = new DeferredFutureTask<String, Void>(new DeferredCallable<String, Void>(StartPolicy.DEFAULT, CancellationPolicy.COOPERATIVE) {
+			@Override
+			public String call() {
+				started.countDown();
+				while (!isCancellationRequested()) {
+					Thread.yield();
+				}
+				stopped.countDown();
+				return "cancelled";
+			}
+		});
+
+		Promise<String, Throwable, Void> promise = deferredManager.when(task);
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+		assertTrue(cancel(promise));
+
+		assertTrue(stopped.await(1, TimeUnit.SECONDS));
+		assertTrue(task.isCancelled());
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.AlwaysPipe;
+import org.jdeferred2.Deadline;
+import org.jdeferred2.DeferredCallable;
+import org.jdeferred2.DeferredTimeoutException;
+import org.jdeferred2.DoneFilter;
+import org.jdeferred2.DonePipe;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.FailFilter;
+import org.jdeferred2.Promise;
+import org.jdeferred2.Promise.State;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DeadlineTest extends AbstractDeferredTest {
+	@Test
+	public void stagesInheritTheDeadline() throws InterruptedException {
+		final Deadline deadline = Deadline.after(1, TimeUnit.SECONDS);
+		final AtomicReference<Deadline> seenByStage = new AtomicReference<Deadline>();
+		final AtomicReference<Deadline> seenByTask = new AtomicReference<Deadline>();
+		DeferredObject<String, Throwable, Void> source = new DeferredObject<String, Throwable, Void>();
+
+		Promise<String, Throwable, Void> promise = deferredManager.withDeadline(source, deadline)
+			.filter(new DoneFilter<String, String>() {
+				@Override
+				public String filterDone(String result) {
+					seenByStage.set(Deadline.current());
+					return result;
+				}
+			})
+			.pipe(new DonePipe<String, String, Throwable, Void>() {
+				@Override
+				public Promise<String, Throwable, Void> pipeDone(final String result) {
+					return deferredManager.when(new DeferredCallable<String, Void>() {
+						@Override
+						public String call() throws Exception {
+							seenByTask.set(getDeadline());
+							return result;
+						}
+					});
+				}
+			});
+
+		source.resolve("a");
+		promise.waitSafely();
+
+		assertTrue(promise.isResolved());
+		assertSame(deadline, seenByStage.get());
+		assertSame(deadline, seenByTask.get());
+		assertNull(Deadline.current());
+	}
+
+	@Test
+	public void expiredStagesShortCircuit() throws InterruptedException {
+		final AtomicInteger stageRuns = new AtomicInteger();
+		final AtomicReference<Throwable> reject = new AtomicReference<Throwable>();
+		DeferredObject<String, Throwable, Void> source = new DeferredObject<String, Throwable, Void>();
+		source.deadline = Deadline.after(0, TimeUnit.NANOSECONDS);
+
+		Promise<String, Throwable, Void> promise = source.pipe(new DonePipe<String, String, Throwable, Void>() {
+			@Override
+			public Promise<String, Throwable, Void> pipeDone(String result) {
+				stageRuns.incrementAndGet();
+				return new DeferredObject<String, Throwable, Void>().resolve(result);
+			}
+		}).fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable result) {
+				reject.set(result);
+			}
+		});
+
+		source.resolve("a");
+		promise.waitSafely();
+
+		assertEquals(0, stageRuns.get());
+		assertTrue(reject.get() instanceof DeferredTimeoutException);
+	}
+
+	@Test
+	public void expiredFilterRunsItsFailFilter() throws InterruptedException {
+		final AtomicInteger stageRuns = new AtomicInteger();
+		final AtomicReference<String> reject = new AtomicReference<String>();
+		DeferredObject<String, Throwable, Void> source = new DeferredObject<String, Throwable, Void>();
+		source.deadline = Deadline.after(0, TimeUnit.NANOSECONDS);
+
+		Promise<Integer, String, Void> promise = source.filter(new DoneFilter<String, Integer>() {
+			@Override
+			public Integer filterDone(String result) {
+				stageRuns.incrementAndGet();
+				return result.length();
+			}
+		}, new FailFilter<Throwable, String>() {
+			@Override
+			public String filterFail(Throwable result) {
+				return result.getClass().getSimpleName();
+			}
+		}).fail(new FailCallback<String>() {
+			@Override
+			public void onFail(String result) {
+				reject.set(result);
+			}
+		});
+
+		source.resolve("a");
+		promise.waitSafely();
+
+		assertEquals(0, stageRuns.get());
+		assertEquals("DeferredTimeoutException", reject.get());
+	}
+
+	@Test
+	public void failFilterEndsTheDeadline() throws InterruptedException {
+		final AtomicReference<String> reject = new AtomicReference<String>();
+		DeferredObject<String, Throwable, Void> source = new DeferredObject<String, Throwable, Void>();
+		source.deadline = Deadline.after(0, TimeUnit.NANOSECONDS);
+
+		Promise<String, String, Void> described = source.filter(null, new FailFilter<Throwable, String>() {
+			@Override
+			public String filterFail(Throwable result) {
+				return result.getClass().getSimpleName();
+			}
+		});
+		// a timeout would not fit the String failures of this stage
+		Promise<Integer, String, Void> promise = described.filter(new DoneFilter<String, Integer>() {
+			@Override
+			public Integer filterDone(String result) {
+				return result.length();
+			}
+		}).fail(new FailCallback<String>() {
+			@Override
+			public void onFail(String result) {
+				reject.set(result);
+			}
+		});
+
+		source.resolve("a");
+		promise.waitSafely();
+
+		assertTrue(promise.isResolved());
+		assertNull(reject.get());
+	}
+
+	@Test
+	public void expiredAlwaysPipeSeesTheTimeout() throws InterruptedException {
+		final AtomicReference<State> state = new AtomicReference<State>();
+		final AtomicReference<Throwable> reject = new AtomicReference<Throwable>();
+		DeferredObject<String, Throwable, Void> source = new DeferredObject<String, Throwable, Void>();
+		source.deadline = Deadline.after(0, TimeUnit.NANOSECONDS);
+
+		Promise<String, Throwable, Void> promise = source.pipeAlways(new AlwaysPipe<String, Throwable, String, Throwable, Void>() {
+			@Override
+			public Promise<String, Throwable, Void> pipeAlways(State s, String resolved, Throwable rejected) {
+				state.set(s);
+				reject.set(rejected);
+				return new DeferredObject<String, Throwable, Void>().resolve("fallback");
+			}
+		});
+
+		source.resolve("a");
+		promise.waitSafely();
+
+		assertEquals(State.REJECTED, state.get());
+		assertTrue(reject.get() instanceof DeferredTimeoutException);
+		assertTrue(promise.isResolved());
+	}
+
+	@Test
+	public void expiredTasksAreNotSubmitted() throws InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		Promise<String, Throwable, Void> promise;
+		Deadline previous = Deadline.setCurrent(Deadline.after(0, TimeUnit.NANOSECONDS));
+		try {
+			promise = deferredManager.when(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					calls.incrementAndGet();
+					return "a";
+				}
+			});
+		} finally {
+			Deadline.setCurrent(previous);
+		}
+
+		assertTrue(promise.isRejected());
+		assertEquals(0, calls.get());
+		assertNotNull(((AbstractPromise<?, ?, ?>) promise).getDeadline());
+	}
+
+	@Test
+	public void withDeadlineRejectsOnceExpired() throws InterruptedException {
+		Promise<String, Throwable, Void> promise = deferredManager.withDeadline(new DeferredObject<String, Throwable, Void>(),
+			Deadline.after(20, TimeUnit.MILLISECONDS));
+
+		promise.waitSafely();
+
+		assertTrue(promise.isRejected());
+	}
+
+	@Test
+	public void earlierDeadlineWins() {
+		Deadline early = Deadline.after(1, TimeUnit.SECONDS);
+		Deadline late = Deadline.after(1, TimeUnit.HOURS);
+
+		assertSame(early, early.minimum(late));
+		assertSame(early, late.minimum(early));
+		assertSame(late, late.minimum(null));
+	}
+}
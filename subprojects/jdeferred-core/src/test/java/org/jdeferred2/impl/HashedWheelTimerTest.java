@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashedWheelTimerTest {
+	private final HashedWheelTimer timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8);
+
+	@After
+	public void tearDown() {
+		timer.stop();
+	}
+
+	@Test
+	public void expiresTimeoutsNoEarlierThanTheirDelay() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(3);
+		final long start = System.nanoTime();
+		final AtomicInteger early = new AtomicInteger();
+		for (final long delay : new long[]{5, 20, 50}) {
+			timer.newTimeout(new Runnable() {
+				@Override
+				public void run() {
+					if (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(delay)) {
+						early.incrementAndGet();
+					}
+					latch.countDown();
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals(0, early.get());
+	}
+
+	@Test
+	public void cancelledTimeoutsDoNotRun() throws InterruptedException {
+		final AtomicInteger runs = new AtomicInteger();
+		HashedWheelTimer.Timeout timeout = timer.newTimeout(new Runnable() {
+			@Override
+			public void run() {
+				runs.incrementAndGet();
+			}
+		}, 20, TimeUnit.MILLISECONDS);
+
+		assertTrue(timeout.cancel());
+		assertFalse(timeout.cancel());
+		Thread.sleep(50);
+
+		assertTrue(timeout.isCancelled());
+		assertFalse(timeout.isExpired());
+		assertEquals(0, runs.get());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void cannotScheduleOnceStopped() {
+		timer.newTimeout(new Runnable() {
+			@Override
+			public void run() {
+			}
+		}, 1, TimeUnit.MILLISECONDS);
+		timer.stop();
+		timer.newTimeout(new Runnable() {
+			@Override
+			public void run() {
+			}
+		}, 1, TimeUnit.MILLISECONDS);
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.LatencyPercentile;
+import org.jdeferred2.Promise;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HedgeTest extends AbstractDeferredTest {
+	@Test
+	public void fastAttemptDoesNotHedge() throws InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		Promise<String, Throwable, Integer> promise = deferredManager.hedge(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				calls.incrementAndGet();
+				return "fast";
+			}
+		}, 200, TimeUnit.MILLISECONDS, 2);
+
+		promise.waitSafely();
+		Thread.sleep(300);
+
+		assertTrue(promise.isResolved());
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void slowAttemptIsHedgedAndCancelled() throws InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		final AtomicInteger interrupted = new AtomicInteger();
+		final AtomicReference<String> result = new AtomicReference<String>();
+		Promise<String, Throwable, Integer> promise = deferredManager.hedge(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				if (calls.incrementAndGet() == 1) {
+					try {
+						Thread.sleep(5000);
+					} catch (InterruptedException e) {
+						interrupted.incrementAndGet();
+						throw e;
+					}
+					return "slow";
+				}
+				return "hedge";
+			}
+		}, 20, TimeUnit.MILLISECONDS, 1).done(new DoneCallback<String>() {
+			@Override
+			public void onDone(String value) {
+				result.set(value);
+			}
+		});
+
+		promise.waitSafely();
+		Thread.sleep(50);
+
+		assertEquals("hedge", result.get());
+		assertEquals(2, calls.get());
+		assertEquals(1, interrupted.get());
+	}
+
+	@Test
+	public void failedAttemptLaunchesNextHedgeImmediately() throws InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		Promise<String, Throwable, Integer> promise = deferredManager.hedge(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				if (calls.incrementAndGet() == 1) {
+					throw new IllegalStateException();
+				}
+				return "ok";
+			}
+		}, 10, TimeUnit.SECONDS, 1);
+
+		promise.waitSafely(2000);
+
+		assertTrue(promise.isResolved());
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	public void rejectsOnceEveryAttemptFailed() throws InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		Promise<String, Throwable, Integer> promise = deferredManager.hedge(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				calls.incrementAndGet();
+				throw new IllegalStateException();
+			}
+		}, 10, TimeUnit.MILLISECONDS, 2);
+
+		promise.waitSafely();
+
+		assertTrue(promise.isRejected());
+		assertEquals(3, calls.get());
+	}
+
+	@Test
+	public void losingFirstAttemptIsRecorded() throws InterruptedException {
+		final List<Long> samples = new CopyOnWriteArrayList<Long>();
+		LatencyPercentile latency = new LatencyPercentile(95, 100, 20, TimeUnit.MILLISECONDS) {
+			@Override
+			public synchronized void record(long latency, TimeUnit unit) {
+				super.record(latency, unit);
+				samples.add(unit.toMillis(latency));
+			}
+		};
+		final AtomicInteger calls = new AtomicInteger();
+		Promise<String, Throwable, Integer> promise = deferredManager.hedge(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				if (calls.incrementAndGet() == 1) {
+					Thread.sleep(5000);
+					return "slow";
+				}
+				return "hedge";
+			}
+		}, latency, 1);
+
+		promise.waitSafely();
+		Thread.sleep(50);
+
+		assertTrue(promise.isResolved());
+		// the cancelled first attempt counts with the time it ran, not just the winning hedge
+		assertEquals(2, samples.size());
+		assertTrue(Collections.max(samples) >= 20);
+	}
+
+	@Test
+	public void cancelledHedgeIsNotRecorded() throws InterruptedException {
+		final List<Long> samples = new CopyOnWriteArrayList<Long>();
+		LatencyPercentile latency = new LatencyPercentile(95, 100, 20, TimeUnit.MILLISECONDS) {
+			@Override
+			public synchronized void record(long latency, TimeUnit unit) {
+				super.record(latency, unit);
+				samples.add(unit.toMillis(latency));
+			}
+		};
+		final AtomicInteger calls = new AtomicInteger();
+		Promise<String, Throwable, Integer> promise = deferredManager.hedge(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				if (calls.incrementAndGet() == 1) {
+					Thread.sleep(100);
+					return "first";
+				}
+				Thread.sleep(5000);
+				return "hedge";
+			}
+		}, latency, 1);
+
+		promise.waitSafely();
+		Thread.sleep(50);
+
+		assertTrue(promise.isResolved());
+		assertEquals(2, calls.get());
+		// the hedge was cut short after a fraction of the first attempt's latency
+		assertEquals(1, samples.size());
+		assertTrue(samples.get(0) >= 100);
+	}
+
+	@Test
+	public void latencyPercentileTracksRecordedSamples() {
+		LatencyPercentile latency = new LatencyPercentile(90, 100, 7, TimeUnit.MILLISECONDS);
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(7), latency.getNanos());
+
+		for (int i = 1; i <= 100; i++) {
+			latency.record(i, TimeUnit.MILLISECONDS);
+		}
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(90), latency.getNanos());
+	}
+}
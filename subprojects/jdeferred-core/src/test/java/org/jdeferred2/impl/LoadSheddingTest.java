@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LoadSheddingTest extends AbstractDeferredTest {
+	@Override
+	protected void createDeferredManager() {
+		deferredManager = new DefaultDeferredManager(new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>()));
+	}
+
+	@Test
+	public void staleTasksAreDroppedAndFreshOnesRun() throws InterruptedException {
+		deferredManager.setLoadShedding(5, 50, TimeUnit.MILLISECONDS);
+		assertTrue(deferredManager.isLoadShedding());
+
+		final CountDownLatch started = new CountDownLatch(1);
+		deferredManager.when(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				started.countDown();
+				Thread.sleep(100);
+				return null;
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		final AtomicInteger dropped = new AtomicInteger();
+		List<Promise<String, Throwable, Void>> stale = new ArrayList<Promise<String, Throwable, Void>>();
+		for (int i = 0; i < 10; i++) {
+			Promise<String, Throwable, Void> promise = deferredManager.when(successCallable("stale", 0));
+			promise.fail(new FailCallback<Throwable>() {
+				@Override
+				public void onFail(Throwable result) {
+					if (result instanceof RejectedExecutionException) {
+						dropped.incrementAndGet();
+					}
+				}
+			});
+			stale.add(promise);
+		}
+		for (Promise<String, Throwable, Void> promise : stale) {
+			promise.waitSafely();
+		}
+
+		assertEquals(10, dropped.get());
+		assertEquals(10, deferredManager.getShedCount());
+
+		Promise<String, Throwable, Void> fresh = deferredManager.when(successCallable("fresh", 0));
+		fresh.waitSafely();
+		assertTrue(fresh.isResolved());
+	}
+
+	@Test
+	public void tasksRecordTheirQueueTime() throws InterruptedException {
+		DeferredFutureTask<String, Void> task = new DeferredFutureTask<String, Void>(successCallable("task", 0));
+		assertEquals(-1L, task.getQueueTimeNanos());
+
+		deferredManager.when(task).waitSafely();
+		assertTrue(task.getQueueTimeNanos() >= 0);
+		assertFalse(deferredManager.isLoadShedding());
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.AlwaysCallback;
+import org.jdeferred2.DeferredCancellationException;
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.multiple.OneReject;
+import org.jdeferred2.multiple.OneResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MassCancellationTest extends AbstractDeferredTest {
+	private static final int LOSERS = 10000;
+
+	private ThreadPoolExecutor executor;
+	private final AtomicInteger purges = new AtomicInteger();
+
+	@Override
+	protected void createDeferredManager() {
+		executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+		deferredManager = new CountingDeferredManager(executor);
+	}
+
+	private class CountingDeferredManager extends DefaultDeferredManager {
+		CountingDeferredManager(ThreadPoolExecutor executor) {
+			super(executor);
+		}
+
+		@Override
+		protected void purge() {
+			purges.incrementAndGet();
+			super.purge();
+		}
+	}
+
+	@Test
+	public void settledRaceDropsQueuedLosers() throws InterruptedException {
+		final CountDownLatch go = new CountDownLatch(1);
+		List<DeferredFutureTask<String, Void>> tasks = new ArrayList<DeferredFutureTask<String, Void>>();
+		tasks.add(new DeferredFutureTask<String, Void>(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				go.await();
+				return "winner";
+			}
+		}));
+		for (int i = 0; i < LOSERS; i++) {
+			tasks.add(new DeferredFutureTask<String, Void>(successCallable("loser", 0)));
+		}
+
+		final AtomicInteger sharedFailures = new AtomicInteger();
+		for (DeferredFutureTask<String, Void> task : tasks) {
+			task.promise().fail(new FailCallback<Throwable>() {
+				@Override
+				public void onFail(Throwable result) {
+					if (result == DeferredCancellationException.INSTANCE) {
+						sharedFailures.incrementAndGet();
+					}
+				}
+			});
+		}
+
+		final CountDownLatch settled = new CountDownLatch(1);
+		Promise<OneResult<?>, OneReject<Throwable>, Void> race = deferredManager.race(tasks);
+		race.always(new AlwaysCallback<OneResult<?>, OneReject<Throwable>>() {
+			@Override
+			public void onAlways(Promise.State state, OneResult<?> resolved, OneReject<Throwable> rejected) {
+				settled.countDown();
+			}
+		});
+		assertEquals(LOSERS, executor.getQueue().size());
+
+		go.countDown();
+		assertTrue(settled.await(5, TimeUnit.SECONDS));
+
+		assertTrue(race.isResolved());
+		assertEquals(LOSERS, sharedFailures.get());
+		assertTrue(executor.getQueue().isEmpty());
+		assertEquals(1, purges.get());
+		for (DeferredFutureTask<String, Void> task : tasks.subList(1, tasks.size())) {
+			assertTrue(task.isCancelled());
+		}
+	}
+
+	@Test
+	public void settledRaceOfRunningTasksDoesNotPurge() throws InterruptedException {
+		ThreadPoolExecutor wide = new ThreadPoolExecutor(3, 3, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+		try {
+			DefaultDeferredManager manager = new CountingDeferredManager(wide);
+			final CountDownLatch running = new CountDownLatch(3);
+			final CountDownLatch go = new CountDownLatch(1);
+			List<DeferredFutureTask<String, Void>> tasks = new ArrayList<DeferredFutureTask<String, Void>>();
+			for (int i = 0; i < 3; i++) {
+				final boolean winner = i == 0;
+				tasks.add(new DeferredFutureTask<String, Void>(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						running.countDown();
+						if (winner) {
+							go.await();
+						} else {
+							Thread.sleep(5000);
+						}
+						return "done";
+					}
+				}));
+			}
+
+			Promise<OneResult<?>, OneReject<Throwable>, Void> race = manager.race(tasks);
+			assertTrue(running.await(5, TimeUnit.SECONDS));
+			go.countDown();
+			race.waitSafely(5000);
+
+			assertTrue(race.isResolved());
+			assertTrue(tasks.get(1).isCancelled());
+			assertTrue(tasks.get(2).isCancelled());
+			assertEquals(0, purges.get());
+		} finally {
+			wide.shutdownNow();
+		}
+	}
+
+	@Test
+	public void cancellationSharesOneStacklessException() {
+		DeferredObject<String, Throwable, Void> first = new DeferredObject<String, Throwable, Void>();
+		DeferredObject<String, Throwable, Void> second = new DeferredObject<String, Throwable, Void>();
+
+		first.cancel();
+		second.cancel();
+
+		assertSame(DeferredCancellationException.INSTANCE, first.rejectResult);
+		assertSame(first.rejectResult, second.rejectResult);
+		assertEquals(0, DeferredCancellationException.INSTANCE.getStackTrace().length);
+	}
+}
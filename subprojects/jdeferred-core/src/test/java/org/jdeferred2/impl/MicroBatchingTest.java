@@ -0,0 +1,155 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.Promise;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MicroBatchingTest extends AbstractDeferredTest {
+	private ThreadPoolExecutor executor;
+
+	@Override
+	protected void createDeferredManager() {
+		executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+		deferredManager = new DefaultDeferredManager(executor);
+	}
+
+	@Test
+	public void fullBatchesRunAsOneJob() throws InterruptedException {
+		deferredManager.setMicroBatching(4, 1, TimeUnit.MINUTES);
+		assertTrue(deferredManager.isMicroBatching());
+
+		List<Promise<Integer, Throwable, Void>> promises = new ArrayList<Promise<Integer, Throwable, Void>>();
+		for (int i = 0; i < 8; i++) {
+			promises.add(deferredManager.when(successCallable(i, 0)));
+		}
+		for (Promise<Integer, Throwable, Void> promise : promises) {
+			promise.waitSafely();
+			assertTrue(promise.isResolved());
+		}
+
+		assertEquals(2, executor.getTaskCount());
+	}
+
+	@Test
+	public void partialBatchesRunOnceTheLingerElapses() throws InterruptedException {
+		deferredManager.setMicroBatching(100, 10, TimeUnit.MILLISECONDS);
+
+		Promise<Integer, Throwable, Void> first = deferredManager.when(successCallable(1, 0));
+		Promise<Integer, Throwable, Void> second = deferredManager.when(successCallable(2, 0));
+		first.waitSafely();
+		second.waitSafely();
+
+		assertTrue(second.isResolved());
+		assertEquals(1, executor.getTaskCount());
+	}
+
+	@Test
+	public void failingTaskDoesNotStopItsBatch() {
+		final AtomicInteger ran = new AtomicInteger();
+		MicroBatchingExecutor batching = new MicroBatchingExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		}, 3, 1, TimeUnit.MINUTES);
+
+		Runnable counting = new Runnable() {
+			@Override
+			public void run() {
+				ran.incrementAndGet();
+			}
+		};
+		batching.execute(counting);
+		batching.execute(new Runnable() {
+			@Override
+			public void run() {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("boom");
+			}
+		});
+		assertEquals(2, batching.getBufferedCount());
+		batching.execute(new Runnable() {
+			@Override
+			public void run() {
+				if (!Thread.currentThread().isInterrupted()) {
+					ran.incrementAndGet();
+				}
+			}
+		});
+
+		assertEquals(2, ran.get());
+		assertEquals(0, batching.getBufferedCount());
+	}
+
+	@Test
+	public void zeroBatchSizeDisablesMicroBatching() {
+		deferredManager.setMicroBatching(4, 1, TimeUnit.MINUTES);
+		deferredManager.setMicroBatching(0, 1, TimeUnit.MINUTES);
+
+		assertFalse(deferredManager.isMicroBatching());
+	}
+
+	@Test
+	public void blockingDelegateDoesNotStallTheTimer() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch handedOver = new CountDownLatch(1);
+		MicroBatchingExecutor batching = new MicroBatchingExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				handedOver.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, 100, 10, TimeUnit.MILLISECONDS);
+
+		try {
+			batching.execute(new Runnable() {
+				@Override
+				public void run() {
+				}
+			});
+			assertTrue(handedOver.await(5, TimeUnit.SECONDS));
+
+			final CountDownLatch fired = new CountDownLatch(1);
+			GlobalConfiguration.getGlobalTimer().newTimeout(new Runnable() {
+				@Override
+				public void run() {
+					fired.countDown();
+				}
+			}, 10, TimeUnit.MILLISECONDS);
+			assertTrue(fired.await(1, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+		}
+	}
+}
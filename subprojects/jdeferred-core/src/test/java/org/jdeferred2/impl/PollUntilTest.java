@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.DeferredTimeoutException;
+import org.jdeferred2.DoneFilter;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.ProgressCallback;
+import org.jdeferred2.Promise;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PollUntilTest extends AbstractDeferredTest {
+	private static final DoneFilter<Integer, Boolean> AT_LEAST_3 = new DoneFilter<Integer, Boolean>() {
+		@Override
+		public Boolean filterDone(Integer result) {
+			return result >= 3;
+		}
+	};
+
+	@Test
+	public void pollsUntilPredicateHolds() throws InterruptedException {
+		final AtomicInteger counter = new AtomicInteger();
+		final List<Integer> attempts = new CopyOnWriteArrayList<Integer>();
+		Promise<Integer, Throwable, Integer> promise = deferredManager.pollUntil(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				return counter.incrementAndGet();
+			}
+		}, AT_LEAST_3, 5, 5000, TimeUnit.MILLISECONDS).progress(new ProgressCallback<Integer>() {
+			@Override
+			public void onProgress(Integer progress) {
+				attempts.add(progress);
+			}
+		});
+
+		promise.waitSafely();
+
+		assertTrue(promise.isResolved());
+		assertEquals(3, counter.get());
+		// the first check may complete before the progress callback is registered
+		assertEquals(Integer.valueOf(2), attempts.get(attempts.size() - 1));
+	}
+
+	@Test
+	public void rejectsWithTimeoutWhenPredicateNeverHolds() throws InterruptedException {
+		final AtomicInteger counter = new AtomicInteger();
+		final AtomicReference<Throwable> reject = new AtomicReference<Throwable>();
+		Promise<Integer, Throwable, Integer> promise = deferredManager.pollUntil(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				counter.incrementAndGet();
+				return 0;
+			}
+		}, AT_LEAST_3, 5, 50, TimeUnit.MILLISECONDS).fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable result) {
+				reject.set(result);
+			}
+		});
+
+		promise.waitSafely();
+		int polls = counter.get();
+		Thread.sleep(30);
+
+		assertTrue(reject.get() instanceof DeferredTimeoutException);
+		assertTrue(polls > 1);
+		assertTrue(counter.get() <= polls + 1);
+	}
+
+	@Test
+	public void rejectsWhenCheckFails() throws InterruptedException {
+		Promise<Void, Throwable, Integer> promise = deferredManager.pollUntil(failedCallable(new IllegalStateException(), 0),
+			new DoneFilter<Void, Boolean>() {
+				@Override
+				public Boolean filterDone(Void result) {
+					return true;
+				}
+			}, 5, 5000, TimeUnit.MILLISECONDS);
+
+		promise.waitSafely();
+
+		assertTrue(promise.isRejected());
+	}
+}
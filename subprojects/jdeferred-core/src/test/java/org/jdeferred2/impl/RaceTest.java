@@ -15,6 +15,7 @@
  */
 package org.jdeferred2.impl;
 
+import org.jdeferred2.CallbackExceptionHandler;
 import org.jdeferred2.DeferredFutureTask;
 import org.jdeferred2.DoneCallback;
 import org.jdeferred2.FailCallback;
@@ -27,10 +28,13 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -628,4 +632,138 @@ public class RaceTest extends AbstractDeferredTest {
 			}
 		}
 	}
+
+	@Test
+	public void racePromisesAndResolve() {
+		DeferredObject<String, Throwable, Void> p1 = new DeferredObject<String, Throwable, Void>();
+		DeferredObject<String, Throwable, Void> p2 = new DeferredObject<String, Throwable, Void>();
+		DeferredObject<String, Throwable, Void> p3 = new DeferredObject<String, Throwable, Void>();
+
+		final AtomicInteger index = new AtomicInteger(-1);
+		Promise<OneResult<?>, OneReject<?>, Void> race = deferredManager.race(p1, p2, p3)
+			.done(new DoneCallback<OneResult<?>>() {
+				public void onDone(OneResult<?> result) {
+					index.set(result.getIndex());
+				}
+			});
+
+		p2.resolve("second");
+
+		assertTrue(race.isResolved());
+		assertEquals(1, index.get());
+		assertTrue(p1.isRejected());
+		assertTrue(p2.isResolved());
+		assertTrue(p3.isRejected());
+	}
+
+	@Test
+	public void racePromisesAndReject() {
+		DeferredObject<String, String, Void> p1 = new DeferredObject<String, String, Void>();
+		DeferredObject<String, String, Void> p2 = new DeferredObject<String, String, Void>();
+
+		final AtomicReference<OneReject<?>> reject = new AtomicReference<OneReject<?>>();
+		deferredManager.race(p1, p2)
+			.fail(new FailCallback<OneReject<?>>() {
+				@Override
+				public void onFail(OneReject<?> result) {
+					reject.set(result);
+				}
+			});
+
+		p1.reject("boom");
+
+		assertEquals(0, reject.get().getIndex());
+		assertEquals("boom", reject.get().getReject());
+		assertTrue(p2.isRejected());
+	}
+
+	@Test
+	public void racePromisesAlreadySettled() {
+		DeferredObject<String, Throwable, Void> p1 = new DeferredObject<String, Throwable, Void>();
+		p1.resolve("first");
+		DeferredObject<String, Throwable, Void> p2 = new DeferredObject<String, Throwable, Void>();
+
+		Promise<OneResult<?>, OneReject<?>, Void> race = deferredManager.race(p1, p2);
+
+		assertTrue(race.isResolved());
+		assertTrue(p1.isResolved());
+		assertTrue(p2.isRejected());
+	}
+
+	@Test
+	public void cancellingAnUnsettledRaceCancelsEveryInput() {
+		DeferredObject<String, Throwable, Void> p1 = new DeferredObject<String, Throwable, Void>();
+		DeferredObject<String, Throwable, Void> p2 = new DeferredObject<String, Throwable, Void>();
+
+		final List<Exception> handled = new CopyOnWriteArrayList<Exception>();
+		CallbackExceptionHandler previous = GlobalConfiguration.getGlobalCallbackExceptionHandler();
+		GlobalConfiguration.setGlobalCallbackExceptionHandler(new CallbackExceptionHandler() {
+			@Override
+			public void handleException(CallbackType callbackType, Exception e) {
+				handled.add(e);
+			}
+		});
+		try {
+			final AtomicReference<OneReject<?>> reject = new AtomicReference<OneReject<?>>();
+			Promise<OneResult<?>, OneReject<?>, Void> race = deferredManager.race(p1, p2)
+				.fail(new FailCallback<OneReject<?>>() {
+					@Override
+					public void onFail(OneReject<?> result) {
+						reject.set(result);
+					}
+				});
+
+			assertTrue(cancel(race));
+
+			assertTrue(race.isRejected());
+			assertEquals(-1, reject.get().getIndex());
+			assertTrue(p1.isRejected());
+			assertTrue(p2.isRejected());
+			assertTrue(handled.isEmpty());
+		} finally {
+			GlobalConfiguration.setGlobalCallbackExceptionHandler(previous);
+		}
+	}
+
+	@Test
+	public void racePromisesUnderContention() throws Exception {
+		final int size = 64;
+		final List<DeferredObject<Integer, Throwable, Void>> deferreds = new ArrayList<DeferredObject<Integer, Throwable, Void>>();
+		for (int i = 0; i < size; i++) {
+			deferreds.add(new DeferredObject<Integer, Throwable, Void>());
+		}
+
+		final AtomicInteger doneCount = new AtomicInteger();
+		Promise<?, ?, ?>[] rest = deferreds.subList(2, size).toArray(new Promise[size - 2]);
+		deferredManager.race(deferreds.get(0), deferreds.get(1), rest)
+			.done(new DoneCallback<OneResult<?>>() {
+				public void onDone(OneResult<?> result) {
+					doneCount.incrementAndGet();
+				}
+			});
+
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[size];
+		for (int i = 0; i < size; i++) {
+			final int index = i;
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					deferreds.get(index).resolveIfPending(index);
+				}
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(1, doneCount.get());
+	}
 }
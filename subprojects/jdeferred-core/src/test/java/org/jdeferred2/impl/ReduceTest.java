@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.Reducer;
+import org.jdeferred2.multiple.OneReject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ReduceTest extends AbstractDeferredTest {
+	private static final Reducer<Long, Integer> SUM = new Reducer<Long, Integer>() {
+		@Override
+		public Long reduce(Long accumulated, Integer value) {
+			return accumulated + value;
+		}
+	};
+
+	@Test
+	public void reduceFoldsEveryResult() {
+		List<Promise<Integer, Throwable, Void>> promises = new ArrayList<Promise<Integer, Throwable, Void>>();
+		for (int i = 1; i <= 100; i++) {
+			promises.add(deferredManager.when(successCallable(i, 1)));
+		}
+
+		final AtomicReference<Long> sum = new AtomicReference<Long>();
+		deferredManager.reduce(promises, 0L, SUM).done(new DoneCallback<Long>() {
+			@Override
+			public void onDone(Long result) {
+				sum.set(result);
+			}
+		});
+
+		waitForCompletion();
+
+		assertEquals(Long.valueOf(5050), sum.get());
+	}
+
+	@Test
+	public void reduceRejectsOnFirstFailure() {
+		DeferredObject<Integer, Throwable, Void> d1 = new DeferredObject<Integer, Throwable, Void>();
+		DeferredObject<Integer, Throwable, Void> d2 = new DeferredObject<Integer, Throwable, Void>();
+		List<Promise<Integer, Throwable, Void>> promises = new ArrayList<Promise<Integer, Throwable, Void>>();
+		promises.add(d1);
+		promises.add(d2);
+
+		final AtomicReference<OneReject<?>> reject = new AtomicReference<OneReject<?>>();
+		Promise<Long, OneReject<?>, Void> promise = deferredManager.reduce(promises, 0L, SUM)
+			.fail(new FailCallback<OneReject<?>>() {
+				@Override
+				public void onFail(OneReject<?> result) {
+					reject.set(result);
+				}
+			});
+
+		d1.resolve(1);
+		d2.reject(new IllegalStateException());
+
+		assertTrue(promise.isRejected());
+		assertEquals(1, reject.get().getIndex());
+	}
+
+	@Test
+	public void reduceRejectsWhenReducerThrows() {
+		DeferredObject<Integer, Throwable, Void> d1 = new DeferredObject<Integer, Throwable, Void>();
+		List<Promise<Integer, Throwable, Void>> promises = new ArrayList<Promise<Integer, Throwable, Void>>();
+		promises.add(d1);
+
+		final AtomicReference<OneReject<?>> reject = new AtomicReference<OneReject<?>>();
+		Promise<Long, OneReject<?>, Void> promise = deferredManager.reduce(promises, 0L, new Reducer<Long, Integer>() {
+			@Override
+			public Long reduce(Long accumulated, Integer value) {
+				throw new IllegalStateException("boom");
+			}
+		}).fail(new FailCallback<OneReject<?>>() {
+			@Override
+			public void onFail(OneReject<?> result) {
+				reject.set(result);
+			}
+		});
+
+		d1.resolve(1);
+
+		assertTrue(promise.isRejected());
+		assertTrue(reject.get().getReject() instanceof IllegalStateException);
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.CancellationHandler;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.FailFilter;
+import org.jdeferred2.ProgressCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.RetryPolicy;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RetryTest extends AbstractDeferredTest {
+	private static final RetryPolicy FAST = RetryPolicy.DEFAULT
+		.withBackoff(1, TimeUnit.MILLISECONDS)
+		.withJitter(0);
+
+	private static Callable<String> failingTimes(final int failures, final AtomicInteger calls) {
+		return new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				if (calls.incrementAndGet() <= failures) {
+					throw new IllegalStateException("attempt " + calls.get());
+				}
+				return "ok";
+			}
+		};
+	}
+
+	@Test
+	public void retriesUntilSuccessAndNotifiesAttempts() throws InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		final List<Integer> attempts = new CopyOnWriteArrayList<Integer>();
+		Promise<String, Throwable, Integer> promise = deferredManager.retry(failingTimes(2, calls), FAST)
+			.progress(new ProgressCallback<Integer>() {
+				@Override
+				public void onProgress(Integer progress) {
+					attempts.add(progress);
+				}
+			});
+
+		promise.waitSafely();
+
+		assertTrue(promise.isResolved());
+		assertEquals(3, calls.get());
+		assertEquals(Arrays.asList(2, 3), attempts);
+	}
+
+	@Test
+	public void rejectsWithLastFailureOnceAttemptsAreExhausted() throws InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		final AtomicReference<Throwable> reject = new AtomicReference<Throwable>();
+		Promise<String, Throwable, Integer> promise = deferredManager.retry(failingTimes(10, calls), FAST.withMaxAttempts(4))
+			.fail(new FailCallback<Throwable>() {
+				@Override
+				public void onFail(Throwable result) {
+					reject.set(result);
+				}
+			});
+
+		promise.waitSafely();
+
+		assertEquals(4, calls.get());
+		assertEquals("attempt 4", reject.get().getMessage());
+	}
+
+	@Test
+	public void doesNotRetryFailuresRejectedByTheCondition() throws InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		Promise<String, Throwable, Integer> promise = deferredManager.retry(failingTimes(10, calls), FAST.withRetryCondition(new FailFilter<Throwable, Boolean>() {
+			@Override
+			public Boolean filterFail(Throwable result) {
+				return !(result instanceof IllegalStateException);
+			}
+		}));
+
+		promise.waitSafely();
+
+		assertTrue(promise.isRejected());
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void cancellingStopsFurtherAttempts() throws InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		Promise<String, Throwable, Integer> promise = deferredManager.retry(failingTimes(10, calls), FAST
+			.withMaxAttempts(100)
+			.withBackoff(50, TimeUnit.MILLISECONDS)
+			.withMultiplier(1));
+
+		final AtomicReference<Throwable> reject = new AtomicReference<Throwable>();
+		promise.fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable result) {
+				reject.set(result);
+			}
+		});
+		Thread.sleep(20);
+		((CancellationHandler) promise).onCancel();
+		int callsAtCancellation = calls.get();
+		Thread.sleep(150);
+
+		assertTrue(reject.get() instanceof CancellationException);
+		assertEquals(callsAtCancellation, calls.get());
+	}
+
+	@Test
+	public void backoffGrowsUpToTheMaximum() {
+		RetryPolicy policy = RetryPolicy.DEFAULT
+			.withBackoff(10, TimeUnit.MILLISECONDS)
+			.withMultiplier(2)
+			.withMaxBackoff(50, TimeUnit.MILLISECONDS)
+			.withJitter(0);
+
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(10), policy.getDelayNanos(1));
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(20), policy.getDelayNanos(2));
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(40), policy.getDelayNanos(3));
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(50), policy.getDelayNanos(4));
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.CancellationHandler;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.ProgressCallback;
+import org.jdeferred2.Promise;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScheduleTest extends AbstractDeferredTest {
+	@Test
+	public void scheduleSubmitsAfterDelay() throws InterruptedException {
+		final long start = System.nanoTime();
+		final AtomicReference<Long> startedAfter = new AtomicReference<Long>();
+		Promise<String, Throwable, Void> promise = deferredManager.schedule(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				startedAfter.set(System.nanoTime() - start);
+				return "done";
+			}
+		}, 30, TimeUnit.MILLISECONDS);
+
+		promise.waitSafely();
+
+		assertTrue(promise.isResolved());
+		assertTrue(startedAfter.get() >= TimeUnit.MILLISECONDS.toNanos(30));
+	}
+
+	@Test
+	public void cancelledScheduleNeverRuns() throws InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		Promise<String, Throwable, Void> promise = deferredManager.schedule(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				calls.incrementAndGet();
+				return "done";
+			}
+		}, 30, TimeUnit.MILLISECONDS);
+
+		((CancellationHandler) promise).onCancel();
+		Thread.sleep(60);
+
+		assertTrue(promise.isRejected());
+		assertEquals(0, calls.get());
+	}
+
+	@Test
+	public void scheduleAtFixedRateNotifiesEveryRunUntilCancelled() throws InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		final List<Integer> results = new CopyOnWriteArrayList<Integer>();
+		final AtomicReference<Throwable> reject = new AtomicReference<Throwable>();
+		// the initial delay leaves time to register the progress callback before the first run
+		Promise<Void, Throwable, Integer> promise = deferredManager.scheduleAtFixedRate(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				return calls.incrementAndGet();
+			}
+		}, 20, 10, TimeUnit.MILLISECONDS).progress(new ProgressCallback<Integer>() {
+			@Override
+			public void onProgress(Integer progress) {
+				results.add(progress);
+			}
+		}).fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable result) {
+				reject.set(result);
+			}
+		});
+
+		while (results.size() < 3) {
+			Thread.sleep(5);
+		}
+		((CancellationHandler) promise).onCancel();
+		int runs = calls.get();
+		Thread.sleep(50);
+
+		assertTrue(reject.get() instanceof CancellationException);
+		assertEquals(1, (int) results.get(0));
+		assertEquals(2, (int) results.get(1));
+		assertEquals(3, (int) results.get(2));
+		assertTrue(calls.get() <= runs + 1);
+	}
+
+	@Test
+	public void scheduleAtFixedRateStopsOnFailure() throws InterruptedException {
+		final AtomicInteger calls = new AtomicInteger();
+		Promise<Void, Throwable, Integer> promise = deferredManager.scheduleAtFixedRate(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				if (calls.incrementAndGet() == 2) {
+					throw new IllegalStateException();
+				}
+				return calls.get();
+			}
+		}, 0, 5, TimeUnit.MILLISECONDS);
+
+		promise.waitSafely();
+		Thread.sleep(30);
+
+		assertTrue(promise.isRejected());
+		assertEquals(2, calls.get());
+	}
+}
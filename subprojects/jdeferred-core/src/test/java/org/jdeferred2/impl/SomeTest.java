@@ -0,0 +1,167 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.multiple.AllValues;
+import org.jdeferred2.multiple.MultipleResults;
+import org.jdeferred2.multiple.OneReject;
+import org.jdeferred2.multiple.OneResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SomeTest extends AbstractDeferredTest {
+	@Test
+	public void someResolvesWithFirstResultsInArrivalOrder() {
+		DeferredObject<String, Throwable, Void> d1 = new DeferredObject<String, Throwable, Void>();
+		DeferredObject<String, Throwable, Void> d2 = new DeferredObject<String, Throwable, Void>();
+		DeferredObject<String, Throwable, Void> d3 = new DeferredObject<String, Throwable, Void>();
+
+		final AtomicReference<MultipleResults> results = new AtomicReference<MultipleResults>();
+		Promise<MultipleResults, AllValues, ?> promise = deferredManager.some(2, d1, d2, d3)
+			.done(new DoneCallback<MultipleResults>() {
+				@Override
+				public void onDone(MultipleResults result) {
+					results.set(result);
+				}
+			});
+
+		d3.resolve("c");
+		d2.reject(new IllegalStateException());
+		assertTrue(promise.isPending());
+		d1.resolve("a");
+
+		assertTrue(promise.isResolved());
+		assertEquals(2, results.get().size());
+		assertEquals(2, results.get().get(0).getIndex());
+		assertEquals("c", results.get().get(0).getResult());
+		assertEquals(0, results.get().get(1).getIndex());
+		assertEquals("a", results.get().get(1).getResult());
+	}
+
+	@Test
+	public void someRejectsAsSoonAsCountIsUnreachable() {
+		DeferredObject<String, Throwable, Void> d1 = new DeferredObject<String, Throwable, Void>();
+		DeferredObject<String, Throwable, Void> d2 = new DeferredObject<String, Throwable, Void>();
+		DeferredObject<String, Throwable, Void> d3 = new DeferredObject<String, Throwable, Void>();
+
+		final AtomicReference<AllValues> rejects = new AtomicReference<AllValues>();
+		Promise<MultipleResults, AllValues, ?> promise = deferredManager.some(2, d1, d2, d3)
+			.fail(new FailCallback<AllValues>() {
+				@Override
+				public void onFail(AllValues result) {
+					rejects.set(result);
+				}
+			});
+
+		d1.reject(new IllegalStateException("1"));
+		assertTrue(promise.isPending());
+		d3.reject(new IllegalStateException("3"));
+
+		assertTrue(promise.isRejected());
+		assertEquals(2, rejects.get().size());
+		assertEquals(0, rejects.get().get(0).getIndex());
+		assertEquals(2, rejects.get().get(1).getIndex());
+		assertTrue(rejects.get().get(1) instanceof OneReject);
+	}
+
+	@Test
+	public void anyIgnoresRejections() {
+		final AtomicReference<OneResult<?>> winner = new AtomicReference<OneResult<?>>();
+		final AtomicReference<AllValues> rejected = new AtomicReference<AllValues>();
+		deferredManager.any(
+			failedCallable(new IllegalStateException(), 10),
+			successCallable("slow", 500),
+			successCallable("fast", 100))
+			.done(new DoneCallback<OneResult<?>>() {
+				@Override
+				public void onDone(OneResult<?> result) {
+					winner.set(result);
+				}
+			}).fail(new FailCallback<AllValues>() {
+				@Override
+				public void onFail(AllValues result) {
+					rejected.set(result);
+				}
+			});
+
+		waitForCompletion();
+
+		assertNull(rejected.get());
+		assertEquals(2, winner.get().getIndex());
+		assertEquals("fast", winner.get().getResult());
+	}
+
+	@Test
+	public void someCancelsPendingTasks() {
+		DeferredFutureTask<String, Void> fast = new DeferredFutureTask<String, Void>(successCallable("fast", 10));
+		DeferredFutureTask<String, Void> slow = new DeferredFutureTask<String, Void>(successCallable("slow", 5000));
+
+		final AtomicReference<Throwable> slowReject = new AtomicReference<Throwable>();
+		slow.promise().fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable result) {
+				slowReject.set(result);
+			}
+		});
+
+		deferredManager.some(1, fast, slow);
+		waitForCompletion();
+
+		assertTrue(slow.isCancelled());
+		assertTrue(slowReject.get() instanceof CancellationException);
+	}
+
+	@Test
+	public void someAcceptsMixedIterable() {
+		List<Object> items = new ArrayList<Object>();
+		items.add(new DeferredObject<String, Throwable, Void>().resolve("promise").promise());
+		items.add(successCallable("callable", 100));
+		items.add(failedCallable(new IllegalStateException(), 10));
+
+		final AtomicReference<MultipleResults> results = new AtomicReference<MultipleResults>();
+		deferredManager.some(2, items)
+			.done(new DoneCallback<MultipleResults>() {
+				@Override
+				public void onDone(MultipleResults result) {
+					results.set(result);
+				}
+			});
+
+		waitForCompletion();
+
+		assertEquals(0, results.get().get(0).getIndex());
+		assertEquals(1, results.get().get(1).getIndex());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void someRejectsCountLargerThanInputs() {
+		Callable<String> callable = successCallable("a", 0);
+		deferredManager.some(2, callable);
+	}
+}
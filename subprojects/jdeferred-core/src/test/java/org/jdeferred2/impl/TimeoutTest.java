@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.DeferredTimeoutException;
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimeoutTest extends AbstractDeferredTest {
+	@Test
+	public void rejectsWhenPromiseDoesNotSettleInTime() throws InterruptedException {
+		DeferredObject<String, Throwable, Void> deferred = new DeferredObject<String, Throwable, Void>();
+
+		final AtomicReference<Throwable> reject = new AtomicReference<Throwable>();
+		Promise<String, Throwable, Void> promise = deferredManager.withTimeout(deferred, 20, TimeUnit.MILLISECONDS)
+			.fail(new FailCallback<Throwable>() {
+				@Override
+				public void onFail(Throwable result) {
+					reject.set(result);
+				}
+			});
+
+		promise.waitSafely();
+
+		assertTrue(promise.isRejected());
+		assertTrue(reject.get() instanceof DeferredTimeoutException);
+		assertEquals(0, reject.get().getStackTrace().length);
+		deferred.waitSafely();
+		assertTrue(deferred.isRejected());
+	}
+
+	@Test
+	public void expiredTimeoutDoesNotRunCallbacksOnTheTimerThread() throws InterruptedException {
+		DeferredObject<String, Throwable, Void> deferred = new DeferredObject<String, Throwable, Void>();
+
+		final AtomicReference<Boolean> onTimerThread = new AtomicReference<Boolean>();
+		Promise<String, Throwable, Void> promise = deferredManager.withTimeout(deferred, 20, TimeUnit.MILLISECONDS)
+			.fail(new FailCallback<Throwable>() {
+				@Override
+				public void onFail(Throwable result) {
+					onTimerThread.set(HashedWheelTimer.isTimerThread());
+				}
+			});
+
+		promise.waitSafely();
+
+		assertTrue(promise.isRejected());
+		assertEquals(Boolean.FALSE, onTimerThread.get());
+	}
+
+	@Test
+	public void cancelsPromiseWhenTimeoutExpires() throws InterruptedException {
+		Promise<String, Throwable, Void> underlying = deferredManager.when(successCallable("late", 5000));
+		Promise<String, Throwable, Void> promise = deferredManager.withTimeout(underlying, 20, TimeUnit.MILLISECONDS);
+
+		promise.waitSafely();
+		underlying.waitSafely();
+
+		assertTrue(promise.isRejected());
+		assertTrue(underlying.isRejected());
+	}
+
+	@Test
+	public void keepsConsumedPromiseWhenTimeoutExpires() throws InterruptedException {
+		DeferredObject<String, Throwable, Void> deferred = new DeferredObject<String, Throwable, Void>();
+		deferred.done(new DoneCallback<String>() {
+			@Override
+			public void onDone(String result) {
+			}
+		});
+
+		Promise<String, Throwable, Void> promise = deferredManager.withTimeout(deferred, 20, TimeUnit.MILLISECONDS);
+		promise.waitSafely();
+		Thread.sleep(50);
+
+		assertTrue(promise.isRejected());
+		assertTrue(deferred.isPending());
+	}
+
+	@Test
+	public void mirrorsPromiseThatSettlesInTime() throws InterruptedException {
+		DeferredObject<String, Throwable, Void> deferred = new DeferredObject<String, Throwable, Void>();
+		Promise<String, Throwable, Void> promise = deferredManager.withTimeout(deferred, 1, TimeUnit.SECONDS);
+
+		deferred.resolve("a");
+		promise.waitSafely();
+
+		assertTrue(promise.isResolved());
+	}
+
+	@Test
+	public void cancelsTaskWhenTimeoutExpires() throws InterruptedException {
+		DeferredFutureTask<String, Void> task = new DeferredFutureTask<String, Void>(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				Thread.sleep(5000);
+				return "late";
+			}
+		});
+
+		Promise<String, Throwable, Void> promise = deferredManager.withTimeout(task, 20, TimeUnit.MILLISECONDS);
+		promise.waitSafely();
+		task.promise().waitSafely();
+		// the task is cancelled right after its promise rejects
+		for (int i = 0; i < 100 && !task.isCancelled(); i++) {
+			Thread.sleep(10);
+		}
+
+		assertTrue(promise.isRejected());
+		assertTrue(task.isCancelled());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void timeoutMustNotBeNegative() {
+		deferredManager.withTimeout(new DeferredObject<String, Throwable, Void>(), -1, TimeUnit.SECONDS);
+	}
+}
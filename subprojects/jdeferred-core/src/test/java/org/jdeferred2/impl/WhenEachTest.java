@@ -0,0 +1,171 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.CallbackExceptionHandler;
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.multiple.MasterProgress;
+import org.jdeferred2.multiple.OneReject;
+import org.jdeferred2.multiple.OneResult;
+import org.jdeferred2.multiple.OneValue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WhenEachTest extends AbstractDeferredTest {
+	@Test
+	public void whenEachDeliversResultsInCompletionOrder() {
+		DeferredObject<String, Throwable, Void> d1 = new DeferredObject<String, Throwable, Void>();
+		DeferredObject<String, Throwable, Void> d2 = new DeferredObject<String, Throwable, Void>();
+		DeferredObject<String, Throwable, Void> d3 = new DeferredObject<String, Throwable, Void>();
+
+		final List<Integer> indexes = new ArrayList<Integer>();
+		final AtomicReference<MasterProgress> progress = new AtomicReference<MasterProgress>();
+		Promise<MasterProgress, OneReject<?>, Void> promise = deferredManager.whenEach(Arrays.asList(d1, d2, d3), new DoneCallback<OneResult<?>>() {
+			@Override
+			public void onDone(OneResult<?> result) {
+				indexes.add(result.getIndex());
+			}
+		}).done(new DoneCallback<MasterProgress>() {
+			@Override
+			public void onDone(MasterProgress result) {
+				progress.set(result);
+			}
+		});
+
+		d2.resolve("b");
+		d3.resolve("c");
+		assertTrue(promise.isPending());
+		d1.resolve("a");
+
+		assertTrue(promise.isResolved());
+		assertEquals(Arrays.asList(1, 2, 0), indexes);
+		assertEquals(3, progress.get().getDone());
+		assertEquals(0, progress.get().getFail());
+	}
+
+	@Test
+	public void whenEachRejectsOnFirstFailure() {
+		DeferredObject<String, Throwable, Void> d1 = new DeferredObject<String, Throwable, Void>();
+		DeferredObject<String, Throwable, Void> d2 = new DeferredObject<String, Throwable, Void>();
+
+		final AtomicInteger delivered = new AtomicInteger();
+		Promise<MasterProgress, OneReject<?>, Void> promise = deferredManager.whenEach(Arrays.asList(d1, d2), new DoneCallback<OneResult<?>>() {
+			@Override
+			public void onDone(OneResult<?> result) {
+				delivered.incrementAndGet();
+			}
+		});
+
+		d2.reject(new IllegalStateException());
+		d1.resolve("a");
+
+		assertTrue(promise.isRejected());
+		assertEquals(0, delivered.get());
+	}
+
+	@Test
+	public void whenEachCancelledDuringFinalDeliveryStaysCancelled() {
+		DeferredObject<String, Throwable, Void> d1 = new DeferredObject<String, Throwable, Void>();
+
+		final List<Exception> handled = new CopyOnWriteArrayList<Exception>();
+		CallbackExceptionHandler previous = GlobalConfiguration.getGlobalCallbackExceptionHandler();
+		GlobalConfiguration.setGlobalCallbackExceptionHandler(new CallbackExceptionHandler() {
+			@Override
+			public void handleException(CallbackType callbackType, Exception e) {
+				handled.add(e);
+			}
+		});
+		try {
+			final AtomicReference<Promise<?, ?, ?>> each = new AtomicReference<Promise<?, ?, ?>>();
+			each.set(deferredManager.whenEach(Arrays.asList(d1), new DoneCallback<OneResult<?>>() {
+				@Override
+				public void onDone(OneResult<?> result) {
+					cancel(each.get());
+				}
+			}));
+
+			d1.resolve("a");
+
+			assertTrue(each.get().isRejected());
+			assertTrue(handled.isEmpty());
+		} finally {
+			GlobalConfiguration.setGlobalCallbackExceptionHandler(previous);
+		}
+	}
+
+	@Test
+	public void settleEachDeliversResolutionsAndRejections() {
+		final IllegalStateException failure = new IllegalStateException();
+		final AtomicInteger results = new AtomicInteger();
+		final AtomicInteger rejects = new AtomicInteger();
+		final AtomicReference<MasterProgress> progress = new AtomicReference<MasterProgress>();
+		final AtomicReference<Object> unexpected = new AtomicReference<Object>();
+
+		List<Callable<?>> tasks = new ArrayList<Callable<?>>();
+		for (int i = 0; i < 10; i++) {
+			tasks.add(i % 3 == 0 ? failedCallable(failure, 10) : successCallable(i, 10));
+		}
+
+		deferredManager.settleEach(tasks, new DoneCallback<OneValue<?>>() {
+			@Override
+			public void onDone(OneValue<?> value) {
+				if (value instanceof OneReject) {
+					if (value.getValue() != failure) {
+						unexpected.set(value.getValue());
+					}
+					rejects.incrementAndGet();
+				} else {
+					results.incrementAndGet();
+				}
+			}
+		}).done(new DoneCallback<MasterProgress>() {
+			@Override
+			public void onDone(MasterProgress result) {
+				progress.set(result);
+			}
+		});
+
+		waitForCompletion();
+
+		assertNull(unexpected.get());
+		assertEquals(6, results.get());
+		assertEquals(4, rejects.get());
+		assertEquals(6, progress.get().getDone());
+		assertEquals(4, progress.get().getFail());
+		assertEquals(10, progress.get().getTotal());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenEachRejectsUnconvertibleItems() {
+		deferredManager.whenEach(Arrays.asList(new Object()), new DoneCallback<OneResult<?>>() {
+			@Override
+			public void onDone(OneResult<?> result) {
+			}
+		});
+	}
+}
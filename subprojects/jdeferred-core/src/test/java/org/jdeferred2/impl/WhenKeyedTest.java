@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.impl;
+
+import org.jdeferred2.Promise;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WhenKeyedTest extends AbstractDeferredTest {
+	@Test
+	public void concurrentCallersShareOneTask() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+
+		Promise<Integer, Throwable, Void> first = deferredManager.whenKeyed("key", blockingCallable(release, calls));
+		Promise<Integer, Throwable, Void> second = deferredManager.whenKeyed("key", blockingCallable(release, calls));
+		Promise<Integer, Throwable, Void> other = deferredManager.whenKeyed("other", blockingCallable(release, calls));
+
+		release.countDown();
+		first.waitSafely();
+		second.waitSafely();
+		other.waitSafely();
+
+		assertEquals(2, calls.get());
+		assertTrue(first.isResolved());
+		assertTrue(second.isResolved());
+	}
+
+	@Test
+	public void keyIsReleasedOnceSettled() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(0);
+		AtomicInteger calls = new AtomicInteger();
+
+		deferredManager.whenKeyed("key", blockingCallable(release, calls)).waitSafely();
+		deferredManager.whenKeyed("key", blockingCallable(release, calls)).waitSafely();
+
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	public void sharedTaskIsCancelledByTheLastCaller() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+
+		Promise<Integer, Throwable, Void> first = deferredManager.whenKeyed("key", blockingCallable(release, calls));
+		Promise<Integer, Throwable, Void> second = deferredManager.whenKeyed("key", blockingCallable(release, calls));
+
+		assertTrue(cancel(first));
+		assertTrue(second.isPending());
+
+		assertTrue(cancel(second));
+		Promise<Integer, Throwable, Void> third = deferredManager.whenKeyed("key", blockingCallable(release, calls));
+		release.countDown();
+		third.waitSafely();
+
+		assertTrue(first.isRejected());
+		assertTrue(second.isRejected());
+		assertTrue(third.isResolved());
+	}
+
+	@Test
+	public void sharedTaskRunsWithoutAutoSubmit() throws InterruptedException {
+		deferredManager.setAutoSubmit(false);
+		AtomicInteger calls = new AtomicInteger();
+
+		Promise<Integer, Throwable, Void> promise = deferredManager.whenKeyed("key", blockingCallable(new CountDownLatch(0), calls));
+		promise.waitSafely(5000);
+
+		assertTrue(promise.isResolved());
+		assertEquals(1, calls.get());
+	}
+
+	private Callable<Integer> blockingCallable(final CountDownLatch release, final AtomicInteger calls) {
+		return new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				int call = calls.incrementAndGet();
+				release.await(5, TimeUnit.SECONDS);
+				return call;
+			}
+		};
+	}
+}
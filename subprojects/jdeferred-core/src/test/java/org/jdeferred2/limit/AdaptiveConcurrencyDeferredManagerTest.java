@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.impl.AbstractDeferredTest;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveConcurrencyDeferredManagerTest extends AbstractDeferredTest {
+	@Test
+	public void excessTasksQueueThenGetRejected() throws InterruptedException {
+		AdaptiveConcurrencyDeferredManager manager = new AdaptiveConcurrencyDeferredManager(
+			Executors.newCachedThreadPool(), new AimdLimit(1, 1, 1, 0.9, 1, TimeUnit.MINUTES), 1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		Promise<String, Throwable, Void> running = manager.when(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				release.await();
+				return "running";
+			}
+		});
+		Promise<String, Throwable, Void> queued = manager.when(successCallable("queued", 0));
+		Promise<String, Throwable, Void> rejected = manager.when(successCallable("rejected", 0));
+
+		assertEquals(1, manager.getInFlight());
+		assertEquals(1, manager.getQueued());
+		assertTrue(queued.isPending());
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		rejected.fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable result) {
+				failure.set(result);
+			}
+		});
+		assertTrue(failure.get() instanceof RejectedExecutionException);
+
+		release.countDown();
+		running.waitSafely();
+		queued.waitSafely();
+		assertTrue(queued.isResolved());
+		manager.shutdown();
+	}
+
+	@Test
+	public void aimdBacksOffOnDropsAndSlowCalls() {
+		AimdLimit limit = new AimdLimit(10, 1, 100, 0.5, 100, TimeUnit.MILLISECONDS);
+		long fast = TimeUnit.MILLISECONDS.toNanos(10);
+
+		limit.onSample(fast, 10, false);
+		assertEquals(11, limit.getLimit());
+		limit.onSample(fast, 1, false);
+		assertEquals(11, limit.getLimit());
+		limit.onSample(fast, 10, true);
+		assertEquals(5, limit.getLimit());
+		limit.onSample(TimeUnit.SECONDS.toNanos(1), 5, false);
+		assertEquals(2, limit.getLimit());
+	}
+
+	@Test
+	public void gradientShrinksWhenLatencyRisesAndGrowsWhenItIsFlat() {
+		GradientLimit limit = new GradientLimit(20, 1, 100, 0.5, 600);
+		long flat = TimeUnit.MILLISECONDS.toNanos(10);
+
+		for (int i = 0; i < 5; i++) {
+			limit.onSample(flat, limit.getLimit(), false);
+		}
+		int grown = limit.getLimit();
+		assertTrue(grown > 20);
+
+		for (int i = 0; i < 20; i++) {
+			limit.onSample(flat * 4, limit.getLimit(), false);
+		}
+		assertTrue(limit.getLimit() < grown / 2);
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+import org.jdeferred2.DeferredCallable;
+import org.jdeferred2.DoneCallback;
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.impl.AbstractDeferredTest;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BulkheadDeferredManagerTest extends AbstractDeferredTest {
+	@Test
+	public void saturatedBulkheadRejectsWithoutAffectingOthers() throws InterruptedException {
+		BulkheadDeferredManager manager = new BulkheadDeferredManager();
+		Bulkhead slow = manager.addBulkhead("slow", 1, 1);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		manager.when("slow", new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				started.countDown();
+				release.await();
+				return null;
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		Promise<String, Throwable, Void> queued = manager.when("slow", successCallable("queued", 0));
+		Promise<String, Throwable, Void> rejected = manager.when("slow", successCallable("rejected", 0));
+
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		rejected.fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable result) {
+				failure.set(result);
+			}
+		});
+		assertTrue(failure.get() instanceof BulkheadFullException);
+		assertEquals("slow", ((BulkheadFullException) failure.get()).getBulkheadName());
+		assertEquals(1, slow.getActiveCount());
+		assertEquals(1, slow.getQueueDepth());
+		assertEquals(1, slow.getRejectedCount());
+
+		Promise<String, Throwable, Void> unrelated = manager.when(successCallable("unrelated", 0));
+		unrelated.waitSafely();
+		assertTrue(unrelated.isResolved());
+		assertTrue(queued.isPending());
+
+		release.countDown();
+		queued.waitSafely();
+		assertTrue(queued.isResolved());
+		manager.shutdown();
+		assertTrue(manager.awaitTermination(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void taggedTasksRunInTheirBulkhead() throws InterruptedException {
+		BulkheadDeferredManager manager = new BulkheadDeferredManager();
+		manager.addBulkhead("payments", 2, 10);
+
+		Promise<String, Throwable, Void> tagged = manager.when(new DeferredCallable<String, Void>() {
+			@Override
+			public String call() throws Exception {
+				return Thread.currentThread().getName();
+			}
+
+			@Override
+			public String getBulkhead() {
+				return "payments";
+			}
+		});
+		tagged.waitSafely();
+		final AtomicReference<String> thread = new AtomicReference<String>();
+		tagged.done(new DoneCallback<String>() {
+			@Override
+			public void onDone(String result) {
+				thread.set(result);
+			}
+		});
+		assertTrue(thread.get().startsWith("bulkhead-payments-"));
+
+		Promise<String, Throwable, Void> unknown = manager.when(new DeferredCallable<String, Void>() {
+			@Override
+			public String call() throws Exception {
+				return "unknown";
+			}
+
+			@Override
+			public String getBulkhead() {
+				return "unknown";
+			}
+		});
+		assertTrue(unknown.isRejected());
+
+		try {
+			manager.when("unknown", successCallable("unknown", 0));
+			fail("Unknown bulkhead should be refused");
+		} catch (IllegalArgumentException expected) {
+			// expected
+		}
+		manager.shutdown();
+		assertTrue(manager.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(1, manager.getBulkhead("payments").getCompletedCount());
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+import org.jdeferred2.DeferredCallable;
+import org.jdeferred2.DeferredFutureTask;
+import org.jdeferred2.DeferredManager.CancellationPolicy;
+import org.jdeferred2.DeferredManager.StartPolicy;
+import org.jdeferred2.Promise;
+import org.jdeferred2.impl.AbstractDeferredTest;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PriorityDeferredManagerTest extends AbstractDeferredTest {
+	private final List<String> order = new CopyOnWriteArrayList<String>();
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@Test
+	public void higherPriorityRunsFirst() throws InterruptedException {
+		PriorityDeferredManager manager = new PriorityDeferredManager(1, 1, TimeUnit.HOURS);
+		block(manager);
+
+		manager.when(recording("low-1", 0));
+		manager.when(recording("low-2", 0));
+		DeferredFutureTask<String, Void> urgent = new DeferredFutureTask<String, Void>(recording("urgent", 0));
+		urgent.setPriority(10);
+		manager.when(urgent);
+		Promise<String, Throwable, Void> high = manager.when(recording("high", 5));
+		assertEquals(4, manager.getQueued());
+
+		release.countDown();
+		high.waitSafely();
+		manager.shutdown();
+		assertTrue(manager.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("urgent", "high", "low-1", "low-2"), order);
+	}
+
+	@Test
+	public void waitingTasksAgeAheadOfNewerUrgentOnes() throws InterruptedException {
+		PriorityDeferredManager manager = new PriorityDeferredManager(1, 10, TimeUnit.MILLISECONDS);
+		block(manager);
+
+		manager.when(recording("old", 0));
+		Thread.sleep(50);
+		manager.when(recording("new", 2));
+
+		release.countDown();
+		manager.shutdown();
+		assertTrue(manager.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("old", "new"), order);
+	}
+
+	@Test
+	public void cancelledRunningTaskKeepsItsTurnUntilItReturns() throws InterruptedException {
+		PriorityDeferredManager manager = new PriorityDeferredManager(1, 1, TimeUnit.HOURS);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch finish = new CountDownLatch(1);
+		Promise<String, Throwable, Void> running = manager.when(new DeferredCallable<String, Void>(StartPolicy.DEFAULT, CancellationPolicy.COOPERATIVE) {
+			@Override
+			public String call() throws Exception {
+				started.countDown();
+				finish.await(5, TimeUnit.SECONDS);
+				return "running";
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		Promise<String, Throwable, Void> next = manager.when(recording("next", 0));
+
+		assertTrue(cancel(running));
+		assertTrue(running.isRejected());
+		assertEquals(1, manager.getInFlight());
+		assertEquals(1, manager.getQueued());
+		assertTrue(order.isEmpty());
+
+		finish.countDown();
+		next.waitSafely(5000);
+		assertEquals(Arrays.asList("next"), order);
+		manager.shutdown();
+	}
+
+	@Test
+	public void cancelledWaitingTaskLeavesTheQueue() throws InterruptedException {
+		PriorityDeferredManager manager = new PriorityDeferredManager(1, 1, TimeUnit.HOURS);
+		block(manager);
+
+		Promise<String, Throwable, Void> waiting = manager.when(recording("waiting", 0));
+		assertEquals(1, manager.getQueued());
+
+		assertTrue(cancel(waiting));
+		assertEquals(0, manager.getQueued());
+
+		release.countDown();
+		manager.shutdown();
+		assertTrue(manager.awaitTermination(5, TimeUnit.SECONDS));
+		assertTrue(order.isEmpty());
+	}
+
+	private void block(PriorityDeferredManager manager) throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		manager.when(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				started.countDown();
+				release.await();
+				return null;
+			}
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertEquals(1, manager.getInFlight());
+	}
+
+	private DeferredCallable<String, Void> recording(final String name, final int priority) {
+		return new DeferredCallable<String, Void>() {
+			@Override
+			public String call() throws Exception {
+				order.add(name);
+				return name;
+			}
+
+			@Override
+			public int getPriority() {
+				return priority;
+			}
+		};
+	}
+}
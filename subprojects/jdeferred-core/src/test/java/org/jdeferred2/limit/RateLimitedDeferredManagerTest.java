@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013-2018 Ray Tsang
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jdeferred2.limit;
+
+import org.jdeferred2.FailCallback;
+import org.jdeferred2.ProgressCallback;
+import org.jdeferred2.Promise;
+import org.jdeferred2.impl.AbstractDeferredTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimitedDeferredManagerTest extends AbstractDeferredTest {
+	@Test
+	public void tasksOverTheBurstWaitForPermits() throws InterruptedException {
+		RateLimitedDeferredManager manager = new RateLimitedDeferredManager(2, 20, 10);
+
+		long start = System.nanoTime();
+		List<Promise<Integer, Throwable, Void>> promises = new ArrayList<Promise<Integer, Throwable, Void>>();
+		for (int i = 0; i < 4; i++) {
+			promises.add(manager.when(successCallable(i, 0)));
+		}
+		assertEquals(2, manager.getQueued());
+
+		for (Promise<Integer, Throwable, Void> promise : promises) {
+			promise.waitSafely();
+			assertTrue(promise.isResolved());
+		}
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+		manager.shutdown();
+	}
+
+	@Test
+	public void queuedTasksStartAtTheFullRateWithABurstOfOne() throws InterruptedException {
+		RateLimitedDeferredManager manager = new RateLimitedDeferredManager(1, 1000, 300);
+
+		long start = System.nanoTime();
+		List<Promise<Integer, Throwable, Void>> promises = new ArrayList<Promise<Integer, Throwable, Void>>();
+		for (int i = 0; i < 300; i++) {
+			promises.add(manager.when(successCallable(i, 0)));
+		}
+		for (Promise<Integer, Throwable, Void> promise : promises) {
+			promise.waitSafely(5000);
+			assertTrue(promise.isResolved());
+		}
+
+		// 300 permits at 1000 per second take 0.3 s; one permit per timer tick would take 3 s
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+		manager.shutdown();
+	}
+
+	@Test
+	public void fullQueueRejectsWithRateLimitExceeded() {
+		RateLimitedDeferredManager manager = new RateLimitedDeferredManager(1, 1, 1);
+
+		manager.when(successCallable("permitted", 0));
+		Promise<String, Throwable, Void> queued = manager.when(successCallable("queued", 0));
+		Promise<String, Throwable, Void> rejected = manager.when(successCallable("rejected", 0));
+
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		rejected.fail(new FailCallback<Throwable>() {
+			@Override
+			public void onFail(Throwable result) {
+				failure.set(result);
+			}
+		});
+		assertTrue(queued.isPending());
+		assertTrue(failure.get() instanceof RateLimitExceededException);
+
+		cancel(queued);
+		assertTrue(queued.isRejected());
+		manager.shutdownNow();
+	}
+
+	@Test
+	public void cancelledTaskLeavesTheQueue() {
+		RateLimitedDeferredManager manager = new RateLimitedDeferredManager(1, 1, 2);
+
+		manager.when(successCallable("permitted", 0));
+		Promise<String, Throwable, Void> head = manager.when(successCallable("head", 0));
+		Promise<String, Throwable, Void> tail = manager.when(successCallable("tail", 0));
+		assertEquals(2, manager.getQueued());
+
+		// the cancelled task is behind the head, so the drain would not skip it before the head starts
+		cancel(tail);
+		assertEquals(1, manager.getQueued());
+
+		Promise<String, Throwable, Void> next = manager.when(successCallable("next", 0));
+		assertTrue(head.isPending());
+		assertTrue(next.isPending());
+		assertEquals(2, manager.getQueued());
+		manager.shutdownNow();
+	}
+
+	@Test
+	public void keyedLimitsReportProgressIndependently() throws InterruptedException {
+		RateLimitedDeferredManager manager = new RateLimitedDeferredManager(1, 50, 10);
+
+		Promise<String, Throwable, SubmissionProgress> first = manager.whenPermitted("api", successCallable("first", 0));
+		Promise<String, Throwable, SubmissionProgress> second = manager.whenPermitted("api", successCallable("second", 0));
+		Promise<String, Throwable, SubmissionProgress> other = manager.whenPermitted("other", successCallable("other", 0));
+		assertEquals(1, manager.getQueued("api"));
+		assertEquals(0, manager.getQueued("other"));
+
+		final List<SubmissionProgress> progress = new CopyOnWriteArrayList<SubmissionProgress>();
+		second.progress(new ProgressCallback<SubmissionProgress>() {
+			@Override
+			public void onProgress(SubmissionProgress result) {
+				progress.add(result);
+			}
+		});
+
+		first.waitSafely();
+		second.waitSafely();
+		other.waitSafely();
+		assertTrue(second.isResolved());
+		assertTrue(other.isResolved());
+		assertEquals(SubmissionProgress.QUEUED, progress.get(0));
+		assertEquals(SubmissionProgress.STARTED, progress.get(1));
+		manager.shutdown();
+	}
+}